@@ -0,0 +1,50 @@
+package de.mirkosertic.metair.ir;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * An analysis deriving information from a {@link Method} graph. Results are cached by the {@link PassManager} until a
+ * pass changes the part of the graph the analysis depends on.
+ * <p>
+ * Use counts need no analysis, they are kept up to date by every {@link Node}.
+ */
+public interface Analysis<T> {
+
+    Analysis<CFGDominatorTree> CFG_DOMINATORS = of(CFGDominatorTree::new, true);
+
+    Analysis<List<Node>> TOPOLOGICAL_ORDER = of(method -> new DFS2(method).getTopologicalOrder(), false);
+
+    Analysis<List<LoopHeaderNode>> LOOP_HEADERS = of(method -> {
+        final List<LoopHeaderNode> result = new ArrayList<>();
+        for (final Node node : new DFS2(method, true).getTopologicalOrder()) {
+            if (node instanceof final LoopHeaderNode loopHeader) {
+                result.add(loopHeader);
+            }
+        }
+        return result;
+    }, true);
+
+    T compute(Method method);
+
+    /**
+     * Returns true if the result only depends on the control flow, so it is still valid after a pass only changing
+     * the data flow.
+     */
+    boolean controlFlowOnly();
+
+    static <T> Analysis<T> of(final Function<Method, T> function, final boolean controlFlowOnly) {
+        return new Analysis<>() {
+            @Override
+            public T compute(final Method method) {
+                return function.apply(method);
+            }
+
+            @Override
+            public boolean controlFlowOnly() {
+                return controlFlowOnly;
+            }
+        };
+    }
+}
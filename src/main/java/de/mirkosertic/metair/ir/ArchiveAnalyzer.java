@@ -0,0 +1,193 @@
+package de.mirkosertic.metair.ir;
+
+import java.io.IOException;
+import java.lang.classfile.MethodModel;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Analyzes every method of every class inside a jar file or a class directory.
+ * <p>
+ * Classes and methods are analyzed in parallel using a {@link ForkJoinPool}, all of them share a single
+ * {@link ResolverContext}. Every analyzed method or failure is passed to the consumer as soon as it is
+ * available, so the consumer is called concurrently by multiple threads and must be thread-safe.
+ * <p>
+ * A failing class or method, be it by an exception or an error like a {@link StackOverflowError}, is reported as
+ * {@link Failed} and does not stop the analysis of the others. Only other {@link VirtualMachineError}s abort the run.
+ * Exceptions thrown by the consumer are collected and rethrown once all results were delivered.
+ */
+public class ArchiveAnalyzer {
+
+    public sealed interface Result permits Analyzed, Failed {
+    }
+
+    public record Analyzed(ResolvedMethod method, MethodAnalyzer analyzer) implements Result {
+
+        public Method ir() {
+            return analyzer.ir();
+        }
+    }
+
+    public record Failed(String className, String methodName, Throwable exception) implements Result {
+    }
+
+    private final Path archive;
+    private final ForkJoinPool pool;
+
+    public ArchiveAnalyzer(final Path archive, final ForkJoinPool pool) {
+        this.archive = archive;
+        this.pool = pool;
+    }
+
+    public ArchiveAnalyzer(final Path archive) {
+        this(archive, ForkJoinPool.commonPool());
+    }
+
+    public void analyze(final Consumer<Result> consumer) {
+        final List<String> classNames = classNames();
+
+        // Classes of the archive take precedence over the classes visible to the current context
+        final ClassFileSource classFileSource = new CompositeClassFileSource(List.of(ClassFileSource.of(archive), new ClassLoaderClassFileSource(Thread.currentThread().getContextClassLoader())));
+        final ResolverContext resolverContext = new ResolverContext(classFileSource);
+
+        final Queue<Throwable> consumerFailures = new ConcurrentLinkedQueue<>();
+        final Consumer<Result> guardedConsumer = result -> {
+            try {
+                consumer.accept(result);
+            } catch (final Throwable e) {
+                rethrowIfFatal(e);
+                consumerFailures.add(e);
+            }
+        };
+
+        final List<AnalyzeClass> tasks = new ArrayList<>();
+        for (final String className : classNames) {
+            tasks.add(new AnalyzeClass(resolverContext, className, guardedConsumer));
+        }
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(tasks);
+            }
+        });
+
+        if (!consumerFailures.isEmpty()) {
+            final IllegalStateException e = new IllegalStateException("Consumer failed for " + consumerFailures.size() + " results", consumerFailures.poll());
+            consumerFailures.forEach(e::addSuppressed);
+            throw e;
+        }
+    }
+
+    private static void rethrowIfFatal(final Throwable e) {
+        // A deep recursion only breaks the current method, other VM errors leave the whole JVM in doubt
+        if (e instanceof final VirtualMachineError error && !(e instanceof StackOverflowError)) {
+            throw error;
+        }
+    }
+
+    /**
+     * Returns the names of all classes in the archive, for example to build a {@link ClassHierarchy} over them.
+     */
+    public List<String> classNames() {
+        try {
+            if (Files.isDirectory(archive)) {
+                return classNames(archive);
+            }
+            try (final FileSystem fileSystem = FileSystems.newFileSystem(archive)) {
+                return classNames(fileSystem.getPath("/"));
+            }
+        } catch (final IOException e) {
+            throw new IllegalArgumentException("Cannot read " + archive, e);
+        }
+    }
+
+    private static List<String> classNames(final Path root) throws IOException {
+        try (final Stream<Path> files = Files.walk(root)) {
+            return files.filter(Files::isRegularFile)
+                    .map(file -> root.relativize(file).toString().replace(root.getFileSystem().getSeparator(), "/"))
+                    // Multi-release versions and module or package descriptors do not contain any code to analyze
+                    .filter(name -> name.endsWith(".class") && !name.startsWith("META-INF/") && !name.endsWith("module-info.class") && !name.endsWith("package-info.class"))
+                    .map(name -> name.substring(0, name.length() - ".class".length()).replace('/', '.'))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static class AnalyzeClass extends RecursiveAction {
+
+        private final ResolverContext resolverContext;
+        private final String className;
+        private final Consumer<Result> consumer;
+
+        AnalyzeClass(final ResolverContext resolverContext, final String className, final Consumer<Result> consumer) {
+            this.resolverContext = resolverContext;
+            this.className = className;
+            this.consumer = consumer;
+        }
+
+        @Override
+        protected void compute() {
+            final ResolvedClass resolvedClass;
+            final List<MethodModel> methodModels;
+            try {
+                resolvedClass = resolverContext.resolveClass(className);
+                methodModels = resolvedClass.classModel().methods();
+            } catch (final Throwable e) {
+                rethrowIfFatal(e);
+                consumer.accept(new Failed(className, null, e));
+                return;
+            }
+
+            final List<AnalyzeMethod> tasks = new ArrayList<>();
+            for (final MethodModel methodModel : methodModels) {
+                if (methodModel.code().isPresent()) {
+                    tasks.add(new AnalyzeMethod(resolverContext, className, resolvedClass, methodModel, consumer));
+                }
+            }
+            invokeAll(tasks);
+        }
+    }
+
+    private static class AnalyzeMethod extends RecursiveAction {
+
+        private final ResolverContext resolverContext;
+        private final String className;
+        private final ResolvedClass resolvedClass;
+        private final MethodModel methodModel;
+        private final Consumer<Result> consumer;
+
+        AnalyzeMethod(final ResolverContext resolverContext, final String className, final ResolvedClass resolvedClass, final MethodModel methodModel, final Consumer<Result> consumer) {
+            this.resolverContext = resolverContext;
+            this.className = className;
+            this.resolvedClass = resolvedClass;
+            this.methodModel = methodModel;
+            this.consumer = consumer;
+        }
+
+        @Override
+        protected void compute() {
+            final ResolvedMethod method;
+            final MethodAnalyzer analyzer;
+            try {
+                method = resolvedClass.resolveMethod(methodModel);
+                // The analyzer is not cached in the ResolvedMethod, so the graph can be garbage collected once the consumer is done
+                analyzer = new MethodAnalyzer(resolverContext, resolvedClass.thisType(), methodModel);
+            } catch (final Throwable e) {
+                rethrowIfFatal(e);
+                consumer.accept(new Failed(className, methodModel.methodName().stringValue(), e));
+                return;
+            }
+            consumer.accept(new Analyzed(method, analyzer));
+        }
+    }
+}
@@ -4,6 +4,24 @@ import java.util.Objects;
 
 public class ArgumentUse extends DataFlowUse {
 
+    private static final ArgumentUse[] SHARED = new ArgumentUse[16];
+
+    static {
+        for (int i = 0; i < SHARED.length; i++) {
+            SHARED[i] = new ArgumentUse(i);
+        }
+    }
+
+    /**
+     * Returns a shared instance for small indices, uses are immutable and can be shared between edges.
+     */
+    static ArgumentUse of(final int index) {
+        if (index < SHARED.length) {
+            return SHARED[index];
+        }
+        return new ArgumentUse(index);
+    }
+
     protected final int index;
 
     ArgumentUse(final int index) {
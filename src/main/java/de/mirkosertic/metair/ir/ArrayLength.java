@@ -9,7 +9,7 @@ public class ArrayLength extends Value {
             illegalArgument("Cannot get array length of non array of type " + TypeUtils.toString(array.type));
         }
 
-        use(array, new ArgumentUse(0));
+        use(array, ArgumentUse.of(0));
     }
 
     @Override
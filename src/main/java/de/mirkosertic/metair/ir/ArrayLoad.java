@@ -13,8 +13,8 @@ public class ArrayLoad extends Value {
             illegalArgument("Cannot store to non int index of type " + TypeUtils.toString(index.type));
         }
 
-        use(array, new ArgumentUse(0));
-        use(index, new ArgumentUse(1));
+        use(array, ArgumentUse.of(0));
+        use(index, ArgumentUse.of(1));
     }
 
     @Override
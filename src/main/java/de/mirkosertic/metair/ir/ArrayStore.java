@@ -19,9 +19,9 @@ public class ArrayStore extends Node {
             illegalArgument("Cannot store non " + TypeUtils.toString(arrayType.componentType()) + " value " + TypeUtils.toString(value.type) + " to array of type " + TypeUtils.toString(array.type));
         }
 
-        use(array, new ArgumentUse(0));
-        use(index, new ArgumentUse(1));
-        use(value, new ArgumentUse(2));
+        use(array, ArgumentUse.of(0));
+        use(index, ArgumentUse.of(1));
+        use(value, ArgumentUse.of(2));
     }
 
     @Override
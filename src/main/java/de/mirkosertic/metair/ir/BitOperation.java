@@ -19,8 +19,8 @@ public class BitOperation extends Value {
         }
 
         this.operation = operation;
-        use(arg1, new ArgumentUse(0));
-        use(arg2, new ArgumentUse(1));
+        use(arg1, ArgumentUse.of(0));
+        use(arg2, ArgumentUse.of(1));
     }
 
     @Override
@@ -1,53 +1,54 @@
 package de.mirkosertic.metair.ir;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
 public class CFGDominatorTree {
 
     final List<Node> preOrder;
-    final Map<Node, Node> idom;
-
     final List<Node> rpo;
 
+    private final Dominators dominators;
+    private final int[] rpoIndex;
+
     public CFGDominatorTree(final Node start) {
         preOrder = new DFS2(start, true).getTopologicalOrder();
-        idom = new HashMap<>();
-        rpo = new ArrayList<>();
-        computeDominators();
-        computeRPO(start);
+        dominators = new Dominators(preOrder, CFGDominatorTree::predecessorsOf);
+        rpo = Dominators.reversePostOrder(start, CFGDominatorTree::successorsOf);
+        rpoIndex = new int[start.graphSize()];
+        Arrays.fill(rpoIndex, -1);
+        for (int i = 0; i < rpo.size(); i++) {
+            rpoIndex[rpo.get(i).id] = i;
+        }
     }
 
-    private void computeRPO(final Node consumer) {
-        final List<Node> finished = new ArrayList<>();
-        final Set<Node> visited = new HashSet<>();
-        computeRPO(consumer, finished, visited);
-
-        Collections.reverse(finished);
-        rpo.addAll(finished);
+    private static List<Node> predecessorsOf(final Node node) {
+        final List<Node> result = new ArrayList<>();
+        final UseList uses = node.uses;
+        for (int i = 0; i < uses.size(); i++) {
+            if (uses.use(i) instanceof ControlFlowUse) {
+                result.add(uses.node(i));
+            }
+        }
+        return result;
     }
 
-    private void computeRPO(final Node current, final List<Node> finished, final Set<Node> visited) {
-        if (visited.add(current)) {
-            for (final Node user : current.usedBy.stream().sorted(Comparator.comparing((Node o) -> o.getClass().getSimpleName())).toList()) {
-                for (final Node.UseEdge edge : user.uses) {
-                    if (edge.node() == current) {
-                        if (edge.use() instanceof final ControlFlowUse cfu) {
-                            if (cfu.type == FlowType.FORWARD) {
-                                computeRPO(user, finished, visited);
-                            }
-                        }
-                    }
+    private static List<Node> successorsOf(final Node node) {
+        final List<Node> result = new ArrayList<>();
+        for (final Node user : node.usedBy.stream().sorted(Comparator.comparingInt(Node::id)).toList()) {
+            final UseList userUses = user.uses;
+            for (int i = 0; i < userUses.size(); i++) {
+                if (userUses.node(i) == node && userUses.use(i) instanceof final ControlFlowUse cfu && cfu.type == FlowType.FORWARD) {
+                    result.add(user);
+                    break;
                 }
             }
-            finished.add(current);
         }
+        return result;
     }
 
     public List<Node> getPreOrder() {
@@ -58,55 +59,26 @@ public class CFGDominatorTree {
         return rpo;
     }
 
-    private void computeDominators() {
-        final Node firstElement = preOrder.getFirst();
-        idom.put(firstElement, firstElement);
-
-        boolean changed;
-        do {
-            changed = false;
-            for (final Node v : preOrder) {
-                if (v.equals(firstElement))
-                    continue;
-                final Node oldIdom = getIDom(v);
-                Node newIdom = null;
-                for (final Node.UseEdge edge : v.uses) {
-                    if (edge.use() instanceof ControlFlowUse) {
-                        if (getIDom(edge.node()) == null)
-                            /* not yet analyzed */ continue;
-                        if (newIdom == null) {
-                            /* If we only have one (defined) predecessor pre, IDom(v) = pre */
-                            newIdom = edge.node();
-                        } else {
-                            /* compute the intersection of all defined predecessors of v */
-                            newIdom = intersectIDoms(edge.node(), newIdom);
-                        }
-                    }
-                }
-                if (newIdom == null) {
-                    throw new AssertionError("newIDom == null !, for " + v);
-                }
-                if (!newIdom.equals(oldIdom)) {
-                    changed = true;
-                    this.idom.put(v, newIdom);
-                }
-            }
-        } while (changed);
-    }
-
+    /**
+     * Returns the immediate dominator of a node, the start node for the start node itself, or null if the node is
+     * not part of the tree.
+     */
     public Node getIDom(final Node node) {
-        return idom.get(node);
+        final int index = dominators.indexOf(node);
+        if (index < 0 || dominators.idom(index) < 0) {
+            return null;
+        }
+        return dominators.node(dominators.idom(index));
     }
 
-    private Node intersectIDoms(Node v1, Node v2) {
-        while (v1 != v2) {
-            if (preOrder.indexOf(v1) < preOrder.indexOf(v2)) {
-                v2 = getIDom(v2);
-            } else {
-                v1 = getIDom(v1);
-            }
+    /**
+     * Returns the position of the node in the reverse post order, or -1 if it is not part of the tree.
+     */
+    public int rpoIndexOf(final Node node) {
+        if (node.graph != preOrder.getFirst().graph || node.id >= rpoIndex.length) {
+            return -1;
         }
-        return v1;
+        return rpoIndex[node.id];
     }
 
     /**
@@ -115,22 +87,32 @@ public class CFGDominatorTree {
      * @return true, if <code>dominator</code> dominates <code>dominated</code> w.r.t to the entry node
      */
     public boolean dominates(final Node dominator, final Node dominated) {
-        if(dominator.equals(dominated)) {
+        if (dominator == dominated) {
             return true; // Domination is reflexive ;)
         }
-        Node dom = getIDom(dominated);
-        // as long as dominated >= dominator
-        while(dom != null && preOrder.indexOf(dom) >= preOrder.indexOf(dominator) && ! dom.equals(dominator)) {
-            dom = getIDom(dom);
+        final int a = dominators.indexOf(dominator);
+        final int b = dominators.indexOf(dominated);
+        return a >= 0 && b >= 0 && dominators.dominates(a, b);
+    }
+
+    /**
+     * Returns the nearest node dominating both given nodes, or null if one of them is not part of the tree.
+     */
+    public Node commonDominator(final Node a, final Node b) {
+        final int ia = dominators.indexOf(a);
+        final int ib = dominators.indexOf(b);
+        if (ia < 0 || ib < 0) {
+            return null;
         }
-        return dominator.equals(dom);
+        final int result = dominators.commonDominator(ia, ib);
+        return result < 0 ? null : dominators.node(result);
     }
 
     public Set<Node> getStrictDominators(final Node n) {
         final Set<Node> strictDoms = new HashSet<>();
         Node dominated = n;
         Node iDom = getIDom(n);
-        while(iDom != dominated) {
+        while (iDom != null && iDom != dominated) {
             strictDoms.add(iDom);
             dominated = iDom;
             iDom = getIDom(dominated);
@@ -139,27 +121,45 @@ public class CFGDominatorTree {
     }
 
     public Set<Node> immediatelyDominatedNodesOf(final Node n) {
-        final Set<Node> result = new HashSet<>();
-        for (final Map.Entry<Node, Node> entry : idom.entrySet()) {
-            if (entry.getValue() == n) {
-                result.add(entry.getKey());
-            }
-        }
-        return result;
+        return new HashSet<>(toNodes(childrenOf(n)));
     }
 
     public Set<Node> domSetOf(final Node n) {
         final Set<Node> theDomSet = new HashSet<>();
-        addToDomSet(n, theDomSet);
+        final List<Node> workList = new ArrayList<>();
+        workList.add(n);
+        while (!workList.isEmpty()) {
+            final Node current = workList.removeLast();
+            theDomSet.add(current);
+            workList.addAll(toNodes(childrenOf(current)));
+        }
         return theDomSet;
     }
 
-    private void addToDomSet(final Node n, final Set<Node> domset) {
-        domset.add(n);
-        for (final Map.Entry<Node, Node> idomEntry : idom.entrySet()) {
-            if (idomEntry.getValue() == n && preOrder.indexOf(idomEntry.getKey()) > preOrder.indexOf(n)) {
-                addToDomSet(idomEntry.getKey(), domset);
-            }
+    /**
+     * Returns the dominance frontier of a node, all nodes where the dominance of the given node ends.
+     */
+    public List<Node> dominanceFrontierOf(final Node n) {
+        final int index = dominators.indexOf(n);
+        if (index < 0) {
+            return List.of();
+        }
+        return toNodes(dominators.dominanceFrontier(index));
+    }
+
+    private int[] childrenOf(final Node n) {
+        final int index = dominators.indexOf(n);
+        if (index < 0) {
+            return new int[0];
         }
+        return dominators.children(index);
+    }
+
+    private List<Node> toNodes(final int[] indexes) {
+        final List<Node> result = new ArrayList<>(indexes.length);
+        for (final int index : indexes) {
+            result.add(dominators.node(index));
+        }
+        return result;
     }
 }
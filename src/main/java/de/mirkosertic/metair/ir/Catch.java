@@ -10,7 +10,7 @@ public class Catch extends TupleNode {
 
         this.exceptionTypes = exceptionTypes;
 
-        use(source, new ArgumentUse(0));
+        use(source, ArgumentUse.of(0));
 
         registerAs("exception", new CaughtExceptionProjection(this));
     }
@@ -6,7 +6,7 @@ public class CaughtExceptionProjection extends Value implements Projection {
         // TODO: Do we neet the meet operator here?
         super(source.exceptionTypes.size() != 1 ? IRType.MetaClass.of(Throwable.class) : source.exceptionTypes.getFirst());
 
-        use(source, new ArgumentUse(0));
+        use(source, ArgumentUse.of(0));
     }
 
     @Override
@@ -4,8 +4,8 @@ public class CheckCast extends Value {
 
     CheckCast(final Value arg1, final Value arg2) {
         super(arg1.type);
-        use(arg1, new ArgumentUse(0));
-        use(arg2, new ArgumentUse(1));
+        use(arg1, ArgumentUse.of(0));
+        use(arg2, ArgumentUse.of(1));
     }
 
     @Override
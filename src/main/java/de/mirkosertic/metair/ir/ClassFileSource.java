@@ -0,0 +1,43 @@
+package de.mirkosertic.metair.ir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Provides the bytes of class files by binary class name.
+ * <p>
+ * Implementations must be thread-safe, as a {@link ResolverContext} might load classes from multiple threads.
+ */
+public interface ClassFileSource {
+
+    /**
+     * Returns the content of the class file for the given binary class name like {@code java.lang.String},
+     * or {@code null} if this source does not contain the class.
+     */
+    byte[] load(String className);
+
+    /**
+     * Creates a source for the classes of the running JDK followed by the given jar files and class directories,
+     * searched in this order.
+     */
+    static ClassFileSource of(final List<Path> classpath) {
+        final List<ClassFileSource> sources = new ArrayList<>();
+        sources.add(new JrtClassFileSource());
+        for (final Path entry : classpath) {
+            sources.add(of(entry));
+        }
+        return new CompositeClassFileSource(sources);
+    }
+
+    /**
+     * Creates a source for a single jar file or class directory.
+     */
+    static ClassFileSource of(final Path jarOrDirectory) {
+        if (Files.isDirectory(jarOrDirectory)) {
+            return new DirectoryClassFileSource(jarOrDirectory);
+        }
+        return new JarClassFileSource(jarOrDirectory);
+    }
+}
@@ -0,0 +1,104 @@
+package de.mirkosertic.metair.ir;
+
+import java.lang.constant.MethodTypeDesc;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Class hierarchy analysis over an explicitly given, closed world of classes.
+ * <p>
+ * The caller passes every class that can exist at runtime, like all classes of an archive or a class path scan, see
+ * {@link ArchiveAnalyzer#classNames()}. The analysis is only sound if no class outside of this world extends or
+ * implements a type of the world. Calls on types outside of the world, like JDK interfaces, are never answered, as
+ * their implementations are not known.
+ */
+public class ClassHierarchy {
+
+    private final ResolverContext resolverContext;
+    private final Set<ResolvedClass> world;
+    private final Map<ResolvedClass, List<ResolvedClass>> directSubtypes;
+
+    public ClassHierarchy(final ResolverContext resolverContext, final Collection<String> classNames) {
+        this.resolverContext = resolverContext;
+        this.world = new HashSet<>();
+        this.directSubtypes = new HashMap<>();
+
+        for (final String className : classNames) {
+            world.add(resolverContext.resolveClass(className));
+        }
+        for (final ResolvedClass cls : world) {
+            final ResolvedClass superClass = cls.superClass();
+            if (superClass != null) {
+                directSubtypes.computeIfAbsent(superClass, key -> new ArrayList<>()).add(cls);
+            }
+            for (final ResolvedClass iface : cls.interfaces()) {
+                directSubtypes.computeIfAbsent(iface, key -> new ArrayList<>()).add(cls);
+            }
+        }
+    }
+
+    public ResolverContext resolverContext() {
+        return resolverContext;
+    }
+
+    /**
+     * Returns the given type and all its known direct and indirect subclasses and implementations.
+     */
+    public Set<ResolvedClass> subtypes(final ResolvedClass type) {
+        final Set<ResolvedClass> result = new LinkedHashSet<>();
+        final Deque<ResolvedClass> workList = new ArrayDeque<>();
+        workList.add(type);
+        while (!workList.isEmpty()) {
+            final ResolvedClass current = workList.pop();
+            if (result.add(current)) {
+                workList.addAll(directSubtypes.getOrDefault(current, List.of()));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns all methods that a virtual or interface call with the given static receiver type might invoke, or
+     * {@code null} if the static type is not part of the world or the method selected for a possible receiver class
+     * is unknown.
+     */
+    public Set<ResolvedMethod> implementations(final ResolvedClass staticType, final String methodName, final MethodTypeDesc methodTypeDesc) {
+        if (!world.contains(staticType)) {
+            // Subtypes outside of the world are not known
+            return null;
+        }
+        final Set<ResolvedMethod> result = new LinkedHashSet<>();
+        for (final ResolvedClass cls : subtypes(staticType)) {
+            // Only instances of concrete classes can be receivers
+            if (!cls.isInterface() && !cls.isAbstract()) {
+                final ResolvedMethod selected = cls.selectMethod(methodName, methodTypeDesc);
+                if (selected == null || selected.isAbstract()) {
+                    // Giving up is the only safe answer, skipping the class could leave a wrong unique implementation
+                    return null;
+                }
+                result.add(selected);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the only method a virtual or interface call with the given static receiver type might invoke, or
+     * {@code null} if there is none or more than one.
+     */
+    public ResolvedMethod uniqueImplementation(final ResolvedClass staticType, final String methodName, final MethodTypeDesc methodTypeDesc) {
+        final Set<ResolvedMethod> implementations = implementations(staticType, methodName, methodTypeDesc);
+        if (implementations != null && implementations.size() == 1) {
+            return implementations.iterator().next();
+        }
+        return null;
+    }
+}
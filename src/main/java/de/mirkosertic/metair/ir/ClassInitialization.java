@@ -5,7 +5,7 @@ public class ClassInitialization extends Value {
     ClassInitialization(final RuntimeclassReference value) {
         super(value.type);
 
-        use(value, new ArgumentUse(0));
+        use(value, ArgumentUse.of(0));
     }
 
     @Override
@@ -0,0 +1,34 @@
+package de.mirkosertic.metair.ir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+
+public class ClassLoaderClassFileSource implements ClassFileSource {
+
+    private final ClassLoader classLoader;
+
+    public ClassLoaderClassFileSource(final ClassLoader classLoader) {
+        this.classLoader = classLoader;
+    }
+
+    @Override
+    public byte[] load(final String className) {
+        // Try OS specific naming
+        URL resource = classLoader.getResource(className.replace('.', File.separatorChar) + ".class");
+        if (resource == null) {
+            // Try the hard coded unix way
+            resource = classLoader.getResource(className.replace('.', '/') + ".class");
+            if (resource == null) {
+                return null;
+            }
+        }
+
+        try (final InputStream inputStream = resource.openStream()) {
+            return inputStream.readAllBytes();
+        } catch (final IOException e) {
+            throw new IllegalArgumentException("Cannot read class file " + resource, e);
+        }
+    }
+}
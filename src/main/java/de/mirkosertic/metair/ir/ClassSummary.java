@@ -0,0 +1,106 @@
+package de.mirkosertic.metair.ir;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.lang.classfile.ClassModel;
+import java.lang.classfile.FieldModel;
+import java.lang.classfile.MethodModel;
+import java.lang.classfile.constantpool.ClassEntry;
+import java.lang.reflect.AccessFlag;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The parts of a class file needed to resolve the class hierarchy and fields, without the code of the class.
+ * <p>
+ * All class names are binary names like {@code java.lang.String}, descriptors are field or method descriptors as
+ * found in the class file.
+ */
+public record ClassSummary(String thisClass, String superClass, List<String> interfaces, int flags, List<Member> fields, List<Member> methods) {
+
+    public record Member(String name, String descriptor, int flags) {
+
+        public boolean has(final AccessFlag flag) {
+            return (flags & flag.mask()) != 0;
+        }
+    }
+
+    public ClassSummary {
+        interfaces = List.copyOf(interfaces);
+        fields = List.copyOf(fields);
+        methods = List.copyOf(methods);
+    }
+
+    public boolean has(final AccessFlag flag) {
+        return (flags & flag.mask()) != 0;
+    }
+
+    public static ClassSummary of(final ClassModel model) {
+        final String superClass = model.superclass().map(ClassSummary::binaryName).orElse(null);
+        final List<String> interfaces = new ArrayList<>();
+        for (final ClassEntry iface : model.interfaces()) {
+            interfaces.add(binaryName(iface));
+        }
+        final List<Member> fields = new ArrayList<>();
+        for (final FieldModel field : model.fields()) {
+            fields.add(new Member(field.fieldName().stringValue(), field.fieldType().stringValue(), field.flags().flagsMask()));
+        }
+        final List<Member> methods = new ArrayList<>();
+        for (final MethodModel method : model.methods()) {
+            methods.add(new Member(method.methodName().stringValue(), method.methodType().stringValue(), method.flags().flagsMask()));
+        }
+        return new ClassSummary(binaryName(model.thisClass()), superClass, interfaces, model.flags().flagsMask(), fields, methods);
+    }
+
+    private static String binaryName(final ClassEntry entry) {
+        return entry.asInternalName().replace('/', '.');
+    }
+
+    void writeTo(final DataOutput output) throws IOException {
+        output.writeUTF(thisClass);
+        output.writeBoolean(superClass != null);
+        if (superClass != null) {
+            output.writeUTF(superClass);
+        }
+        output.writeInt(interfaces.size());
+        for (final String iface : interfaces) {
+            output.writeUTF(iface);
+        }
+        output.writeInt(flags);
+        writeMembers(output, fields);
+        writeMembers(output, methods);
+    }
+
+    private static void writeMembers(final DataOutput output, final List<Member> members) throws IOException {
+        output.writeInt(members.size());
+        for (final Member member : members) {
+            output.writeUTF(member.name());
+            output.writeUTF(member.descriptor());
+            output.writeInt(member.flags());
+        }
+    }
+
+    static ClassSummary readFrom(final DataInput input) throws IOException {
+        final String thisClass = input.readUTF();
+        final String superClass = input.readBoolean() ? input.readUTF() : null;
+        final int numInterfaces = input.readInt();
+        final List<String> interfaces = new ArrayList<>(numInterfaces);
+        for (int i = 0; i < numInterfaces; i++) {
+            interfaces.add(input.readUTF());
+        }
+        final int flags = input.readInt();
+        final List<Member> fields = readMembers(input);
+        final List<Member> methods = readMembers(input);
+        return new ClassSummary(thisClass, superClass, interfaces, flags, fields, methods);
+    }
+
+    private static List<Member> readMembers(final DataInput input) throws IOException {
+        final int size = input.readInt();
+        final List<Member> members = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            members.add(new Member(input.readUTF(), input.readUTF(), input.readInt()));
+        }
+        return members;
+    }
+}
@@ -0,0 +1,92 @@
+package de.mirkosertic.metair.ir;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.function.Supplier;
+
+/**
+ * Persistent cache of {@link ClassSummary} instances, keyed by the SHA-256 hash of the class file content.
+ * <p>
+ * Every summary is stored in its own file, written atomically, so the same cache directory can be shared by
+ * multiple threads and concurrent analysis runs. Unreadable entries are treated as missing and written again. The
+ * cache is optional, so entries that cannot be written, for example to a read-only or full directory, are skipped.
+ */
+public class ClassSummaryCache {
+
+    private static final int VERSION = 1;
+
+    private final Path directory;
+
+    public ClassSummaryCache(final Path directory) {
+        this.directory = directory;
+    }
+
+    public ClassSummary summaryOf(final byte[] classFile, final Supplier<ClassSummary> summarizer) {
+        final String hash = hash(classFile);
+        final Path file = directory.resolve(hash.substring(0, 2)).resolve(hash);
+
+        final ClassSummary cached = read(file);
+        if (cached != null) {
+            return cached;
+        }
+
+        final ClassSummary summary = summarizer.get();
+        write(file, summary);
+        return summary;
+    }
+
+    private static String hash(final byte[] classFile) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(classFile));
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static ClassSummary read(final Path file) {
+        try (final InputStream is = Files.newInputStream(file); final DataInputStream dis = new DataInputStream(new BufferedInputStream(is))) {
+            if (dis.readInt() != VERSION) {
+                return null;
+            }
+            return ClassSummary.readFrom(dis);
+        } catch (final IOException e) {
+            // Missing, corrupt or truncated entries are computed again
+            return null;
+        }
+    }
+
+    private static void write(final Path file, final ClassSummary summary) {
+        final Path temp;
+        try {
+            Files.createDirectories(file.getParent());
+            temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        } catch (final IOException e) {
+            // The summary is just not cached
+            return;
+        }
+        try {
+            try (final OutputStream os = Files.newOutputStream(temp); final DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(os))) {
+                dos.writeInt(VERSION);
+                summary.writeTo(dos);
+            }
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (final IOException e) {
+            try {
+                Files.deleteIfExists(temp);
+            } catch (final IOException ignored) {
+                // The directory itself is gone or not writable anymore
+            }
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package de.mirkosertic.metair.ir;
+
+import java.util.List;
+
+public class CompositeClassFileSource implements ClassFileSource {
+
+    private final List<ClassFileSource> sources;
+
+    public CompositeClassFileSource(final List<ClassFileSource> sources) {
+        this.sources = List.copyOf(sources);
+    }
+
+    @Override
+    public byte[] load(final String className) {
+        for (final ClassFileSource source : sources) {
+            final byte[] data = source.load(className);
+            if (data != null) {
+                return data;
+            }
+        }
+        return null;
+    }
+}
@@ -2,6 +2,13 @@ package de.mirkosertic.metair.ir;
 
 public class ControlFlowUse extends Use {
 
+    private static final ControlFlowUse FORWARD = new ControlFlowUse(FlowType.FORWARD);
+    private static final ControlFlowUse BACKWARD = new ControlFlowUse(FlowType.BACKWARD);
+
+    static ControlFlowUse of(final FlowType type) {
+        return type == FlowType.FORWARD ? FORWARD : BACKWARD;
+    }
+
     public final FlowType type;
 
     ControlFlowUse(final FlowType type) {
@@ -11,7 +11,7 @@ public class Convert extends Value {
             illegalArgument("Expected a value of type " + TypeUtils.toString(from) + " but got " + TypeUtils.toString(arg1.type));
         }
 
-        use(arg1, new ArgumentUse(0));
+        use(arg1, ArgumentUse.of(0));
         this.from = from;
     }
 
@@ -1,22 +1,30 @@
 package de.mirkosertic.metair.ir;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Comparator;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
-
+import java.util.PriorityQueue;
+
+/**
+ * Topological order of all nodes reachable from a start node by forward edges.
+ * <p>
+ * This is Kahn's algorithm: every discovered node counts its unvisited predecessors, and a node becomes ready once
+ * the count drops to zero. Among all ready nodes the one discovered first is taken next, and successors are
+ * discovered in id order, so the order is deterministic. Nodes that never become ready make the IR unschedulable.
+ */
 public class DFS2 {
 
     private final List<Node> nodesInOrder;
-    private final List<Node> workList;
-    private final Set<Node> visited;
-    private final Map<Node, Set<Node>> precomputedPredecessors;
-    private final Map<Node, List<Node>> precomputedForwards;
     private final boolean onlyControlFlow;
 
+    // Side tables indexed by node id, -1 marks undiscovered nodes
+    private final int[] discoveryIndex;
+    private final int[] unvisitedPredecessors;
+    private final int[] mark;
+    private int markStamp;
+
     public DFS2(final Node node) {
         this(node, false);
     }
@@ -25,113 +33,113 @@ public class DFS2 {
 
         this.onlyControlFlow = onlyControlFlow;
         this.nodesInOrder = new ArrayList<>();
-        this.workList = new ArrayList<>();
-        this.visited = new HashSet<>();
-        this.precomputedPredecessors = new HashMap<>();
-        this.precomputedForwards = new HashMap<>();
-
-        long safelock = 0;
-
-        workList.add(node);
-        listhandling: while (!workList.isEmpty()) {
-            safelock++;
-            if (safelock > 5000) {
-                throw new IllegalStateException("Unschedulable IR detected!");
-            }
-
-            for (final Node currentNode : workList) {
-                if (check(currentNode)) continue listhandling;
-            }
-        }
-    }
-
-    private boolean check(final Node currentNode) {
-        final Set<Node> predecessors = precomputedPredecessors.computeIfAbsent(currentNode, this::predecessorsOf);
 
-        if (visited.containsAll(predecessors)) {
-            // All predecessors are fully resolved, we can continue resolving this node
+        final int size = node.graphSize();
+        this.discoveryIndex = new int[size];
+        this.unvisitedPredecessors = new int[size];
+        this.mark = new int[size];
+        Arrays.fill(discoveryIndex, -1);
 
-            nodesInOrder.add(currentNode);
+        final PriorityQueue<Node> ready = new PriorityQueue<>(Comparator.comparingInt((Node n) -> discoveryIndex[n.id]));
+        final BitSet visited = new BitSet(size);
 
-            visited.add(currentNode);
-
-            final List<Node> forwardNodes = getForwardNodesFor(currentNode);
+        int discovered = 0;
+        discoveryIndex[node.id] = discovered++;
+        unvisitedPredecessors[node.id] = countPredecessors(node);
+        if (unvisitedPredecessors[node.id] == 0) {
+            ready.add(node);
+        }
 
-            if (forwardNodes.isEmpty()) {
-                workList.remove(currentNode);
-                return true;
-            } else {
-                // TODO: Sort the nodes by their usage, with control flow use first, then data flow, then arg-flow, and then define flow
-                forwardNodes.sort(Comparator.comparing(o -> o.getClass().getSimpleName()));
-                for (final Node forwardNode : forwardNodes) {
-                    if (!workList.contains(forwardNode) && !visited.contains(forwardNode)) {
-                        workList.add(forwardNode);
+        final List<Node> forwardNodes = new ArrayList<>();
+        final BitSet isPredecessorOf = new BitSet();
+        while (!ready.isEmpty()) {
+            final Node current = ready.poll();
+            nodesInOrder.add(current);
+            visited.set(current.id);
+
+            forwardNodes.clear();
+            isPredecessorOf.clear();
+            collectForwardNodes(current, forwardNodes, isPredecessorOf);
+
+            forwardNodes.sort(Comparator.comparingInt(Node::id));
+            for (final Node forwardNode : forwardNodes) {
+                if (discoveryIndex[forwardNode.id] == -1) {
+                    discoveryIndex[forwardNode.id] = discovered++;
+                    unvisitedPredecessors[forwardNode.id] = countPredecessors(forwardNode);
+                }
+            }
+            for (final Node forwardNode : forwardNodes) {
+                if (isPredecessorOf.get(forwardNode.id) && !visited.get(forwardNode.id)) {
+                    if (--unvisitedPredecessors[forwardNode.id] == 0) {
+                        ready.add(forwardNode);
                     }
                 }
-
-                workList.remove(currentNode);
-
-                return true;
             }
         }
-        return false;
+
+        if (nodesInOrder.size() < discovered) {
+            throw new IllegalStateException("Unschedulable IR detected!");
+        }
     }
 
-    private List<Node> getForwardNodesFor(final Node currentNode) {
-        return precomputedForwards.computeIfAbsent(currentNode, key -> {
-            final List<Node> forwardNodes = new ArrayList<>();
-            for (final Node user : key.usedBy) {
-                for (final Node.UseEdge edge : user.uses) {
-                    if (edge.node() == key) {
-                        if (onlyControlFlow) {
-                            if (edge.use() instanceof final ControlFlowUse cfu && cfu.type == FlowType.FORWARD) {
-                                forwardNodes.add(user);
-                            }
-                        } else {
-                            if (edge.use() instanceof final ControlFlowUse cfu && cfu.type == FlowType.FORWARD) {
-                                forwardNodes.add(user);
-                            } else if (edge.use() instanceof final PHIUse pu && pu.type == FlowType.FORWARD) {
-                                forwardNodes.add(user);
-                            } else if (edge.use() instanceof DefinedByUse) {
-                                forwardNodes.add(user);
-                            } else if (edge.use() instanceof DataFlowUse) {
-                                forwardNodes.add(user);
-                            } else if (edge.use() instanceof MemoryUse) {
-                                forwardNodes.add(user);
-                            }
-                        }
+    private void collectForwardNodes(final Node currentNode, final List<Node> forwardNodes, final BitSet isPredecessorOf) {
+        for (final Node user : currentNode.usedBy) {
+            boolean forward = false;
+            final UseList userUses = user.uses;
+            for (int i = 0; i < userUses.size(); i++) {
+                if (userUses.node(i) == currentNode) {
+                    final Use use = userUses.use(i);
+                    forward |= isForward(use);
+                    if (isPredecessor(use)) {
+                        isPredecessorOf.set(user.id);
                     }
                 }
             }
-            return forwardNodes;
-        });
+            if (forward) {
+                forwardNodes.add(user);
+            }
+        }
+    }
+
+    private boolean isForward(final Use use) {
+        if (use instanceof final ControlFlowUse cfu) {
+            return cfu.type == FlowType.FORWARD;
+        }
+        if (onlyControlFlow) {
+            return false;
+        }
+        return use instanceof DefinedByUse || use instanceof DataFlowUse || use instanceof MemoryUse;
     }
 
     public List<Node> getTopologicalOrder() {
         return nodesInOrder;
     }
 
-    private Set<Node> predecessorsOf(final Node node) {
-        final Set<Node> predecessors = new HashSet<>();
-        for (final Node.UseEdge edge : node.uses) {
-            if (onlyControlFlow) {
-                if (edge.use() instanceof final ControlFlowUse cfu) {
-                    if (cfu.type == FlowType.FORWARD) {
-                        predecessors.add(edge.node());
-                    }
-                }
-            } else {
-                if (edge.use() instanceof final ControlFlowUse cfu) {
-                    if (cfu.type == FlowType.FORWARD) {
-                        predecessors.add(edge.node());
-                    }
-                } else if (edge.use() instanceof final PHIUse pu) {
-                    if (pu.type == FlowType.FORWARD) {
-                        predecessors.add(edge.node());
-                    }
-                } else predecessors.add(edge.node());
+    private int countPredecessors(final Node node) {
+        // Every distinct predecessor is counted once
+        markStamp++;
+        int count = 0;
+        final UseList nodeUses = node.uses;
+        for (int i = 0; i < nodeUses.size(); i++) {
+            final Node used = nodeUses.node(i);
+            if (isPredecessor(nodeUses.use(i)) && mark[used.id] != markStamp) {
+                mark[used.id] = markStamp;
+                count++;
             }
         }
-        return predecessors;
+        return count;
+    }
+
+    private boolean isPredecessor(final Use use) {
+        if (use instanceof final ControlFlowUse cfu) {
+            return cfu.type == FlowType.FORWARD;
+        }
+        if (onlyControlFlow) {
+            return false;
+        }
+        if (use instanceof final PHIUse pu) {
+            return pu.type == FlowType.FORWARD;
+        }
+        return true;
     }
 }
@@ -229,10 +229,10 @@ public final class DOTExporter {
         ps.println(" ordering=\"in\";");
         for (final Node n : tree.preOrder) {
             ps.print(" node" + tree.preOrder.indexOf(n) + "[");
-            printNode(tree.preOrder.indexOf(n), n, ps, " Order : " + tree.rpo.indexOf(n));
+            printNode(tree.preOrder.indexOf(n), n, ps, " Order : " + tree.rpoIndexOf(n));
             ps.println("];");
 
-            final Node id = tree.idom.get(n);
+            final Node id = tree.getIDom(n);
             if (id != n) {
                 ps.print(" node" + tree.preOrder.indexOf(n) + " -> node" + tree.preOrder.indexOf(id) + "[dir=\"forward\"");
                 ps.print(" color=\"fuchsia\" penwidth=\"2\"");
@@ -312,10 +312,10 @@ public final class DOTExporter {
         ps.println(" ordering=\"in\";");
         for (final Node n : tree.preOrder) {
             ps.print(" node" + tree.preOrder.indexOf(n) + "[");
-            printNode(tree.preOrder.indexOf(n), n, ps, " Order : " + tree.rpo.indexOf(n));
+            printNode(tree.preOrder.indexOf(n), n, ps, " Order : " + tree.rpoIndexOf(n));
             ps.println("];");
 
-            final Node id = tree.idom.get(n);
+            final Node id = tree.getIDom(n);
             if (id != n) {
                 ps.print(" node" + tree.preOrder.indexOf(n) + " -> node" + tree.preOrder.indexOf(id) + "[dir=\"forward\"");
                 ps.print(" color=\"fuchsia\" penwidth=\"2\"");
@@ -0,0 +1,307 @@
+package de.mirkosertic.metair.ir;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Dead code and dead control flow elimination.
+ * <p>
+ * Side effect free values and PHIs without users are removed with a worklist, which also picks up their inputs once
+ * their last user is gone. Values only kept alive by each other, like the PHI and the increment of an unused loop
+ * counter, are found by marking everything used by a node with side effects. Before that, {@link If}s whose
+ * projections both lead straight into the same {@link MergeNode} without selecting different values are removed, and
+ * MergeNodes with a single predecessor are replaced by it.
+ * <p>
+ * Finally, the remaining nodes are renumbered densely and stale entries of their users are dropped. As this changes
+ * all node ids, every change is reported as a control flow change.
+ */
+public class DeadCodeElimination implements Pass {
+
+    @Override
+    public Changes run(final Method method, final PassManager.Analyses analyses) {
+        final List<Node> nodes = analyses.get(Analysis.TOPOLOGICAL_ORDER);
+
+        int removed = simplifyControlFlow(nodes);
+        removed += removeDeadValues(nodes);
+        for (final Node node : nodes) {
+            removed += node.removeStaleUsers();
+        }
+
+        if (removed == 0) {
+            return Changes.NONE;
+        }
+        Graph.compact(new DFS2(method).getTopologicalOrder());
+        return Changes.CONTROL_FLOW;
+    }
+
+    private static boolean isRemovable(final Node node) {
+        // Projections are kept, method arguments are part of the signature
+        return node instanceof Value && !(node instanceof Projection) && (node instanceof PHI || node.sideeffectFree());
+    }
+
+    private static int removeDeadValues(final List<Node> nodes) {
+        final Deque<Node> workList = new ArrayDeque<>();
+        boolean hasPHIs = false;
+        for (final Node node : nodes) {
+            if (isRemovable(node) && node.usedBy.isEmpty()) {
+                workList.add(node);
+            }
+            hasPHIs |= node instanceof PHI;
+        }
+
+        int removed = 0;
+        while (!workList.isEmpty()) {
+            final Node node = workList.poll();
+            if (node.uses.size() == 0 || !node.usedBy.isEmpty()) {
+                // Already removed
+                continue;
+            }
+            final List<Node> inputs = new ArrayList<>(node.uses.size());
+            for (int i = 0; i < node.uses.size(); i++) {
+                inputs.add(node.uses.node(i));
+            }
+            node.uses.clear();
+            removed++;
+            for (final Node input : inputs) {
+                if (isRemovable(input) && input.usedBy.isEmpty()) {
+                    workList.add(input);
+                }
+            }
+        }
+
+        if (hasPHIs) {
+            // Only PHIs can close a cycle of values
+            removed += removeDeadCycles(nodes);
+        }
+        return removed;
+    }
+
+    private static int removeDeadCycles(final List<Node> nodes) {
+        final BitSet live = new BitSet();
+        final Deque<Node> workList = new ArrayDeque<>();
+        for (final Node node : nodes) {
+            if (!isRemovable(node) && (node instanceof Method || node.uses.size() > 0)) {
+                live.set(node.id);
+                workList.push(node);
+            }
+        }
+        while (!workList.isEmpty()) {
+            final Node current = workList.pop();
+            for (int i = 0; i < current.uses.size(); i++) {
+                final Node used = current.uses.node(i);
+                if (!live.get(used.id)) {
+                    live.set(used.id);
+                    workList.push(used);
+                }
+            }
+        }
+
+        int removed = 0;
+        for (final Node node : nodes) {
+            if (isRemovable(node) && node.uses.size() > 0 && !live.get(node.id)) {
+                node.uses.clear();
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    private static int simplifyControlFlow(final List<Node> nodes) {
+        final Deque<Node> workList = new ArrayDeque<>();
+        for (final Node node : nodes) {
+            if (node instanceof MergeNode || node instanceof If) {
+                workList.add(node);
+            }
+        }
+
+        int removed = 0;
+        while (!workList.isEmpty()) {
+            final Node node = workList.poll();
+            if (node.uses.size() == 0) {
+                // Already removed
+                continue;
+            }
+            switch (node) {
+                case final MergeNode merge -> {
+                    final Node predecessor = singlePredecessorOf(merge);
+                    if (predecessor != null) {
+                        collapse(merge, predecessor);
+                        removed++;
+                        // The branch owning the predecessor might have become an empty diamond
+                        if (predecessor instanceof ExtractControlFlowProjection) {
+                            workList.add(predecessor.controlFlowPredecessor());
+                        }
+                    }
+                }
+                case final If iff -> {
+                    final MergeNode join = emptyDiamondJoinOf(iff);
+                    if (join != null) {
+                        removeDiamond(iff, join);
+                        removed += 3;
+                        workList.add(join);
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Returns the only control flow predecessor, if the merge can be replaced by it.
+     */
+    private static Node singlePredecessorOf(final MergeNode merge) {
+        Node predecessor = null;
+        int memories = 0;
+        for (int i = 0; i < merge.uses.size(); i++) {
+            switch (merge.uses.use(i)) {
+                case final ControlFlowUse _ -> {
+                    if (predecessor != null) {
+                        return null;
+                    }
+                    predecessor = merge.uses.node(i);
+                }
+                case final MemoryUse _ -> memories++;
+                default -> {
+                    return null;
+                }
+            }
+        }
+        if (predecessor == null || memories > 1) {
+            return null;
+        }
+        for (final Node definition : merge.definitions()) {
+            if (definition instanceof final PHI phi && phi.singleInput() == null) {
+                return null;
+            }
+        }
+        for (final Node user : merge.usedBy) {
+            for (int i = 0; i < user.uses.size(); i++) {
+                if (user.uses.node(i) == merge && user.uses.use(i) instanceof MemoryUse && memories == 0) {
+                    return null;
+                }
+            }
+        }
+        return predecessor;
+    }
+
+    private static void collapse(final MergeNode merge, final Node predecessor) {
+        Node memory = null;
+        for (int i = 0; i < merge.uses.size(); i++) {
+            if (merge.uses.use(i) instanceof MemoryUse) {
+                memory = merge.uses.node(i);
+            }
+        }
+
+        for (final Node definition : merge.definitions()) {
+            if (definition instanceof final PHI phi) {
+                phi.replaceWith(phi.singleInput());
+            } else {
+                definition.uses.replaceNode(merge, predecessor);
+            }
+        }
+        for (final Node user : merge.usedBy.toArray(new Node[0])) {
+            for (int i = 0; i < user.uses.size(); i++) {
+                if (user.uses.node(i) == merge) {
+                    final Use use = user.uses.use(i);
+                    user.uses.set(i, new Node.UseEdge(use instanceof MemoryUse ? memory : predecessor, use));
+                }
+            }
+            retargetPHIs(user, merge, predecessor);
+        }
+        merge.uses.clear();
+    }
+
+    /**
+     * Returns the merge both projections of the branch lead to, if the branch selects no different values.
+     */
+    private static MergeNode emptyDiamondJoinOf(final If iff) {
+        final Node trueProjection = iff.trueProjection();
+        final Node falseProjection = iff.falseProjection();
+        if (!(onlySuccessorOf(trueProjection) instanceof final MergeNode join) || onlySuccessorOf(falseProjection) != join) {
+            return null;
+        }
+        for (final Node definition : join.definitions()) {
+            if (definition instanceof final PHI phi) {
+                Node selected = null;
+                for (int i = 0; i < phi.uses.size(); i++) {
+                    if (phi.uses.use(i) instanceof final PHIUse phiUse && isPartOf(phiUse.origin, iff)) {
+                        if (selected != null && selected != phi.uses.node(i)) {
+                            return null;
+                        }
+                        selected = phi.uses.node(i);
+                    }
+                }
+            }
+        }
+        return join;
+    }
+
+    private static void removeDiamond(final If iff, final MergeNode join) {
+        final Node predecessor = iff.controlFlowPredecessor();
+        for (final Node definition : join.definitions()) {
+            if (definition instanceof final PHI phi) {
+                boolean kept = false;
+                for (int i = phi.uses.size() - 1; i >= 0; i--) {
+                    if (phi.uses.use(i) instanceof final PHIUse phiUse && isPartOf(phiUse.origin, iff)) {
+                        if (kept) {
+                            phi.uses.remove(i);
+                        } else {
+                            phi.uses.set(i, new Node.UseEdge(phi.uses.node(i), new PHIUse(phiUse.type, predecessor)));
+                            kept = true;
+                        }
+                    }
+                }
+            }
+        }
+        for (int i = join.uses.size() - 1; i >= 0; i--) {
+            if (isPartOf(join.uses.node(i), iff)) {
+                join.uses.remove(i);
+            }
+        }
+        predecessor.controlFlowsTo(join, FlowType.FORWARD);
+
+        iff.trueProjection().uses.clear();
+        iff.falseProjection().uses.clear();
+        iff.uses.clear();
+    }
+
+    private static boolean isPartOf(final Node node, final If iff) {
+        return node == iff || node == iff.trueProjection() || node == iff.falseProjection();
+    }
+
+    /**
+     * Returns the only user of a node, if it only uses it as forward control flow predecessor.
+     */
+    private static Node onlySuccessorOf(final Node node) {
+        if (node.usedBy.size() != 1) {
+            return null;
+        }
+        final Node user = node.usedBy.iterator().next();
+        for (int i = 0; i < user.uses.size(); i++) {
+            if (user.uses.node(i) == node && !(user.uses.use(i) instanceof final ControlFlowUse cfu && cfu.type == FlowType.FORWARD)) {
+                return null;
+            }
+        }
+        return user;
+    }
+
+    /**
+     * Lets the PHIs defined by the given node take the values of the old origin from the new one.
+     */
+    private static void retargetPHIs(final Node node, final Node oldOrigin, final Node newOrigin) {
+        for (final Node definition : node.definitions()) {
+            if (definition instanceof final PHI phi) {
+                for (int i = 0; i < phi.uses.size(); i++) {
+                    if (phi.uses.use(i) instanceof final PHIUse phiUse && phiUse.origin == oldOrigin) {
+                        phi.uses.set(i, new Node.UseEdge(phi.uses.node(i), new PHIUse(phiUse.type, newOrigin)));
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package de.mirkosertic.metair.ir;
+
+import java.lang.constant.MethodTypeDesc;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rewrites {@link InvokeVirtual} and {@link InvokeInterface} nodes into direct {@link InvokeSpecial} calls of the
+ * selected implementation if the target is known statically.
+ * <p>
+ * This is the case if the resolved method cannot be overridden, if the exact receiver type is known because it was
+ * allocated by a {@link New} or its class is final, or if the {@link ClassHierarchy} knows only one implementation.
+ */
+public class Devirtualization {
+
+    private final ClassHierarchy classHierarchy;
+
+    public Devirtualization(final ClassHierarchy classHierarchy) {
+        this.classHierarchy = classHierarchy;
+    }
+
+    /**
+     * Applies the pass to the given graph and returns the number of devirtualized invocations.
+     */
+    public int apply(final Method method) {
+        int count = 0;
+        for (final Node node : new DFS2(method).getTopologicalOrder()) {
+            if (node instanceof InvokeVirtual || node instanceof InvokeInterface) {
+                final Invoke invoke = (Invoke) node;
+                final ResolvedMethod target = directTarget(invoke);
+                if (target != null) {
+                    replace(invoke, target);
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    ResolvedMethod directTarget(final Invoke invoke) {
+        if (invoke.ownerType.isArray()) {
+            return null;
+        }
+
+        final ResolverContext resolverContext = classHierarchy.resolverContext();
+        final MethodTypeDesc methodTypeDesc = invoke.typeDesc.type();
+        final ResolvedClass owner = resolverContext.resolveClass(invoke.ownerType.type());
+        final ResolvedMethod resolved = owner.findMethod(invoke.name, methodTypeDesc);
+        if (resolved == null || !resolved.methodModel().methodTypeSymbol().equals(methodTypeDesc)) {
+            // Unknown or signature polymorphic methods must stay as they are
+            return null;
+        }
+        if (!resolved.isVirtual() || resolved.isFinal()) {
+            return resolved;
+        }
+
+        if (invoke.target instanceof final New allocation) {
+            return concrete(resolverContext.resolveClass(((IRType.MetaClass) allocation.type).type()).selectMethod(invoke.name, methodTypeDesc));
+        }
+
+        if (invoke.target.type instanceof final IRType.MetaClass receiverType && !receiverType.isArray()) {
+            final ResolvedClass receiverClass = resolverContext.resolveClass(receiverType.type());
+            if (receiverClass.isFinal()) {
+                return concrete(receiverClass.selectMethod(invoke.name, methodTypeDesc));
+            }
+        }
+
+        return classHierarchy.uniqueImplementation(owner, invoke.name, methodTypeDesc);
+    }
+
+    private static ResolvedMethod concrete(final ResolvedMethod method) {
+        if (method != null && !method.isAbstract()) {
+            return method;
+        }
+        return null;
+    }
+
+    private static void replace(final Invoke invoke, final ResolvedMethod target) {
+        final List<Node> invokeArguments = invoke.arguments();
+        final List<Value> arguments = new ArrayList<>();
+        for (int i = 1; i < invokeArguments.size(); i++) {
+            arguments.add((Value) invokeArguments.get(i));
+        }
+
+        final InvokeSpecial direct = new InvokeSpecial(target.thisClass().thisType(), invoke.target, invoke.name, invoke.typeDesc, arguments);
+        // Keep the position of the call in the control flow and memory chain
+        for (final Node.UseEdge edge : invoke.uses) {
+            if (!(edge.use() instanceof ArgumentUse)) {
+                direct.use(edge.node(), edge.use());
+            }
+        }
+        invoke.replaceWith(direct);
+    }
+}
@@ -0,0 +1,27 @@
+package de.mirkosertic.metair.ir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+
+public class DirectoryClassFileSource implements ClassFileSource {
+
+    private final Path directory;
+
+    public DirectoryClassFileSource(final Path directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public byte[] load(final String className) {
+        final Path file = directory.resolve(className.replace('.', '/') + ".class");
+        try {
+            return Files.readAllBytes(file);
+        } catch (final NoSuchFileException e) {
+            return null;
+        } catch (final IOException e) {
+            throw new IllegalArgumentException("Cannot read class file " + file, e);
+        }
+    }
+}
@@ -12,8 +12,8 @@ public class Div extends Value {
             illegalArgument("Cannot divide non " + TypeUtils.toString(type) + " value " + TypeUtils.toString(arg2.type) + " for arg2");
         }
 
-        use(arg1, new ArgumentUse(0));
-        use(arg2, new ArgumentUse(1));
+        use(arg1, ArgumentUse.of(0));
+        use(arg2, ArgumentUse.of(1));
     }
 
     @Override
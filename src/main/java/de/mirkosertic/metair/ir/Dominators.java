@@ -0,0 +1,339 @@
+package de.mirkosertic.metair.ir;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Dominator computation over int arrays, shared by {@link DominatorTree} and {@link CFGDominatorTree}.
+ * <p>
+ * Immediate dominators are computed with the semi-NCA algorithm in near linear time. The dominator tree is numbered
+ * in pre and post order, so dominance checks are O(1). Dominance frontiers are computed on first use.
+ */
+final class Dominators {
+
+    private final List<Node> nodes;
+    private final int[] indexById;
+    private final int[][] predecessors;
+
+    // All following arrays are indexed by the position of the node in the nodes list
+    private final int[] idom;
+    private final int[] depth;
+    private final int[] preNumber;
+    private final int[] postNumber;
+    private final int[][] children;
+    private int[][] frontiers;
+
+    /**
+     * @param nodes all nodes of the graph, the first one is the entry
+     * @param predecessorFunction the predecessors of a node, predecessors not contained in the nodes list are ignored
+     */
+    Dominators(final List<Node> nodes, final Function<Node, List<Node>> predecessorFunction) {
+        this.nodes = nodes;
+        final int size = nodes.size();
+
+        indexById = new int[nodes.getFirst().graphSize()];
+        Arrays.fill(indexById, -1);
+        for (int i = 0; i < size; i++) {
+            indexById[nodes.get(i).id] = i;
+        }
+
+        predecessors = new int[size][];
+        for (int i = 0; i < size; i++) {
+            final List<Node> preds = predecessorFunction.apply(nodes.get(i));
+            final int[] indexes = new int[preds.size()];
+            int count = 0;
+            for (final Node pred : preds) {
+                final int index = indexOf(pred);
+                if (index >= 0) {
+                    indexes[count++] = index;
+                }
+            }
+            predecessors[i] = Arrays.copyOf(indexes, count);
+        }
+
+        idom = new int[size];
+        computeImmediateDominators();
+
+        depth = new int[size];
+        preNumber = new int[size];
+        postNumber = new int[size];
+        children = new int[size][];
+        numberTree();
+    }
+
+    int indexOf(final Node node) {
+        if (node.graph != nodes.getFirst().graph || node.id >= indexById.length) {
+            return -1;
+        }
+        return indexById[node.id];
+    }
+
+    Node node(final int index) {
+        return nodes.get(index);
+    }
+
+    /**
+     * Returns the immediate dominator, the entry node for the entry itself, or -1 for unreachable nodes.
+     */
+    int idom(final int index) {
+        return idom[index];
+    }
+
+    boolean dominates(final int dominator, final int dominated) {
+        if (idom[dominator] < 0 || idom[dominated] < 0) {
+            return dominator == dominated;
+        }
+        return preNumber[dominator] <= preNumber[dominated] && postNumber[dominated] <= postNumber[dominator];
+    }
+
+    /**
+     * Returns the nearest node dominating both nodes, or -1 if one of them is unreachable.
+     */
+    int commonDominator(int a, int b) {
+        if (idom[a] < 0 || idom[b] < 0) {
+            return -1;
+        }
+        while (depth[a] > depth[b]) {
+            a = idom[a];
+        }
+        while (depth[b] > depth[a]) {
+            b = idom[b];
+        }
+        while (a != b) {
+            a = idom[a];
+            b = idom[b];
+        }
+        return a;
+    }
+
+    int[] children(final int index) {
+        return children[index];
+    }
+
+    int[] dominanceFrontier(final int index) {
+        if (frontiers == null) {
+            computeFrontiers();
+        }
+        return frontiers[index];
+    }
+
+    private void computeImmediateDominators() {
+        final int size = nodes.size();
+
+        final int[][] successors = invert(predecessors);
+
+        // Depth first spanning tree, vertex numbers are DFS numbers from here on
+        final int[] dfsNumber = new int[size];
+        Arrays.fill(dfsNumber, -1);
+        final int[] vertex = new int[size];
+        final int[] parent = new int[size];
+        final int[] stack = new int[size];
+        final int[] nextSuccessor = new int[size];
+        int count = 0;
+        int top = 0;
+        dfsNumber[0] = count;
+        vertex[count++] = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            final int v = stack[top - 1];
+            if (nextSuccessor[v] < successors[v].length) {
+                final int w = successors[v][nextSuccessor[v]++];
+                if (dfsNumber[w] < 0) {
+                    dfsNumber[w] = count;
+                    vertex[count] = w;
+                    parent[count] = dfsNumber[v];
+                    count++;
+                    stack[top++] = w;
+                }
+            } else {
+                top--;
+            }
+        }
+
+        final int[] semi = new int[count];
+        final int[] label = new int[count];
+        final int[] ancestor = new int[count];
+        final int[] dom = new int[count];
+        for (int i = 0; i < count; i++) {
+            semi[i] = i;
+            label[i] = i;
+            ancestor[i] = -1;
+        }
+
+        for (int w = count - 1; w > 0; w--) {
+            for (final int pred : predecessors[vertex[w]]) {
+                final int v = dfsNumber[pred];
+                if (v < 0) {
+                    // Unreachable predecessor
+                    continue;
+                }
+                final int u = eval(v, ancestor, label, semi, stack);
+                if (semi[u] < semi[w]) {
+                    semi[w] = semi[u];
+                }
+            }
+            ancestor[w] = parent[w];
+        }
+
+        dom[0] = 0;
+        for (int w = 1; w < count; w++) {
+            int d = parent[w];
+            while (d > semi[w]) {
+                d = dom[d];
+            }
+            dom[w] = d;
+        }
+
+        Arrays.fill(idom, -1);
+        for (int w = 0; w < count; w++) {
+            idom[vertex[w]] = vertex[dom[w]];
+        }
+    }
+
+    private static int eval(final int v, final int[] ancestor, final int[] label, final int[] semi, final int[] stack) {
+        if (ancestor[v] < 0) {
+            return v;
+        }
+        // Iterative path compression, so deep trees do not overflow the call stack
+        int top = 0;
+        int x = v;
+        while (ancestor[ancestor[x]] >= 0) {
+            stack[top++] = x;
+            x = ancestor[x];
+        }
+        while (top > 0) {
+            final int y = stack[--top];
+            final int a = ancestor[y];
+            if (semi[label[a]] < semi[label[y]]) {
+                label[y] = label[a];
+            }
+            ancestor[y] = ancestor[a];
+        }
+        return label[v];
+    }
+
+    private void numberTree() {
+        final int size = nodes.size();
+        final int[] childCount = new int[size];
+        for (int i = 1; i < size; i++) {
+            if (idom[i] >= 0) {
+                childCount[idom[i]]++;
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            children[i] = new int[childCount[i]];
+            childCount[i] = 0;
+        }
+        // Children are kept in the order of the nodes list
+        for (int i = 1; i < size; i++) {
+            if (idom[i] >= 0) {
+                children[idom[i]][childCount[idom[i]]++] = i;
+            }
+        }
+
+        final int[] stack = new int[size];
+        final int[] nextChild = new int[size];
+        int counter = 0;
+        int top = 0;
+        stack[top++] = 0;
+        preNumber[0] = counter++;
+        while (top > 0) {
+            final int v = stack[top - 1];
+            if (nextChild[v] < children[v].length) {
+                final int c = children[v][nextChild[v]++];
+                depth[c] = depth[v] + 1;
+                preNumber[c] = counter++;
+                stack[top++] = c;
+            } else {
+                postNumber[v] = counter++;
+                top--;
+            }
+        }
+    }
+
+    private void computeFrontiers() {
+        final int size = nodes.size();
+        final List<List<Integer>> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            result.add(new ArrayList<>());
+        }
+        for (int b = 0; b < size; b++) {
+            // The entry has an implicit incoming edge, so a single back edge already makes it a join point
+            if (idom[b] < 0 || predecessors[b].length < (b == 0 ? 1 : 2)) {
+                continue;
+            }
+            for (final int p : predecessors[b]) {
+                int runner = p;
+                while (idom[runner] >= 0 && runner != idom[b]) {
+                    final List<Integer> frontier = result.get(runner);
+                    if (frontier.isEmpty() || frontier.getLast() != b) {
+                        frontier.add(b);
+                    }
+                    runner = idom[runner];
+                }
+            }
+        }
+        final int[][] frontierArrays = new int[size][];
+        for (int i = 0; i < size; i++) {
+            frontierArrays[i] = result.get(i).stream().mapToInt(Integer::intValue).toArray();
+        }
+        frontiers = frontierArrays;
+    }
+
+    /**
+     * Returns the reverse post order of a depth first traversal starting at the given node.
+     */
+    static List<Node> reversePostOrder(final Node start, final Function<Node, List<Node>> successorFunction) {
+        final List<Node> finished = new ArrayList<>();
+        final BitSet visited = new BitSet();
+        final Deque<Iterator<Node>> stack = new ArrayDeque<>();
+        final Deque<Node> path = new ArrayDeque<>();
+        visited.set(start.id());
+        path.push(start);
+        stack.push(successorFunction.apply(start).iterator());
+        while (!stack.isEmpty()) {
+            final Iterator<Node> successors = stack.peek();
+            if (successors.hasNext()) {
+                final Node successor = successors.next();
+                if (!visited.get(successor.id)) {
+                    visited.set(successor.id);
+                    path.push(successor);
+                    stack.push(successorFunction.apply(successor).iterator());
+                }
+            } else {
+                stack.pop();
+                finished.add(path.pop());
+            }
+        }
+        Collections.reverse(finished);
+        return finished;
+    }
+
+    private static int[][] invert(final int[][] edges) {
+        final int size = edges.length;
+        final int[] count = new int[size];
+        for (final int[] targets : edges) {
+            for (final int target : targets) {
+                count[target]++;
+            }
+        }
+        final int[][] result = new int[size][];
+        for (int i = 0; i < size; i++) {
+            result[i] = new int[count[i]];
+            count[i] = 0;
+        }
+        for (int source = 0; source < size; source++) {
+            for (final int target : edges[source]) {
+                result[target][count[target]++] = source;
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,82 @@
+package de.mirkosertic.metair.ir;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * Sorted index over the protected ranges of an exception table. Ranges are given as code element indices with an
+ * inclusive start and an exclusive end.
+ * <p>
+ * The ranges are kept sorted by start and by end, so the ranges starting or ending at an index are found by binary
+ * search in logarithmic time in the number of ranges.
+ */
+final class ExceptionRanges<T> {
+
+    private static final ExceptionRanges<?> EMPTY = new ExceptionRanges<>(List.of(), t -> 0, t -> 0);
+
+    private final List<T> byStart;
+    private final int[] starts;
+    private final List<T> byEnd;
+    private final int[] sortedEnds;
+
+    ExceptionRanges(final List<T> ranges, final ToIntFunction<T> start, final ToIntFunction<T> end) {
+        byStart = new ArrayList<>(ranges);
+        byStart.sort(Comparator.comparingInt(start));
+        starts = new int[byStart.size()];
+        for (int i = 0; i < starts.length; i++) {
+            starts[i] = start.applyAsInt(byStart.get(i));
+            final int rangeEnd = end.applyAsInt(byStart.get(i));
+            if (rangeEnd < starts[i]) {
+                throw new IllegalArgumentException("Range ends at " + rangeEnd + " before it starts at " + starts[i]);
+            }
+        }
+
+        byEnd = new ArrayList<>(ranges);
+        byEnd.sort(Comparator.comparingInt(end));
+        sortedEnds = new int[byEnd.size()];
+        for (int i = 0; i < sortedEnds.length; i++) {
+            sortedEnds[i] = end.applyAsInt(byEnd.get(i));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> ExceptionRanges<T> empty() {
+        return (ExceptionRanges<T>) EMPTY;
+    }
+
+    /**
+     * Returns all ranges starting at the given index.
+     */
+    List<T> startingAt(final int index) {
+        return sublist(byStart, starts, index);
+    }
+
+    /**
+     * Returns all ranges ending at the given index, that is the index is the first one not covered anymore.
+     */
+    List<T> endingAt(final int index) {
+        return sublist(byEnd, sortedEnds, index);
+    }
+
+    private static <T> List<T> sublist(final List<T> sorted, final int[] keys, final int index) {
+        final int from = lowerBound(keys, index);
+        final int to = lowerBound(keys, index + 1);
+        return from == to ? List.of() : sorted.subList(from, to);
+    }
+
+    private static int lowerBound(final int[] keys, final int value) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (keys[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -14,7 +14,7 @@ public class Extend extends Value {
 
         this.extendType = extendType;
 
-        use(value, new ArgumentUse(0));
+        use(value, ArgumentUse.of(0));
     }
 
     @Override
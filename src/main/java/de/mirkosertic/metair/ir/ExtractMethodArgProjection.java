@@ -8,7 +8,7 @@ public class ExtractMethodArgProjection extends ConstantValue implements Project
         super(type);
         this.index = index;
 
-        use(source, new ArgumentUse(index));
+        use(source, ArgumentUse.of(index));
     }
 
     public int index() {
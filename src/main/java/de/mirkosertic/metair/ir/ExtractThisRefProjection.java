@@ -5,7 +5,7 @@ public class ExtractThisRefProjection extends ConstantValue implements Projectio
     ExtractThisRefProjection(final IRType.MetaClass type, final Method source) {
         super(type);
 
-        use(source, new ArgumentUse(0));
+        use(source, ArgumentUse.of(0));
     }
 
     @Override
@@ -16,6 +16,8 @@ public class Frame {
     protected Status in;
     protected Status out;
     protected List<StackMapFrameInfo> verificationInfos;
+    // True if this frame is not the first one of its basic block
+    protected boolean continuesBlock;
 
     public Frame(final int elementIndex, final CodeElement codeElement) {
         this.predecessors = new ArrayList<>();
@@ -25,7 +27,8 @@ public class Frame {
     }
 
     public Status copyIncomingToOutgoing() {
-        out = in.copy();
+        // Inside a basic block the status is handed over from frame to frame without copying
+        out = continuesBlock ? in : in.copy();
         return out;
     }
 }
\ No newline at end of file
@@ -15,7 +15,7 @@ public class GetField extends Value {
         this.owner = owner;
         this.fieldName = fieldName;
 
-        use(source, new ArgumentUse(0));
+        use(source, ArgumentUse.of(0));
     }
 
     @Override
@@ -8,7 +8,7 @@ public class GetStatic extends Value {
         super(fieldType);
         this.fieldName = fieldName;
 
-        use(source, new ArgumentUse(0));
+        use(source, ArgumentUse.of(0));
     }
 
     @Override
@@ -0,0 +1,230 @@
+package de.mirkosertic.metair.ir;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Global value numbering over side effect free nodes.
+ * <p>
+ * Nodes of the same class, type and payload using the same operands compute the same value, so all but one of them
+ * are replaced. A node is only replaced by a node available at a dominating control node, so the value is still
+ * available everywhere it is used. Nodes pinned to a control node, like constants defined by a label, are available
+ * at their pin. Floating nodes are placed at the common dominator of the control nodes using them, as the code
+ * generators declare a shared value where it is first used.
+ */
+public class GlobalValueNumbering implements Pass {
+
+    private record Key(Class<?> nodeClass, IRType<?> type, Object payload, List<Node.UseEdge> operands) {
+    }
+
+    private record Numbering(Key key, Node pin) {
+    }
+
+    private record Candidate(Node node, Node pin) {
+    }
+
+    // Marks nodes without any payload besides their class, type and operands
+    private static final Object NO_PAYLOAD = new Object();
+
+    @Override
+    public Changes run(final Method method, final PassManager.Analyses analyses) {
+        final List<Node> order = analyses.get(Analysis.TOPOLOGICAL_ORDER);
+        final CFGDominatorTree dominators = analyses.get(Analysis.CFG_DOMINATORS);
+
+        // Users come after their operands in topological order, so they are placed first when walking backwards
+        final Node[] placements = new Node[method.graphSize()];
+        for (int i = order.size() - 1; i >= 0; i--) {
+            final Node node = order.get(i);
+            placements[node.id] = placementOf(node, dominators, placements);
+        }
+
+        final Map<Key, List<Candidate>> table = new HashMap<>();
+        final Map<Node, Key> keys = new HashMap<>();
+        int replaced = 0;
+
+        // Operands come first in topological order, so they are already numbered when their users are visited
+        for (final Node node : order) {
+            final Numbering numbering = numberingOf(node);
+            if (numbering == null) {
+                continue;
+            }
+            final Node pin = numbering.pin;
+            final Node available = availableAt(node, pin, placements);
+            if (available == null) {
+                // Unused or not reachable, so there is nothing to share
+                continue;
+            }
+
+            final List<Candidate> candidates = table.computeIfAbsent(numbering.key, key -> new ArrayList<>());
+            Node replacement = null;
+            for (final Iterator<Candidate> it = candidates.iterator(); it.hasNext() && replacement == null; ) {
+                final Candidate candidate = it.next();
+                if ((candidate.pin == null) != (pin == null)) {
+                    continue;
+                }
+                final Node candidateAvailable = availableAt(candidate.node, candidate.pin, placements);
+                if (candidateAvailable == null) {
+                    continue;
+                }
+                if (dominators.dominates(candidateAvailable, available)) {
+                    replacement = candidate.node;
+                } else if (dominators.dominates(available, candidateAvailable)) {
+                    // The new node is available earlier, so it replaces the candidate
+                    it.remove();
+                    keys.remove(candidate.node);
+                    candidate.node.replaceWith(node);
+                    replaced++;
+                    updatePlacements(node, numbering.key, dominators, placements);
+                    // Numbered users of the candidate now use the new node, so their keys changed
+                    rekeyUsers(node, table, keys);
+                }
+            }
+            if (replacement != null) {
+                node.replaceWith(replacement);
+                replaced++;
+                updatePlacements(replacement, numbering.key, dominators, placements);
+            } else {
+                candidates.add(new Candidate(node, pin));
+                keys.put(node, numbering.key);
+            }
+        }
+
+        return replaced > 0 ? Changes.DATA_FLOW : Changes.NONE;
+    }
+
+    /**
+     * Returns the key and the pin of a node, or null if the node is not numbered.
+     */
+    private static Numbering numberingOf(final Node node) {
+        if (!(node instanceof final Value value) || !value.sideeffectFree() || node instanceof Projection || node.uses.size() == 0) {
+            return null;
+        }
+        final Object payload = payloadOf(value);
+        if (payload == null) {
+            return null;
+        }
+
+        Node pin = null;
+        final List<Node.UseEdge> operands = new ArrayList<>();
+        for (int i = 0; i < node.uses.size(); i++) {
+            final Use use = node.uses.use(i);
+            switch (use) {
+                case final DefinedByUse _, final ControlFlowUse _ -> {
+                    if (pin != null && pin != node.uses.node(i)) {
+                        return null;
+                    }
+                    pin = node.uses.node(i);
+                }
+                case final MemoryUse _ -> {
+                    return null;
+                }
+                default -> operands.add(node.uses.get(i));
+            }
+        }
+        return new Numbering(new Key(node.getClass(), value.type, payload, operands), pin);
+    }
+
+    private static Node availableAt(final Node node, final Node pin, final Node[] placements) {
+        return pin != null ? pin : placements[node.id];
+    }
+
+    /**
+     * Returns the control node a node is evaluated at. This is the node itself for control nodes, and the common
+     * dominator of all uses for values. Values used by a PHI are used at the end of the incoming control flow. Returns
+     * null for values without uses or with uses outside the control flow graph.
+     */
+    private static Node placementOf(final Node node, final CFGDominatorTree dominators, final Node[] placements) {
+        if (dominators.rpoIndexOf(node) >= 0) {
+            return node;
+        }
+        Node placement = null;
+        for (final Node user : node.usedBy) {
+            final UseList uses = user.uses;
+            for (int i = 0; i < uses.size(); i++) {
+                if (uses.node(i) != node) {
+                    continue;
+                }
+                final Node site = uses.use(i) instanceof final PHIUse phiUse ? phiUse.origin : placements[user.id];
+                if (site == null) {
+                    return null;
+                }
+                placement = placement == null ? site : dominators.commonDominator(placement, site);
+                if (placement == null) {
+                    return null;
+                }
+            }
+        }
+        return placement;
+    }
+
+    /**
+     * Recomputes the placements after a node was replaced by the given survivor. The operands of the replaced node
+     * lost a user, so they and their own operands may move to a dominated control node.
+     */
+    private static void updatePlacements(final Node survivor, final Key key, final CFGDominatorTree dominators, final Node[] placements) {
+        final Deque<Node> worklist = new ArrayDeque<>();
+        worklist.add(survivor);
+        for (final Node.UseEdge operand : key.operands) {
+            worklist.add(operand.node());
+        }
+        while (!worklist.isEmpty()) {
+            final Node node = worklist.poll();
+            final Node placement = placementOf(node, dominators, placements);
+            if (placement == placements[node.id]) {
+                continue;
+            }
+            placements[node.id] = placement;
+            final UseList uses = node.uses;
+            for (int i = 0; i < uses.size(); i++) {
+                if (uses.use(i) instanceof DataFlowUse) {
+                    worklist.add(uses.node(i));
+                }
+            }
+        }
+    }
+
+    private static void rekeyUsers(final Node node, final Map<Key, List<Candidate>> table, final Map<Node, Key> keys) {
+        for (final Node user : node.usedBy) {
+            final Key oldKey = keys.get(user);
+            if (oldKey == null) {
+                continue;
+            }
+            final List<Candidate> candidates = table.get(oldKey);
+            candidates.removeIf(t -> t.node == user);
+            if (candidates.isEmpty()) {
+                table.remove(oldKey);
+            }
+            final Numbering numbering = numberingOf(user);
+            table.computeIfAbsent(numbering.key, key -> new ArrayList<>()).add(new Candidate(user, numbering.pin));
+            keys.put(user, numbering.key);
+        }
+    }
+
+    /**
+     * Returns what distinguishes the value from other values of the same class, type and operands, or null if the
+     * value is not numbered.
+     */
+    private static Object payloadOf(final Value value) {
+        return switch (value) {
+            case final PrimitiveInt v -> v.value;
+            case final PrimitiveLong v -> v.value;
+            case final PrimitiveFloat v -> v.value;
+            case final PrimitiveDouble v -> v.value;
+            case final StringConstant v -> v.value;
+            case final Convert v -> v.from;
+            case final Extend v -> v.extendType;
+            case final NumericCompare v -> List.of(v.mode, v.compareType);
+            case final NumericCondition v -> v.operation;
+            case final ReferenceCondition v -> v.operation;
+            case final ReferenceTest v -> v.operation;
+            case final Add _, final Sub _, final Mul _, final Negate _, final Truncate _, final InstanceOf _, final Null _,
+                 final MethodHandle _, final MethodType _ -> NO_PAYLOAD;
+            default -> null;
+        };
+    }
+}
@@ -11,12 +11,8 @@ public class Goto extends Node {
     }
 
     public Node getJumpTarget() {
-        for (final Node user : usedBy) {
-            for (final UseEdge edge : user.uses) {
-                if (edge.node() == this && edge.use() instanceof ControlFlowUse) {
-                    return user;
-                }
-            }
+        for (final Node user : controlFlowUsers()) {
+            return user;
         }
         throw new IllegalStateException("Cannot find the jump target");
     }
@@ -0,0 +1,125 @@
+package de.mirkosertic.metair.ir;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Assigns dense integer ids to the nodes of a connected graph, usually all nodes of a {@link Method}.
+ * <p>
+ * A node joins the graph of the first node it is connected to, so ids reflect the creation order and can be used
+ * for deterministic ordering and as index into arrays or {@link java.util.BitSet}s. If two graphs get connected,
+ * the nodes of the smaller one are renumbered into the larger one.
+ * <p>
+ * The graph also counts its attached nodes, that is nodes with at least one incoming or outgoing edge, so the size of
+ * a graph can be measured without traversing it. The count is kept up to date by {@link UseList} and {@link Node}.
+ */
+final class Graph {
+
+    private int size;
+    private int attachedNodes;
+
+    /**
+     * Returns an upper bound of all node ids in this graph.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of nodes with at least one edge.
+     */
+    int attachedNodes() {
+        return attachedNodes;
+    }
+
+    void nodeAttached() {
+        attachedNodes++;
+    }
+
+    void nodeDetached() {
+        attachedNodes--;
+    }
+
+    void register(final Node node) {
+        if (node.isAttached()) {
+            node.graph.attachedNodes--;
+            attachedNodes++;
+        }
+        node.graph = this;
+        node.id = size++;
+    }
+
+    static void link(final Node user, final Node used) {
+        if (used.graph == null) {
+            if (user.graph == null) {
+                new Graph().register(used);
+            } else {
+                user.graph.register(used);
+                return;
+            }
+        }
+        if (user.graph == null) {
+            used.graph.register(user);
+        } else if (user.graph != used.graph) {
+            if (user.graph.size < used.graph.size) {
+                used.graph.adopt(user);
+            } else {
+                user.graph.adopt(used);
+            }
+        }
+    }
+
+    /**
+     * Renumbers all nodes connected to the given ones into a new graph, in the given order first. Disconnected nodes
+     * keep their old graph, so their ids can not clash with the new ones.
+     */
+    static void compact(final List<Node> nodes) {
+        final Graph graph = new Graph();
+        for (final Node node : nodes) {
+            if (node.graph != graph) {
+                graph.register(node);
+            }
+        }
+        final Deque<Node> workList = new ArrayDeque<>(nodes);
+        while (!workList.isEmpty()) {
+            final Node current = workList.pop();
+            for (final Node user : current.usedBy) {
+                if (user.graph != graph) {
+                    graph.register(user);
+                    workList.push(user);
+                }
+            }
+            for (int i = 0; i < current.uses.size(); i++) {
+                final Node used = current.uses.node(i);
+                if (used.graph != graph) {
+                    graph.register(used);
+                    workList.push(used);
+                }
+            }
+        }
+    }
+
+    private void adopt(final Node start) {
+        final Graph other = start.graph;
+        final Deque<Node> workList = new ArrayDeque<>();
+        workList.add(start);
+        register(start);
+        while (!workList.isEmpty()) {
+            final Node current = workList.pop();
+            for (final Node user : current.usedBy) {
+                if (user.graph == other) {
+                    register(user);
+                    workList.push(user);
+                }
+            }
+            for (int i = 0; i < current.uses.size(); i++) {
+                final Node used = current.uses.node(i);
+                if (used.graph == other) {
+                    register(used);
+                    workList.push(used);
+                }
+            }
+        }
+    }
+}
@@ -5,28 +5,51 @@ import java.lang.constant.ConstantDesc;
 import java.lang.constant.ConstantDescs;
 import java.lang.constant.MethodHandleDesc;
 import java.lang.constant.MethodTypeDesc;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.util.List;
-
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Types are interned, so there is exactly one instance for every type descriptor. They can be compared by identity
+ * and used as hash keys without allocating or comparing descriptors.
+ * <p>
+ * The intern tables only hold types weakly. A type nobody references anymore is dropped from its table, so analyzing
+ * many archives in one VM does not grow the tables forever. As long as a type is reachable, every lookup of its
+ * descriptor returns that very instance.
+ */
 public abstract class IRType<T extends ConstantDesc> {
 
-    public final static MetaClass CD_byte = new MetaClass(ConstantDescs.CD_byte);
-    public final static MetaClass CD_char = new MetaClass(ConstantDescs.CD_char);
-    public final static MetaClass CD_short = new MetaClass(ConstantDescs.CD_short);
-    public final static MetaClass CD_boolean = new MetaClass(ConstantDescs.CD_boolean);
-    public final static MetaClass CD_int = new MetaClass(ConstantDescs.CD_int);
-    public final static MetaClass CD_float = new MetaClass(ConstantDescs.CD_float);
-    public final static MetaClass CD_long = new MetaClass(ConstantDescs.CD_long);
-    public final static MetaClass CD_double = new MetaClass(ConstantDescs.CD_double);
+    // The intern tables must be initialized before the constants below. Initializing any of the nested types first
+    // initializes IRType, which interns the constants while the nested type is not yet initialized itself.
+    private static final InternTable<ClassDesc, MetaClass> INTERNED_CLASSES = new InternTable<>(MetaClass::new);
+    private static final InternTable<MethodTypeDesc, MethodType> INTERNED_METHOD_TYPES = new InternTable<>(MethodType::new);
+    private static final InternTable<MethodHandleDesc, MethodHandle> INTERNED_METHOD_HANDLES = new InternTable<>(MethodHandle::new);
+
+    public final static MetaClass CD_byte = MetaClass.of(ConstantDescs.CD_byte);
+    public final static MetaClass CD_char = MetaClass.of(ConstantDescs.CD_char);
+    public final static MetaClass CD_short = MetaClass.of(ConstantDescs.CD_short);
+    public final static MetaClass CD_boolean = MetaClass.of(ConstantDescs.CD_boolean);
+    public final static MetaClass CD_int = MetaClass.of(ConstantDescs.CD_int);
+    public final static MetaClass CD_float = MetaClass.of(ConstantDescs.CD_float);
+    public final static MetaClass CD_long = MetaClass.of(ConstantDescs.CD_long);
+    public final static MetaClass CD_double = MetaClass.of(ConstantDescs.CD_double);
 
-    public final static MetaClass CD_String = new MetaClass(ConstantDescs.CD_String);
-    public final static MetaClass CD_Object = new MetaClass(ConstantDescs.CD_Object);
+    public final static MetaClass CD_String = MetaClass.of(ConstantDescs.CD_String);
+    public final static MetaClass CD_Object = MetaClass.of(ConstantDescs.CD_Object);
 
-    public final static MetaClass CD_void = new MetaClass(ConstantDescs.CD_void);
+    public final static MetaClass CD_void = MetaClass.of(ConstantDescs.CD_void);
 
     protected final T type;
+    private final int hash;
 
-    public IRType(final T type) {
+    private IRType(final T type) {
         this.type = type;
+        // The hash of the descriptor keeps the iteration order of hashed collections stable between runs
+        this.hash = type.hashCode();
     }
 
     public T type() {
@@ -40,21 +63,81 @@ public abstract class IRType<T extends ConstantDesc> {
     public abstract MetaClass arrayType();
 
     @Override
-    public boolean equals(final Object obj) {
-        if (obj instanceof IRType<?>) {
-            return type.equals(((IRType<?>) obj).type);
+    public final boolean equals(final Object obj) {
+        return this == obj;
+    }
+
+    @Override
+    public final int hashCode() {
+        return hash;
+    }
+
+    /**
+     * Thread-safe table mapping descriptors to weakly referenced types.
+     */
+    static final class InternTable<K, V> {
+
+        private static final class Entry<K, V> extends WeakReference<V> {
+
+            private final K key;
+
+            private Entry(final K key, final V value, final ReferenceQueue<V> queue) {
+                super(value, queue);
+                this.key = key;
+            }
+        }
+
+        private final Map<K, Entry<K, V>> entries = new ConcurrentHashMap<>();
+        private final ReferenceQueue<V> cleared = new ReferenceQueue<>();
+        private final Function<K, V> factory;
+
+        InternTable(final Function<K, V> factory) {
+            this.factory = factory;
+        }
+
+        V intern(final K key) {
+            expungeCleared();
+            while (true) {
+                final Entry<K, V> entry = entries.get(key);
+                if (entry != null) {
+                    final V existing = entry.get();
+                    if (existing != null) {
+                        return existing;
+                    }
+                }
+                // The factory may intern other types, so it must not run inside a map operation
+                final V created = factory.apply(key);
+                final Entry<K, V> fresh = new Entry<>(key, created, cleared);
+                if (entry == null ? entries.putIfAbsent(key, fresh) == null : entries.replace(key, entry, fresh)) {
+                    return created;
+                }
+                // Another thread won the race, retry to return its instance
+            }
+        }
+
+        int size() {
+            expungeCleared();
+            return entries.size();
+        }
+
+        @SuppressWarnings("unchecked")
+        private void expungeCleared() {
+            Reference<? extends V> ref;
+            while ((ref = cleared.poll()) != null) {
+                final Entry<K, V> entry = (Entry<K, V>) ref;
+                entries.remove(entry.key, entry);
+            }
         }
-        return false;
     }
 
     public static class MetaClass extends IRType<ClassDesc> {
 
         public static MetaClass of(final ClassDesc type) {
-            return new MetaClass(type);
+            return INTERNED_CLASSES.intern(type);
         }
 
         public static MetaClass of(final Class<?> type) {
-            return new MetaClass(ClassDesc.of(type.getName()));
+            return of(type.describeConstable().orElseGet(() -> ClassDesc.of(type.getName())));
         }
 
         private MetaClass(final ClassDesc type) {
@@ -70,23 +153,31 @@ public abstract class IRType<T extends ConstantDesc> {
         }
 
         public MetaClass componentType() {
-            return new MetaClass(type.componentType());
+            return of(type.componentType());
         }
 
         public MetaClass arrayType() {
-            return new MetaClass(type.arrayType());
+            return of(type.arrayType());
         }
     }
 
     public static class MethodType extends IRType<MethodTypeDesc> {
 
+        public static MethodType of(final MethodTypeDesc type) {
+            return INTERNED_METHOD_TYPES.intern(type);
+        }
+
         private final MetaClass returnType;
         private final List<MetaClass> parameterTypes;
 
-        public MethodType(final MethodTypeDesc type, final MetaClass returnType, final List<MetaClass> parameterTypes) {
+        private MethodType(final MethodTypeDesc type) {
             super(type);
-            this.returnType = returnType;
-            this.parameterTypes = parameterTypes;
+            this.returnType = MetaClass.of(type.returnType());
+            final MetaClass[] parameterTypes = new MetaClass[type.parameterCount()];
+            for (int i = 0; i < parameterTypes.length; i++) {
+                parameterTypes[i] = MetaClass.of(type.parameterType(i));
+            }
+            this.parameterTypes = List.of(parameterTypes);
         }
 
         @Override
@@ -119,7 +210,11 @@ public abstract class IRType<T extends ConstantDesc> {
 
     public static class MethodHandle extends IRType<MethodHandleDesc> {
 
-        public MethodHandle(final MethodHandleDesc type) {
+        public static MethodHandle of(final MethodHandleDesc type) {
+            return INTERNED_METHOD_HANDLES.intern(type);
+        }
+
+        private MethodHandle(final MethodHandleDesc type) {
             super(type);
         }
 
@@ -0,0 +1,204 @@
+package de.mirkosertic.metair.ir;
+
+/**
+ * Factories for arithmetic nodes, which simplify the node before it is created.
+ * <p>
+ * Operations on constants are folded into a new constant, and algebraic identities like {@code x + 0},
+ * {@code x * 1} or {@code x ^ x} return an existing value. Folding only applies to constants defined by a node of
+ * the graph, as the folded constant is defined by the same node. Otherwise the node is created as is, including the
+ * type checks of its constructor.
+ */
+final class Idealizer {
+
+    private Idealizer() {
+    }
+
+    static Value add(final IRType.MetaClass type, final Value a, final Value b) {
+        final Node definer = definerOfConstants(type, a, b);
+        if (definer != null) {
+            final Value folded = switch (a) {
+                case final PrimitiveInt x when b instanceof final PrimitiveInt y -> definer.definePrimitiveInt(x.value + y.value);
+                case final PrimitiveLong x when b instanceof final PrimitiveLong y -> definer.definePrimitiveLong(x.value + y.value);
+                case final PrimitiveFloat x when b instanceof final PrimitiveFloat y -> definer.definePrimitiveFloat(x.value + y.value);
+                case final PrimitiveDouble x when b instanceof final PrimitiveDouble y -> definer.definePrimitiveDouble(x.value + y.value);
+                default -> null;
+            };
+            if (folded != null) {
+                return folded;
+            }
+        }
+        // x + 0 is no identity for floating point values, as -0.0 + 0.0 is 0.0
+        if (hasType(type, a, b)) {
+            if (isIntegral(b, 0)) {
+                return a;
+            }
+            if (isIntegral(a, 0)) {
+                return b;
+            }
+        }
+        return new Add(type, a, b);
+    }
+
+    static Value sub(final IRType.MetaClass type, final Value a, final Value b) {
+        final Node definer = definerOfConstants(type, a, b);
+        if (definer != null) {
+            final Value folded = switch (a) {
+                case final PrimitiveInt x when b instanceof final PrimitiveInt y -> definer.definePrimitiveInt(x.value - y.value);
+                case final PrimitiveLong x when b instanceof final PrimitiveLong y -> definer.definePrimitiveLong(x.value - y.value);
+                case final PrimitiveFloat x when b instanceof final PrimitiveFloat y -> definer.definePrimitiveFloat(x.value - y.value);
+                case final PrimitiveDouble x when b instanceof final PrimitiveDouble y -> definer.definePrimitiveDouble(x.value - y.value);
+                default -> null;
+            };
+            if (folded != null) {
+                return folded;
+            }
+        }
+        if (hasType(type, a, b) && isIntegral(b, 0)) {
+            return a;
+        }
+        return new Sub(type, a, b);
+    }
+
+    static Value mul(final IRType.MetaClass type, final Value a, final Value b) {
+        final Node definer = definerOfConstants(type, a, b);
+        if (definer != null) {
+            final Value folded = switch (a) {
+                case final PrimitiveInt x when b instanceof final PrimitiveInt y -> definer.definePrimitiveInt(x.value * y.value);
+                case final PrimitiveLong x when b instanceof final PrimitiveLong y -> definer.definePrimitiveLong(x.value * y.value);
+                case final PrimitiveFloat x when b instanceof final PrimitiveFloat y -> definer.definePrimitiveFloat(x.value * y.value);
+                case final PrimitiveDouble x when b instanceof final PrimitiveDouble y -> definer.definePrimitiveDouble(x.value * y.value);
+                default -> null;
+            };
+            if (folded != null) {
+                return folded;
+            }
+        }
+        if (hasType(type, a, b)) {
+            if (isIntegral(b, 1)) {
+                return a;
+            }
+            if (isIntegral(a, 1)) {
+                return b;
+            }
+        }
+        return new Mul(type, a, b);
+    }
+
+    /**
+     * Creates a bit operation. The scope defines the constant zero {@code x ^ x} is replaced with.
+     */
+    static Value bitOperation(final IRType.MetaClass type, final BitOperation.Operation operation, final Value a, final Value b, final Node scope) {
+        final Node definer = definerOfConstants(type, a, b);
+        if (definer != null) {
+            final Value folded = switch (a) {
+                case final PrimitiveInt x when b instanceof final PrimitiveInt y -> definer.definePrimitiveInt(switch (operation) {
+                    case AND -> x.value & y.value;
+                    case OR -> x.value | y.value;
+                    case XOR -> x.value ^ y.value;
+                    case SHL -> x.value << y.value;
+                    case SHR -> x.value >> y.value;
+                    case USHR -> x.value >>> y.value;
+                });
+                case final PrimitiveLong x when b instanceof final PrimitiveLong y -> definer.definePrimitiveLong(switch (operation) {
+                    case AND -> x.value & y.value;
+                    case OR -> x.value | y.value;
+                    case XOR -> x.value ^ y.value;
+                    case SHL -> x.value << y.value;
+                    case SHR -> x.value >> y.value;
+                    case USHR -> x.value >>> y.value;
+                });
+                default -> null;
+            };
+            if (folded != null) {
+                return folded;
+            }
+        }
+        if (hasType(type, a, b)) {
+            if (a == b) {
+                switch (operation) {
+                    case AND, OR -> {
+                        return a;
+                    }
+                    case XOR -> {
+                        if (type.equals(IRType.CD_int)) {
+                            return scope.definePrimitiveInt(0);
+                        }
+                        if (type.equals(IRType.CD_long)) {
+                            return scope.definePrimitiveLong(0L);
+                        }
+                    }
+                    default -> {
+                    }
+                }
+            }
+            // Or, xor and all shifts with zero keep the other value
+            if (isIntegral(b, 0) && operation != BitOperation.Operation.AND) {
+                return a;
+            }
+            if (isIntegral(a, 0) && (operation == BitOperation.Operation.OR || operation == BitOperation.Operation.XOR)) {
+                return b;
+            }
+        }
+        return new BitOperation(type, operation, a, b);
+    }
+
+    static Value convert(final IRType.MetaClass to, final Value a, final IRType.MetaClass from) {
+        final Node definer = a.type.equals(from) ? definerOfConstant(a) : null;
+        if (definer != null) {
+            // Every conversion is done from the original value, so there is no double rounding
+            final Value folded = switch (a) {
+                case final PrimitiveInt x -> constant(definer, to, x.value, x.value, x.value, x.value);
+                case final PrimitiveLong x -> constant(definer, to, (int) x.value, x.value, x.value, x.value);
+                case final PrimitiveFloat x -> constant(definer, to, (int) x.value, (long) x.value, x.value, x.value);
+                case final PrimitiveDouble x -> constant(definer, to, (int) x.value, (long) x.value, (float) x.value, x.value);
+                default -> null;
+            };
+            if (folded != null) {
+                return folded;
+            }
+        }
+        return new Convert(to, a, from);
+    }
+
+    private static Value constant(final Node definer, final IRType.MetaClass type, final int intValue, final long longValue, final float floatValue, final double doubleValue) {
+        if (type.equals(IRType.CD_int)) {
+            return definer.definePrimitiveInt(intValue);
+        }
+        if (type.equals(IRType.CD_long)) {
+            return definer.definePrimitiveLong(longValue);
+        }
+        if (type.equals(IRType.CD_float)) {
+            return definer.definePrimitiveFloat(floatValue);
+        }
+        if (type.equals(IRType.CD_double)) {
+            return definer.definePrimitiveDouble(doubleValue);
+        }
+        return null;
+    }
+
+    private static boolean hasType(final IRType.MetaClass type, final Value a, final Value b) {
+        return a.type.equals(type) && b.type.equals(type);
+    }
+
+    private static boolean isIntegral(final Value value, final long expected) {
+        return switch (value) {
+            case final PrimitiveInt x -> x.value == expected;
+            case final PrimitiveLong x -> x.value == expected;
+            default -> false;
+        };
+    }
+
+    /**
+     * Returns the node defining the first value, if both values are constants of the given type defined by a node.
+     */
+    private static Node definerOfConstants(final IRType.MetaClass type, final Value a, final Value b) {
+        if (!hasType(type, a, b) || definerOfConstant(b) == null) {
+            return null;
+        }
+        return definerOfConstant(a);
+    }
+
+    private static Node definerOfConstant(final Value value) {
+        return value instanceof PrimitiveValue ? value.definedBy() : null;
+    }
+}
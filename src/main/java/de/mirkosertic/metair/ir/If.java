@@ -6,7 +6,7 @@ public class If extends ConditionalNode {
     public static final String FALSE = "false";
 
     If(final Value condition) {
-        use(condition, new ArgumentUse(0));
+        use(condition, ArgumentUse.of(0));
 
         registerAs(TRUE, controlFlowsTo(new ExtractControlFlowProjection(TRUE), FlowType.FORWARD));
         registerAs(FALSE, controlFlowsTo(new ExtractControlFlowProjection(FALSE), FlowType.FORWARD));
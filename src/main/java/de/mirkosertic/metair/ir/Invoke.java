@@ -34,9 +34,9 @@ public abstract class Invoke extends Value {
         this.typeDesc = methodTypeDesc;
 
         int index = 0;
-        use(target, new ArgumentUse(index++));
+        use(target, ArgumentUse.of(index++));
         for (final Value v : arguments) {
-            use(v, new ArgumentUse(index++));
+            use(v, ArgumentUse.of(index++));
         }
     }
 }
@@ -0,0 +1,147 @@
+package de.mirkosertic.metair.ir;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads classes from a memory-mapped jar file.
+ * <p>
+ * The central directory is parsed once directly from the mapping to build an index from class name to entry.
+ * Loading a class then is a bulk copy of a stored entry or a single inflate call for a deflated one, without any
+ * stream, URL or {@link java.util.zip.ZipFile} overhead. Zip64 archives are not supported.
+ */
+public class JarClassFileSource implements ClassFileSource {
+
+    private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+    private static final int CENTRAL_DIRECTORY_SIGNATURE = 0x02014b50;
+    private static final int CENTRAL_DIRECTORY_HEADER_SIZE = 46;
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int LOCAL_HEADER_SIZE = 30;
+    private static final int METHOD_STORED = 0;
+    private static final int METHOD_DEFLATED = 8;
+
+    private record Entry(int method, int compressedSize, int size, int localHeaderOffset) {
+    }
+
+    private final Path jarFile;
+    private final MappedByteBuffer mapping;
+    private final Map<String, Entry> entries;
+
+    public JarClassFileSource(final Path jarFile) {
+        this.jarFile = jarFile;
+        try (final FileChannel channel = FileChannel.open(jarFile, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Jar file " + jarFile + " is too large to be mapped");
+            }
+            // The mapping stays valid after the channel is closed
+            this.mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            this.mapping.order(ByteOrder.LITTLE_ENDIAN);
+        } catch (final IOException e) {
+            throw new IllegalArgumentException("Cannot map jar file " + jarFile, e);
+        }
+        this.entries = readCentralDirectory();
+    }
+
+    private Map<String, Entry> readCentralDirectory() {
+        final int endOfCentralDirectory = findEndOfCentralDirectory();
+        final int numberOfEntries = Short.toUnsignedInt(mapping.getShort(endOfCentralDirectory + 10));
+        final long centralDirectoryOffset = Integer.toUnsignedLong(mapping.getInt(endOfCentralDirectory + 16));
+        if (numberOfEntries == 0xFFFF || centralDirectoryOffset == 0xFFFFFFFFL) {
+            throw new IllegalArgumentException("Zip64 jar file " + jarFile + " is not supported");
+        }
+
+        final Map<String, Entry> result = new HashMap<>();
+        int position = (int) centralDirectoryOffset;
+        for (int i = 0; i < numberOfEntries; i++) {
+            if (mapping.getInt(position) != CENTRAL_DIRECTORY_SIGNATURE) {
+                throw new IllegalArgumentException("Invalid central directory entry in " + jarFile + " at offset " + position);
+            }
+            final int method = Short.toUnsignedInt(mapping.getShort(position + 10));
+            final int compressedSize = mapping.getInt(position + 20);
+            final int size = mapping.getInt(position + 24);
+            final int nameLength = Short.toUnsignedInt(mapping.getShort(position + 28));
+            final int extraLength = Short.toUnsignedInt(mapping.getShort(position + 30));
+            final int commentLength = Short.toUnsignedInt(mapping.getShort(position + 32));
+            final int localHeaderOffset = mapping.getInt(position + 42);
+
+            final byte[] nameBytes = new byte[nameLength];
+            mapping.get(position + CENTRAL_DIRECTORY_HEADER_SIZE, nameBytes);
+            final String name = new String(nameBytes, StandardCharsets.UTF_8);
+            // Multi-release versions are ignored, only the base version of a class is used
+            if (name.endsWith(".class") && !name.startsWith("META-INF/")) {
+                final String className = name.substring(0, name.length() - ".class".length()).replace('/', '.');
+                result.put(className, new Entry(method, compressedSize, size, localHeaderOffset));
+            }
+
+            position += CENTRAL_DIRECTORY_HEADER_SIZE + nameLength + extraLength + commentLength;
+        }
+        return result;
+    }
+
+    private int findEndOfCentralDirectory() {
+        // The record is at the end of the file, followed by an optional comment of at most 65535 bytes
+        final int lowerBound = Math.max(0, mapping.capacity() - END_OF_CENTRAL_DIRECTORY_SIZE - 0xFFFF);
+        for (int position = mapping.capacity() - END_OF_CENTRAL_DIRECTORY_SIZE; position >= lowerBound; position--) {
+            if (mapping.getInt(position) == END_OF_CENTRAL_DIRECTORY_SIGNATURE) {
+                return position;
+            }
+        }
+        throw new IllegalArgumentException("Cannot find central directory in " + jarFile);
+    }
+
+    @Override
+    public byte[] load(final String className) {
+        final Entry entry = entries.get(className);
+        if (entry == null) {
+            return null;
+        }
+
+        final int localHeader = entry.localHeaderOffset();
+        if (mapping.getInt(localHeader) != LOCAL_HEADER_SIGNATURE) {
+            throw new IllegalArgumentException("Invalid local header for " + className + " in " + jarFile);
+        }
+        // Name and extra field length of the local header might differ from the central directory
+        final int nameLength = Short.toUnsignedInt(mapping.getShort(localHeader + 26));
+        final int extraLength = Short.toUnsignedInt(mapping.getShort(localHeader + 28));
+        final int data = localHeader + LOCAL_HEADER_SIZE + nameLength + extraLength;
+
+        final byte[] result = new byte[entry.size()];
+        switch (entry.method()) {
+            case METHOD_STORED -> mapping.get(data, result);
+            case METHOD_DEFLATED -> {
+                final Inflater inflater = new Inflater(true);
+                try {
+                    inflater.setInput(mapping.slice(data, entry.compressedSize()));
+                    int offset = 0;
+                    while (offset < result.length && !inflater.finished()) {
+                        final int inflated = inflater.inflate(result, offset, result.length - offset);
+                        if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                            break;
+                        }
+                        offset += inflated;
+                    }
+                    if (offset != result.length) {
+                        throw new IllegalArgumentException("Truncated entry for " + className + " in " + jarFile);
+                    }
+                } catch (final DataFormatException e) {
+                    throw new IllegalArgumentException("Cannot inflate entry for " + className + " in " + jarFile, e);
+                } finally {
+                    inflater.end();
+                }
+            }
+            default -> throw new IllegalArgumentException("Unsupported compression method " + entry.method() + " for " + className + " in " + jarFile);
+        }
+        return result;
+    }
+}
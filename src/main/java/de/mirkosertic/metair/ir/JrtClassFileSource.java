@@ -0,0 +1,63 @@
+package de.mirkosertic.metair.ir;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Reads classes from the module image of the running JDK.
+ * <p>
+ * The jrt file system memory-maps the image itself, so only a package to module index is built here to avoid
+ * searching all modules for every class.
+ */
+public class JrtClassFileSource implements ClassFileSource {
+
+    private final FileSystem fileSystem;
+    private final Map<String, String> moduleOfPackage;
+
+    public JrtClassFileSource() {
+        this(FileSystems.getFileSystem(URI.create("jrt:/")));
+    }
+
+    public JrtClassFileSource(final FileSystem fileSystem) {
+        this.fileSystem = fileSystem;
+        this.moduleOfPackage = new HashMap<>();
+        try (final Stream<Path> packages = Files.list(fileSystem.getPath("/packages"))) {
+            for (final Path packageDirectory : packages.toList()) {
+                try (final Stream<Path> modules = Files.list(packageDirectory)) {
+                    // A package always belongs to exactly one module inside of the image
+                    modules.findFirst().ifPresent(module -> moduleOfPackage.put(packageDirectory.getFileName().toString(), module.getFileName().toString()));
+                }
+            }
+        } catch (final IOException e) {
+            throw new IllegalArgumentException("Cannot read package index of module image", e);
+        }
+    }
+
+    @Override
+    public byte[] load(final String className) {
+        final int lastDot = className.lastIndexOf('.');
+        if (lastDot < 0) {
+            return null;
+        }
+        final String module = moduleOfPackage.get(className.substring(0, lastDot));
+        if (module == null) {
+            return null;
+        }
+        final Path file = fileSystem.getPath("/modules", module, className.replace('.', '/') + ".class");
+        try {
+            return Files.readAllBytes(file);
+        } catch (final NoSuchFileException e) {
+            return null;
+        } catch (final IOException e) {
+            throw new IllegalArgumentException("Cannot read class file " + file, e);
+        }
+    }
+}
@@ -13,7 +13,7 @@ public class LookupSwitch extends ConditionalNode {
             illegalArgument("Cannot use non int value of type " + TypeUtils.toString(value.type) + " as switch value");
         }
 
-        use(value, new ArgumentUse(0));
+        use(value, ArgumentUse.of(0));
 
         this.cases = cases;
         this.defaultLabel = defaultLabel;
@@ -0,0 +1,116 @@
+package de.mirkosertic.metair.ir;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Thread-safe cache computing every value exactly once.
+ * <p>
+ * Every key is mapped to its own future. The thread winning the race for a key computes the value outside
+ * of any map lock, all other threads asking for the same key wait for this future. Different keys never block
+ * each other, and the computing function is free to recurse into this or any other memoizer for different keys.
+ * <p>
+ * Only successful results are cached. If the computation fails, all threads waiting for it get the failure, and the
+ * next request computes the value again, so transient failures like a class path not ready yet are not permanent.
+ */
+final class Memoizer<K, V> {
+
+    private final Map<K, Task<V>> tasks;
+
+    Memoizer() {
+        this.tasks = new ConcurrentHashMap<>();
+    }
+
+    V computeIfAbsent(final K key, final Function<K, V> function) {
+        Task<V> task = tasks.get(key);
+        if (task == null) {
+            final Task<V> newTask = new Task<>(() -> function.apply(key));
+            task = tasks.putIfAbsent(key, newTask);
+            if (task == null) {
+                task = newTask;
+            }
+        }
+        return task.get();
+    }
+
+    int size() {
+        return tasks.size();
+    }
+
+    List<V> values() {
+        final List<V> result = new ArrayList<>();
+        for (final Task<V> task : tasks.values()) {
+            if (task.state() == Future.State.SUCCESS) {
+                result.add(task.resultNow());
+            }
+        }
+        return result;
+    }
+
+    static final class Task<V> {
+
+        private final Callable<V> callable;
+        private final AtomicReference<FutureTask<V>> future;
+        private volatile Thread runner;
+
+        Task(final Callable<V> callable) {
+            this.callable = callable;
+            this.future = new AtomicReference<>(newFuture());
+        }
+
+        private FutureTask<V> newFuture() {
+            return new FutureTask<>(() -> {
+                runner = Thread.currentThread();
+                try {
+                    return callable.call();
+                } finally {
+                    runner = null;
+                }
+            });
+        }
+
+        Future.State state() {
+            return future.get().state();
+        }
+
+        V resultNow() {
+            return future.get().resultNow();
+        }
+
+        V get() {
+            final FutureTask<V> future = this.future.get();
+            if (!future.isDone()) {
+                if (runner == Thread.currentThread()) {
+                    throw new IllegalStateException("Cyclic computation detected, the value is already computed by the current thread");
+                }
+                // Only the first caller actually runs the task, all others return immediately and wait below
+                future.run();
+            }
+            try {
+                return future.get();
+            } catch (final ExecutionException e) {
+                // Failures are not cached, the next call computes the value again
+                this.future.compareAndSet(future, newFuture());
+                final Throwable cause = e.getCause();
+                if (cause instanceof final RuntimeException re) {
+                    throw re;
+                }
+                if (cause instanceof final Error er) {
+                    throw er;
+                }
+                throw new IllegalStateException(cause);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for computation", e);
+            }
+        }
+    }
+}
@@ -14,6 +14,7 @@ public class Method extends TupleNode {
     public final List<Value> methodArguments;
 
     Method() {
+        new Graph().register(this);
         this.methodArguments = new ArrayList<>();
         this.methodtypeReferences = new HashMap<>();
         this.methodHandles = new HashMap<>();
@@ -10,6 +10,7 @@ import java.lang.classfile.Opcode;
 import java.lang.classfile.PseudoInstruction;
 import java.lang.classfile.TypeKind;
 import java.lang.classfile.attribute.CodeAttribute;
+import java.lang.classfile.attribute.StackMapFrameInfo;
 import java.lang.classfile.attribute.StackMapTableAttribute;
 import java.lang.classfile.instruction.ArrayLoadInstruction;
 import java.lang.classfile.instruction.ArrayStoreInstruction;
@@ -17,6 +18,7 @@ import java.lang.classfile.instruction.BranchInstruction;
 import java.lang.classfile.instruction.CharacterRange;
 import java.lang.classfile.instruction.ConstantInstruction;
 import java.lang.classfile.instruction.ConvertInstruction;
+import java.lang.classfile.instruction.DiscontinuedInstruction;
 import java.lang.classfile.instruction.ExceptionCatch;
 import java.lang.classfile.instruction.FieldInstruction;
 import java.lang.classfile.instruction.IncrementInstruction;
@@ -50,18 +52,15 @@ import java.lang.constant.MethodHandleDesc;
 import java.lang.constant.MethodTypeDesc;
 import java.lang.invoke.MethodHandles;
 import java.lang.reflect.AccessFlag;
-import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
-import java.util.Comparator;
-import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Optional;
-import java.util.Queue;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -70,23 +69,32 @@ public class MethodAnalyzer {
     private final ResolverContext resolverContext;
     private IRType.MetaClass owner;
     private MethodModel method;
-    private final Map<Label, Integer> labelToIndex;
     private final Method ir;
     private Frame[] frames;
     private List<Frame> codeModelTopologicalOrder;
     private IRType.MethodType methodTypeDesc;
     private StackMapTableAttribute stackMapTableAttribute;
-    private final Map<Label, List<TryCatchBlock>> tryCatchBlocks;
+    private ExceptionRanges<TryCatchBlock> tryCatchRanges;
+    // Only available while the method is analyzed
+    private Scratch scratch;
 
     MethodAnalyzer(final ResolverContext resolverContext) {
+        this(resolverContext, new Scratch());
+    }
+
+    private MethodAnalyzer(final ResolverContext resolverContext, final Scratch scratch) {
         this.resolverContext = resolverContext;
         this.ir = new Method();
-        this.labelToIndex = new HashMap<>();
-        this.tryCatchBlocks = new HashMap<>();
+        this.tryCatchRanges = ExceptionRanges.empty();
+        this.scratch = scratch;
     }
 
     MethodAnalyzer(final ResolverContext resolverContext, final IRType.MethodType methodTypeDesc) {
-        this(resolverContext);
+        this(resolverContext, methodTypeDesc, new Scratch());
+    }
+
+    private MethodAnalyzer(final ResolverContext resolverContext, final IRType.MethodType methodTypeDesc, final Scratch scratch) {
+        this(resolverContext, scratch);
         this.methodTypeDesc = methodTypeDesc;
     }
 
@@ -95,28 +103,90 @@ public class MethodAnalyzer {
     }
 
     public MethodAnalyzer(final ResolverContext resolverContext, final IRType.MetaClass owner, final MethodModel method) {
-        this(resolverContext, resolverContext.resolveMethodType(method.methodTypeSymbol()));
+        this(resolverContext, resolverContext.resolveMethodType(method.methodTypeSymbol()), Scratch.acquire());
         this.owner = owner;
         this.method = method;
 
         final Optional<CodeModel> optCode = method.code();
-        if (optCode.isPresent()) {
-            try {
+        try {
+            if (optCode.isPresent()) {
                 final CodeModel code = optCode.get();
 
                 stackMapTableAttribute = code.findAttribute(Attributes.stackMapTable()).orElse(null);
+                if (stackMapTableAttribute != null) {
+                    for (final StackMapFrameInfo frameInfo : stackMapTableAttribute.entries()) {
+                        scratch.stackMapFrames.put(frameInfo.target(), frameInfo);
+                    }
+                }
 
-                step1PrepareTryCatchBlocks(code);
-                step2AnalyzeCFG(code);
-                step3ComputeTopologicalOrder();
-                step4ComputeFrameDominators();
-                step5FollowCFGAndInterpret(code);
-                step6RemoveSingularPHIs(code);
+                if (isSingleBlock(code)) {
+                    // Nothing to merge or to order, so the CFG and dominator analysis is not needed
+                    step2To4LinearFrames(code);
+                    step5FollowCFGAndInterpret(code);
+                } else {
+                    step1PrepareTryCatchBlocks(code);
+                    step2AnalyzeCFG(code);
+                    step3ComputeTopologicalOrder();
+                    step4ComputeFrameDominators();
+                    step5FollowCFGAndInterpret(code);
+                    step6RemoveSingularPHIs(code);
+                }
+            }
+        } catch (final IllegalParsingStateException ex) {
+            throw ex;
+        } catch (final RuntimeException ex) {
+            throw new IllegalParsingStateException(this, ex.getMessage(), ex);
+        } finally {
+            scratch.release();
+            scratch = null;
+        }
+    }
+
+    /**
+     * Returns true if the code has no exception handlers and no instruction transferring control to anything but
+     * the following instruction, so it forms a single basic block up to the first return or throw.
+     */
+    static boolean isSingleBlock(final CodeModel code) {
+        if (!code.exceptionHandlers().isEmpty()) {
+            return false;
+        }
+        for (final CodeElement element : code) {
+            switch (element) {
+                case final BranchInstruction _, final LookupSwitchInstruction _, final TableSwitchInstruction _, final DiscontinuedInstruction _ -> {
+                    return false;
+                }
+                case final ReturnInstruction _, final ThrowInstruction _ -> {
+                    return true;
+                }
+                default -> {
+                }
+            }
+        }
+        return true;
+    }
 
-            } catch (final IllegalParsingStateException ex) {
-                throw ex;
-            } catch (final RuntimeException ex) {
-                throw new IllegalParsingStateException(this, ex.getMessage(), ex);
+    /**
+     * Replaces step 2 to 4 for a single basic block. Every frame follows its predecessor, which is also its
+     * immediate dominator. Code after the first return or throw is unreachable and gets no frame.
+     */
+    private void step2To4LinearFrames(final CodeModel code) {
+        final List<CodeElement> codeElements = code.elementList();
+        frames = new Frame[codeElements.size()];
+        codeModelTopologicalOrder = new ArrayList<>();
+        for (int i = 0; i < frames.length; i++) {
+            final Frame frame = new Frame(i, codeElements.get(i));
+            if (i == 0) {
+                frame.immediateDominator = frame;
+            } else {
+                frame.predecessors.add(new FrameCFGEdge(i - 1, FrameNamedProjection.DEFAULT, FlowType.FORWARD));
+                frame.continuesBlock = true;
+                frame.immediateDominator = frames[i - 1];
+            }
+            frame.indexInTopologicalOrder = i;
+            frames[i] = frame;
+            codeModelTopologicalOrder.add(frame);
+            if (frame.codeElement instanceof ReturnInstruction || frame.codeElement instanceof ThrowInstruction) {
+                break;
             }
         }
     }
@@ -124,7 +194,7 @@ public class MethodAnalyzer {
     private void step1PrepareTryCatchBlocks(final CodeModel code) {
         for (final ExceptionCatch exceptionHandler : code.exceptionHandlers()) {
             if (exceptionHandler.tryStart() != exceptionHandler.handler()) {
-                final List<TryCatchBlock> blocks = tryCatchBlocks.computeIfAbsent(exceptionHandler.tryStart(), key -> new ArrayList<>());
+                final List<TryCatchBlock> blocks = scratch.tryCatchBlocks.computeIfAbsent(exceptionHandler.tryStart(), key -> new ArrayList<>());
 
                 // Ad if not already where
                 TryCatchBlock blockToModify = null;
@@ -208,201 +278,130 @@ public class MethodAnalyzer {
     private void step2AnalyzeCFG(final CodeModel code) {
 
         final List<CodeElement> codeElements = code.elementList();
+        final int size = codeElements.size();
 
-        frames = new Frame[codeElements.size()];
+        frames = new Frame[size];
         frames[0] = new Frame(0, codeElements.getFirst());
 
         // We first need to map the labels to the instruction index
-        for (int i = 0; i < codeElements.size(); i++) {
+        for (int i = 0; i < size; i++) {
             if (codeElements.get(i) instanceof final LabelTarget labelTarget) {
                 final Label label = labelTarget.label();
-                if (labelToIndex.containsKey(label)) {
-                    illegalState("Duplicate label " + label + ", already found at " + labelToIndex.get(label) + " and now at " + i);
+                if (scratch.labelToIndex.containsKey(label)) {
+                    illegalState("Duplicate label " + label + ", already found at " + scratch.labelToIndex.get(label) + " and now at " + i);
                 }
-                labelToIndex.put(label, i);
+                scratch.labelToIndex.put(label, i);
             }
         }
-        final Queue<CFGAnalysisJob> jobs = new ArrayDeque<>();
-        final Set<Integer> visited = new HashSet<>();
-        jobs.add(new CFGAnalysisJob(0, new ArrayList<>()));
 
-        while (!jobs.isEmpty()) {
-            final CFGAnalysisJob job = jobs.poll();
-            if (visited.contains(job.startIndex)) {
+        // All try-catch blocks are indexed by their range, so blocks starting or ending at a label are found without
+        // searching through all of them
+        final List<TryCatchBlock> allTryCatchBlocks = new ArrayList<>();
+        for (final List<TryCatchBlock> blocks : scratch.tryCatchBlocks.values()) {
+            for (final TryCatchBlock block : blocks) {
+                if (!scratch.labelToIndex.containsKey(block.start) || !scratch.labelToIndex.containsKey(block.end)) {
+                    illegalState("Try-catch block from " + block.start + " to " + block.end + " is not mapped to an index");
+                }
+                allTryCatchBlocks.add(block);
+            }
+        }
+        tryCatchRanges = new ExceptionRanges<>(allTryCatchBlocks, t -> scratch.labelToIndex.get(t.start), t -> scratch.labelToIndex.get(t.end));
+
+        // Every index is queued at most once and processed at most once, so discovery is linear in the number of
+        // code elements. Edges are recorded in discovery order, flow types are assigned once all edges are known.
+        final CFGEdges edges = scratch.edges;
+        final BitSet visited = scratch.visited;
+        final BitSet queued = scratch.queued;
+        final int[] jobs = scratch.jobs(size);
+        int jobsHead = 0;
+        int jobsTail = 0;
+        jobs[jobsTail++] = 0;
+        queued.set(0);
+
+        while (jobsHead < jobsTail) {
+            final int startIndex = jobs[jobsHead++];
+            if (visited.get(startIndex)) {
                 continue;
             }
-            final List<Integer> newPath = new ArrayList<>(job.path);
             jobend:
-            for (int i = job.startIndex; i < codeElements.size(); i++) {
-                visited.add(i);
-                newPath.add(i);
+            for (int i = startIndex; i < size; i++) {
+                visited.set(i);
                 final CodeElement current = codeElements.get(i);
-                if (current instanceof final LabelTarget lt) {
-                    final Label label = lt.label();
+                if (current instanceof LabelTarget) {
                     // Search for exception handlers
-                    final List<TryCatchBlock> blocksFromHere = tryCatchBlocks.get(label);
-                    if (blocksFromHere != null) {
-                        for (final TryCatchBlock block : blocksFromHere) {
-                            for (int k = 0; k < block.handlers.size(); k++) {
-                                final CatchHandler handler = block.handlers.get(k);
-                                if (labelToIndex.containsKey(handler.handler)) {
-                                    final int newIndex = labelToIndex.get(handler.handler);
-                                    if (!visited.contains(newIndex)) {
-                                        jobs.add(new CFGAnalysisJob(newIndex, newPath));
-                                    }
-                                    Frame frame = frames[newIndex];
-                                    if (frame == null) {
-                                        frame = new Frame(newIndex, codeElements.get(newIndex));
-                                        frames[newIndex] = frame;
-                                    }
-                                    frame.predecessors.add(new FrameCFGEdge(i, new FrameNamedProjection(CatchProjection.nameFor(k, handler.exceptionTypes)), FlowType.FORWARD));
-                                } else {
-                                    illegalState("Exception handler target " + handler.handler + " is not mapped to an index");
-                                }
+                    for (final TryCatchBlock block : tryCatchRanges.startingAt(i)) {
+                        for (int k = 0; k < block.handlers.size(); k++) {
+                            final CatchHandler handler = block.handlers.get(k);
+                            final Integer newIndex = scratch.labelToIndex.get(handler.handler);
+                            if (newIndex == null) {
+                                illegalState("Exception handler target " + handler.handler + " is not mapped to an index");
                             }
+                            jobsTail = enqueue(jobs, jobsTail, newIndex, visited, queued);
+                            edges.add(i, newIndex, new FrameNamedProjection(CatchProjection.nameFor(k, handler.exceptionTypes)), false);
                         }
                     }
                 } else  if (current instanceof final Instruction instruction) {
                     if (instruction instanceof final BranchInstruction branch) {
                         // This can either be a conditional or unconditional branch
                         if (instruction.opcode() == Opcode.GOTO || instruction.opcode() == Opcode.GOTO_W) {
-                            final Label target = branch.target();
                             // Unconditional Branch
-                            if (labelToIndex.containsKey(target)) {
-                                final int newIndex = labelToIndex.get(target);
-                                if (!visited.contains(newIndex)) {
-                                    jobs.add(new CFGAnalysisJob(newIndex, newPath));
-                                }
-                                FlowType flowType = FlowType.FORWARD;
-                                if (newPath.contains(newIndex)) {
-                                    flowType = FlowType.BACKWARD;
-                                }
-                                Frame frame = frames[newIndex];
-                                if (frame == null) {
-                                    frame = new Frame(newIndex, codeElements.get(newIndex));
-                                    frames[newIndex] = frame;
-                                }
-                                frame.predecessors.add(new FrameCFGEdge(i, FrameNamedProjection.DEFAULT, flowType));
-                                break;
-                            } else {
+                            final Integer newIndex = scratch.labelToIndex.get(branch.target());
+                            if (newIndex == null) {
                                 illegalState("Unconditional branch to " + branch.target() + " which is not mapped to an index");
                             }
+                            jobsTail = enqueue(jobs, jobsTail, newIndex, visited, queued);
+                            edges.add(i, newIndex, FrameNamedProjection.DEFAULT, true);
+                            break;
                         } else {
                             // Conditional branch
                             // We split up in multiple analysis tasks
-                            final Label target = branch.target();
-                            // Unconditional Branch
-                            if (labelToIndex.containsKey(target)) {
-                                final int newIndex = labelToIndex.get(target);
-                                if (!visited.contains(newIndex)) {
-                                    jobs.add(new CFGAnalysisJob(newIndex, newPath));
-                                }
-                                FlowType flowType = FlowType.FORWARD;
-                                if (newPath.contains(newIndex)) {
-                                    flowType = FlowType.BACKWARD;
-                                }
-                                Frame frame = frames[newIndex];
-                                if (frame == null) {
-                                    frame = new Frame(newIndex, codeElements.get(newIndex));
-                                    frames[newIndex] = frame;
-                                }
-                                frame.predecessors.add(new FrameCFGEdge(i, new FrameNamedProjection("true"), flowType));
-                            } else {
+                            final Integer newIndex = scratch.labelToIndex.get(branch.target());
+                            if (newIndex == null) {
                                 illegalState("Conditional branch to " + branch.target() + " which is not mapped to an index");
                             }
+                            jobsTail = enqueue(jobs, jobsTail, newIndex, visited, queued);
+                            edges.add(i, newIndex, new FrameNamedProjection("true"), true);
                         }
                     } else if (instruction instanceof final LookupSwitchInstruction lsu) {
                         final List<SwitchCase> cases = lsu.cases();
                         for (int j = 0; j < cases.size(); j++) {
-                            final SwitchCase sc = cases.get(j);
-                            final Label target = sc.target();
-
-                            if (labelToIndex.containsKey(target)) {
-                                final int newIndex = labelToIndex.get(target);
-                                if (!visited.contains(newIndex)) {
-                                    jobs.add(new CFGAnalysisJob(newIndex, newPath));
-                                }
-                                FlowType flowType = FlowType.FORWARD;
-                                if (newPath.contains(newIndex)) {
-                                    flowType = FlowType.BACKWARD;
-                                }
-                                Frame frame = frames[newIndex];
-                                if (frame == null) {
-                                    frame = new Frame(newIndex, codeElements.get(newIndex));
-                                    frames[newIndex] = frame;
-                                }
-                                frame.predecessors.add(new FrameCFGEdge(i, new FrameNamedProjection("case" + j), flowType));
-                            } else {
+                            final Label target = cases.get(j).target();
+                            final Integer newIndex = scratch.labelToIndex.get(target);
+                            if (newIndex == null) {
                                 illegalState("Case branch to " + target + " which is not mapped to an index");
                             }
+                            jobsTail = enqueue(jobs, jobsTail, newIndex, visited, queued);
+                            edges.add(i, newIndex, new FrameNamedProjection("case" + j), true);
                         }
 
                         final Label target = lsu.defaultTarget();
-                        if (labelToIndex.containsKey(target)) {
-                            final int newIndex = labelToIndex.get(target);
-                            if (!visited.contains(newIndex)) {
-                                jobs.add(new CFGAnalysisJob(newIndex, newPath));
-                            }
-                            FlowType flowType = FlowType.FORWARD;
-                            if (newPath.contains(newIndex)) {
-                                flowType = FlowType.BACKWARD;
-                            }
-                            Frame frame = frames[newIndex];
-                            if (frame == null) {
-                                frame = new Frame(newIndex, codeElements.get(newIndex));
-                                frames[newIndex] = frame;
-                            }
-                            frame.predecessors.add(new FrameCFGEdge(i, new FrameNamedProjection("default"), flowType));
-                        } else {
+                        final Integer newIndex = scratch.labelToIndex.get(target);
+                        if (newIndex == null) {
                             illegalState("Default branch to " + target + " which is not mapped to an index");
                         }
+                        jobsTail = enqueue(jobs, jobsTail, newIndex, visited, queued);
+                        edges.add(i, newIndex, new FrameNamedProjection("default"), true);
 
                         break;
                     } else if (instruction instanceof final TableSwitchInstruction tsi) {
                         final List<SwitchCase> cases = tsi.cases();
                         for (int j = 0; j < cases.size(); j++) {
-                            final SwitchCase sc = cases.get(j);
-                            final Label target = sc.target();
-
-                            if (labelToIndex.containsKey(target)) {
-                                final int newIndex = labelToIndex.get(target);
-                                if (!visited.contains(newIndex)) {
-                                    jobs.add(new CFGAnalysisJob(newIndex, newPath));
-                                }
-                                FlowType flowType = FlowType.FORWARD;
-                                if (newPath.contains(newIndex)) {
-                                    flowType = FlowType.BACKWARD;
-                                }
-                                Frame frame = frames[newIndex];
-                                if (frame == null) {
-                                    frame = new Frame(newIndex, codeElements.get(newIndex));
-                                    frames[newIndex] = frame;
-                                }
-                                frame.predecessors.add(new FrameCFGEdge(i, new FrameNamedProjection("case" + j), flowType));
-                            } else {
+                            final Label target = cases.get(j).target();
+                            final Integer newIndex = scratch.labelToIndex.get(target);
+                            if (newIndex == null) {
                                 illegalState("Case branch to " + target + " which is not mapped to an index");
                             }
+                            jobsTail = enqueue(jobs, jobsTail, newIndex, visited, queued);
+                            edges.add(i, newIndex, new FrameNamedProjection("case" + j), true);
                         }
 
                         final Label target = tsi.defaultTarget();
-                        if (labelToIndex.containsKey(target)) {
-                            final int newIndex = labelToIndex.get(target);
-                            if (!visited.contains(newIndex)) {
-                                jobs.add(new CFGAnalysisJob(newIndex, newPath));
-                            }
-                            FlowType flowType = FlowType.FORWARD;
-                            if (newPath.contains(newIndex)) {
-                                flowType = FlowType.BACKWARD;
-                            }
-                            Frame frame = frames[newIndex];
-                            if (frame == null) {
-                                frame = new Frame(newIndex, codeElements.get(newIndex));
-                                frames[newIndex] = frame;
-                            }
-                            frame.predecessors.add(new FrameCFGEdge(i, new FrameNamedProjection("default"), flowType));
-                        } else {
+                        final Integer newIndex = scratch.labelToIndex.get(target);
+                        if (newIndex == null) {
                             illegalState("Default branch to " + target + " which is not mapped to an index");
                         }
+                        jobsTail = enqueue(jobs, jobsTail, newIndex, visited, queued);
+                        edges.add(i, newIndex, new FrameNamedProjection("default"), true);
 
                         break;
                     } else {
@@ -421,80 +420,135 @@ public class MethodAnalyzer {
                     }
                 }
 
-                Frame nextFrame = frames[i + 1];
-                if (nextFrame == null) {
-                    nextFrame = new Frame(i + 1, codeElements.get(i + 1));
-                    frames[i + 1] = nextFrame;
-                }
                 // This is a regular forward flow
                 if (current instanceof BranchInstruction) {
-                    nextFrame.predecessors.add(new FrameCFGEdge(i, new FrameNamedProjection("false"), FlowType.FORWARD));
+                    edges.add(i, i + 1, new FrameNamedProjection("false"), false);
                 } else {
-                    nextFrame.predecessors.add(new FrameCFGEdge(i, FrameNamedProjection.DEFAULT, FlowType.FORWARD));
+                    edges.add(i, i + 1, FrameNamedProjection.DEFAULT, false);
                 }
 
-                if (visited.contains(i + 1)) {
+                if (visited.get(i + 1)) {
                     break;
                 }
             }
         }
+
+        final BitSet backEdges = edges.backEdges(size);
+        for (int e = 0; e < edges.size; e++) {
+            final int to = edges.to[e];
+            Frame frame = frames[to];
+            if (frame == null) {
+                frame = new Frame(to, codeElements.get(to));
+                frames[to] = frame;
+            }
+            frame.predecessors.add(new FrameCFGEdge(edges.from[e], edges.projections[e], backEdges.get(e) ? FlowType.BACKWARD : FlowType.FORWARD));
+        }
+    }
+
+    private static int enqueue(final int[] jobs, final int jobsTail, final int index, final BitSet visited, final BitSet queued) {
+        if (visited.get(index) || queued.get(index)) {
+            return jobsTail;
+        }
+        queued.set(index);
+        jobs[jobsTail] = index;
+        return jobsTail + 1;
     }
 
     private void step3ComputeTopologicalOrder() {
         // We compute the topological order of the bytecode cfg
         // We later iterate by this order to parse every node
-        final List<Frame> reversePostOrder = new ArrayList<>();
-        final Deque<Frame> currentPath = new ArrayDeque<>();
-        currentPath.add(frames[0]);
-        final Set<Frame> marked = new HashSet<>();
-        marked.add(frames[0]);
+        final int size = frames.length;
 
-        final Map<Frame, List<Frame>> successors = new HashMap<>();
+        final int[] successorCount = new int[size];
         for (final Frame frame : frames) {
             if (frame != null) {
-
                 for (final FrameCFGEdge edge : frame.predecessors) {
-                    if (edge.flowType() == FlowType.FORWARD) {
-                        final Frame fromFrame = frames[edge.fromIndex()];
-                        if (fromFrame == null) {
-                            illegalState("fromFrame == null !, for " + edge);
-                        }
-                        final List<Frame> successorsList = successors.computeIfAbsent(fromFrame, k -> new ArrayList<>());
-                        successorsList.add(frame);
+                    if (frames[edge.fromIndex()] == null) {
+                        illegalState("fromFrame == null !, for " + edge);
                     }
+                    successorCount[edge.fromIndex()]++;
                 }
             }
         }
 
-        while (!currentPath.isEmpty()) {
-            final Frame currentNode = currentPath.peek();
-
-            final List<Frame> forwardNodes;
-
-            forwardNodes = Objects.requireNonNullElseGet(successors.get(currentNode), ArrayList::new);
+        // Frames are grouped into basic blocks. A frame continues the block of the previous frame if this is its only
+        // predecessor and it is the only successor of the previous frame. Blocks are numbered by their first frame.
+        final int[] blockOf = new int[size];
+        final List<Frame> blockLeaders = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            final Frame frame = frames[i];
+            if (frame != null) {
+                if (i > 0 && frame.predecessors.size() == 1) {
+                    final FrameCFGEdge edge = frame.predecessors.getFirst();
+                    frame.continuesBlock = edge.fromIndex() == i - 1 && edge.flowType() == FlowType.FORWARD && FrameNamedProjection.DEFAULT.equals(edge.projection()) && successorCount[i - 1] == 1;
+                }
+                if (!frame.continuesBlock) {
+                    blockLeaders.add(frame);
+                }
+                blockOf[i] = blockLeaders.size() - 1;
+            }
+        }
+        final int numBlocks = blockLeaders.size();
 
-            // We sort by index in the code model to make this reproducible...
-            forwardNodes.sort(Comparator.comparingInt(o -> o.elementIndex));
+        // Forward successors of the blocks as int adjacency, sorted by index in the code model to make this reproducible...
+        final int[] blockSuccessorCount = new int[numBlocks];
+        for (final Frame leader : blockLeaders) {
+            for (final FrameCFGEdge edge : leader.predecessors) {
+                if (edge.flowType() == FlowType.FORWARD) {
+                    blockSuccessorCount[blockOf[edge.fromIndex()]]++;
+                }
+            }
+        }
+        final int[][] successors = new int[numBlocks][];
+        for (int i = 0; i < numBlocks; i++) {
+            successors[i] = new int[blockSuccessorCount[i]];
+            blockSuccessorCount[i] = 0;
+        }
+        for (int i = 0; i < numBlocks; i++) {
+            for (final FrameCFGEdge edge : blockLeaders.get(i).predecessors) {
+                if (edge.flowType() == FlowType.FORWARD) {
+                    final int from = blockOf[edge.fromIndex()];
+                    successors[from][blockSuccessorCount[from]++] = i;
+                }
+            }
+        }
+        for (final int[] s : successors) {
+            Arrays.sort(s);
+        }
 
-            if (!forwardNodes.isEmpty()) {
-                boolean somethingFound = false;
-                for (final Frame node : forwardNodes) {
-                    if (marked.add(node)) {
-                        currentPath.push(node);
-                        somethingFound = true;
-                    }
+        final List<Frame> reversePostOrder = new ArrayList<>();
+        final int[] currentPath = new int[numBlocks];
+        int top = 0;
+        currentPath[top++] = 0;
+        final BitSet marked = new BitSet(numBlocks);
+        marked.set(0);
+
+        while (top > 0) {
+            final int currentBlock = currentPath[top - 1];
+
+            boolean somethingFound = false;
+            for (final int block : successors[currentBlock]) {
+                if (!marked.get(block)) {
+                    marked.set(block);
+                    currentPath[top++] = block;
+                    somethingFound = true;
+                }
+            }
+            if (!somethingFound) {
+                // The frames of the block are added backwards, so they are in order once the list is reversed
+                final int first = blockLeaders.get(currentBlock).elementIndex;
+                int last = first;
+                while (last + 1 < size && frames[last + 1] != null && frames[last + 1].continuesBlock) {
+                    last++;
                 }
-                if (!somethingFound) {
-                    reversePostOrder.add(currentNode);
-                    currentPath.pop();
+                for (int i = last; i >= first; i--) {
+                    reversePostOrder.add(frames[i]);
                 }
-            } else {
-                reversePostOrder.add(currentNode);
-                currentPath.pop();
+                top--;
             }
         }
 
-        codeModelTopologicalOrder = new ArrayList<>();
+        codeModelTopologicalOrder = new ArrayList<>(reversePostOrder.size());
         for (int i = reversePostOrder.size() - 1; i >= 0; i--) {
             codeModelTopologicalOrder.add(reversePostOrder.get(i));
         }
@@ -506,13 +560,28 @@ public class MethodAnalyzer {
     }
 
     private void step4ComputeFrameDominators() {
+        // Dominators are computed for the first frames of the basic blocks only, every other frame is
+        // dominated by its predecessor in the block
+        final Frame[] leaderOf = new Frame[frames.length];
+        final List<Frame> blockLeaders = new ArrayList<>();
+        Frame leader = null;
+        for (final Frame frame : codeModelTopologicalOrder) {
+            if (frame.continuesBlock) {
+                frame.immediateDominator = frames[frame.elementIndex - 1];
+            } else {
+                leader = frame;
+                blockLeaders.add(frame);
+            }
+            leaderOf[frame.elementIndex] = leader;
+        }
+
         final Frame firstElement = codeModelTopologicalOrder.getFirst();
         firstElement.immediateDominator = firstElement;
 
         boolean changed;
         do {
             changed = false;
-            for (final Frame v : codeModelTopologicalOrder) {
+            for (final Frame v : blockLeaders) {
                 if (v.equals(firstElement))
                     continue;
 
@@ -520,16 +589,16 @@ public class MethodAnalyzer {
                 Frame newIdom = null;
 
                 for (final FrameCFGEdge edge : v.predecessors) {
-                     final Frame sourceNode = frames[edge.fromIndex()];
+                    final Frame sourceNode = frames[edge.fromIndex()];
 
-                    if (sourceNode.immediateDominator == null)
+                    if (leaderOf[sourceNode.elementIndex].immediateDominator == null)
                         /* not yet analyzed */ continue;
                     if (newIdom == null) {
                         /* If we only have one (defined) predecessor pre, IDom(v) = pre */
                         newIdom = sourceNode;
                     } else {
                         /* compute the intersection of all defined predecessors of v */
-                        newIdom = intersectIDoms(sourceNode, newIdom);
+                        newIdom = intersectIDoms(leaderOf, sourceNode, newIdom);
                     }
                 }
                 if (newIdom == null) {
@@ -543,15 +612,18 @@ public class MethodAnalyzer {
         } while (changed);
     }
 
-    private Frame intersectIDoms(Frame v1, Frame v2) {
-        while (v1 != v2) {
-            if (v1.indexInTopologicalOrder < v2.indexInTopologicalOrder) {
-                v2 = v2.immediateDominator;
+    private static Frame intersectIDoms(final Frame[] leaderOf, Frame v1, Frame v2) {
+        // Walk up block wise until both frames are in the same block, the earlier one then dominates the other
+        while (leaderOf[v1.elementIndex] != leaderOf[v2.elementIndex]) {
+            final Frame l1 = leaderOf[v1.elementIndex];
+            final Frame l2 = leaderOf[v2.elementIndex];
+            if (l1.indexInTopologicalOrder < l2.indexInTopologicalOrder) {
+                v2 = l2.immediateDominator;
             } else {
-                v1 = v1.immediateDominator;
+                v1 = l1.immediateDominator;
             }
         }
-        return v1;
+        return v1.elementIndex <= v2.elementIndex ? v1 : v2;
     }
 
     static IRType<?> meetTypesOf(final Collection<Value> values) {
@@ -571,7 +643,85 @@ public class MethodAnalyzer {
         return first.type;
     }
 
-    void mergeFrames(final Frame targetFrame, final Node targetNode, final List<Frame> sourceFrames, final Status targetStatus, final int numLocals, final boolean hasBackEdges) {
+    /**
+     * Returns the verification types of the locals at the start of a frame by slot, or null if the frame has no
+     * StackMapTable entry. Slots not covered by the entry and the second slot of category 2 values are null.
+     */
+    private StackMapFrameInfo.VerificationTypeInfo[] localVerificationTypes(final Frame frame, final int numLocals) {
+        if (!(frame.codeElement instanceof final LabelTarget lt)) {
+            return null;
+        }
+        final StackMapFrameInfo frameInfo = scratch.stackMapFrames.get(lt.label());
+        if (frameInfo == null) {
+            return null;
+        }
+        final StackMapFrameInfo.VerificationTypeInfo[] result = new StackMapFrameInfo.VerificationTypeInfo[numLocals];
+        int slot = 0;
+        for (final StackMapFrameInfo.VerificationTypeInfo info : frameInfo.locals()) {
+            if (slot >= numLocals) {
+                break;
+            }
+            result[slot++] = info;
+            if (info == StackMapFrameInfo.SimpleVerificationTypeInfo.LONG || info == StackMapFrameInfo.SimpleVerificationTypeInfo.DOUBLE) {
+                slot++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Maps a verification type to the type of the abstract value, or null if it does not determine one.
+     */
+    private static IRType<?> typeOf(final StackMapFrameInfo.VerificationTypeInfo info) {
+        return switch (info) {
+            case StackMapFrameInfo.SimpleVerificationTypeInfo.INTEGER -> IRType.CD_int;
+            case StackMapFrameInfo.SimpleVerificationTypeInfo.FLOAT -> IRType.CD_float;
+            case StackMapFrameInfo.SimpleVerificationTypeInfo.LONG -> IRType.CD_long;
+            case StackMapFrameInfo.SimpleVerificationTypeInfo.DOUBLE -> IRType.CD_double;
+            // The verifier already computed the common type, so there is no need to resolve it here
+            case final StackMapFrameInfo.ObjectVerificationTypeInfo objectType -> IRType.MetaClass.of(objectType.classSymbol());
+            case null, default -> null;
+        };
+    }
+
+    /**
+     * Returns the local slots written inside the loop with the given header, that is by the header and all frames
+     * reaching one of its back edges without passing the header. All other locals keep the value they have when
+     * entering the loop and need no PHI.
+     */
+    private BitSet localsAssignedInLoop(final Frame header) {
+        final BitSet result = new BitSet();
+        final BitSet inLoop = new BitSet(frames.length);
+        final List<Frame> workList = new ArrayList<>();
+        inLoop.set(header.elementIndex);
+        workList.add(header);
+        for (final FrameCFGEdge edge : header.predecessors) {
+            if (edge.flowType() == FlowType.BACKWARD && !inLoop.get(edge.fromIndex())) {
+                inLoop.set(edge.fromIndex());
+                workList.add(frames[edge.fromIndex()]);
+            }
+        }
+        while (!workList.isEmpty()) {
+            final Frame current = workList.removeLast();
+            switch (current.codeElement) {
+                case final StoreInstruction store -> result.set(store.slot());
+                case final IncrementInstruction increment -> result.set(increment.slot());
+                default -> {
+                }
+            }
+            if (current != header) {
+                for (final FrameCFGEdge edge : current.predecessors) {
+                    if (!inLoop.get(edge.fromIndex())) {
+                        inLoop.set(edge.fromIndex());
+                        workList.add(frames[edge.fromIndex()]);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    void mergeFrames(final Frame targetFrame, final Node targetNode, final List<Frame> sourceFrames, final Status targetStatus, final int numLocals, final BitSet localsAssignedInLoop) {
         // Se search through all frames and try to join where values match
         Frame dominatorFrame = targetFrame.immediateDominator;
         if (dominatorFrame == null) {
@@ -596,7 +746,13 @@ public class MethodAnalyzer {
             phiOwner = dominatorFrame.entryPoint;
         }
 
+        final StackMapFrameInfo.VerificationTypeInfo[] verificationTypes = localVerificationTypes(targetFrame, numLocals);
+
         for (int i = 0; i < numLocals; i++) {
+            if (verificationTypes != null && (verificationTypes[i] == null || verificationTypes[i] == StackMapFrameInfo.SimpleVerificationTypeInfo.TOP)) {
+                // The local is not live here according to the StackMapTable, so it cannot be read before it is set again
+                continue;
+            }
             int foundInFrames = 0;
             final Set<Value> values = new HashSet<>();
             for (final Frame frame : sourceFrames) {
@@ -612,15 +768,23 @@ public class MethodAnalyzer {
                 continue;
             }
 
-            // Case 2: we found multiple values or a back edge. In this case we have to create PHI values
-            if (values.size() > 1 || hasBackEdges) {
+            // Case 2: we found multiple values or a back edge of a loop changing the local. In this case we have to create PHI values
+            if (values.size() > 1 || (localsAssignedInLoop != null && localsAssignedInLoop.get(i))) {
 
-                // Make sure all values are of the same type
-                final IRType<?> type = meetTypesOf(values);
+                // If the values differ in type, the verifier already knows the common one. Otherwise make sure all values are of the same type
+                final IRType<?> firstType = values.iterator().next().type;
+                IRType<?> type = null;
+                if (verificationTypes != null && values.stream().anyMatch(t -> !t.type.equals(firstType))) {
+                    type = typeOf(verificationTypes[i]);
+                }
+                if (type == null) {
+                    type = meetTypesOf(values);
+                }
 
                 // We perform this only if the meet is possible
                 if (type != null) {
                     final PHI phi = phiOwner.definePHI(type);
+                    scratch.phis.add(phi);
                     for (final Frame frame : sourceFrames) {
                         final Value v = frame.out.locals[i];
                         if (v != null) {
@@ -656,7 +820,7 @@ public class MethodAnalyzer {
 
         final CodeAttribute cm = (CodeAttribute) code;
 
-        final Status initStatus = new Status(cm.maxLocals());
+        final Status initStatus = new Status(cm.maxLocals(), cm.maxStack());
         initStatus.control = ir;
         initStatus.memory = ir;
 
@@ -672,18 +836,31 @@ public class MethodAnalyzer {
             final LoopHeaderNode loop = new LoopHeaderNode("Loop0");
             initStatus.control = initStatus.control.controlFlowsTo(loop, FlowType.FORWARD);
 
-            // We start directly
+            // We start directly, only arguments changed in the loop need a PHI
+            final BitSet assignedInLoop = localsAssignedInLoop(topologicalOrder.getFirst());
             int localIndex = 0;
             if (!method.flags().flags().contains(AccessFlag.STATIC)) {
-                final PHI p = loop.definePHI(owner);
-                p.use(ir.defineThisRef(owner), new PHIUse(FlowType.FORWARD, ir));
-                initStatus.setLocal(localIndex++, p);
+                final Value thisRef = ir.defineThisRef(owner);
+                if (assignedInLoop.get(localIndex)) {
+                    final PHI p = loop.definePHI(owner);
+                    scratch.phis.add(p);
+                    p.use(thisRef, new PHIUse(FlowType.FORWARD, ir));
+                    initStatus.setLocal(localIndex++, p);
+                } else {
+                    initStatus.setLocal(localIndex++, thisRef);
+                }
             }
             for (int i = 0; i < methodTypeDesc.parameterCount(); i++) {
                 final IRType.MetaClass parameterType = methodTypeDesc.parameterType(i);
-                final PHI p = loop.definePHI(TypeUtils.jvmInternalTypeOf(parameterType));
-                p.use(ir.defineMethodArgument((IRType.MetaClass) TypeUtils.jvmInternalTypeOf(parameterType), i), new PHIUse(FlowType.FORWARD, ir));
-                initStatus.setLocal(localIndex++, p);
+                final Value argument = ir.defineMethodArgument((IRType.MetaClass) TypeUtils.jvmInternalTypeOf(parameterType), i);
+                if (assignedInLoop.get(localIndex)) {
+                    final PHI p = loop.definePHI(TypeUtils.jvmInternalTypeOf(parameterType));
+                    scratch.phis.add(p);
+                    p.use(argument, new PHIUse(FlowType.FORWARD, ir));
+                    initStatus.setLocal(localIndex++, p);
+                } else {
+                    initStatus.setLocal(localIndex++, argument);
+                }
                 if (TypeUtils.isCategory2(parameterType)) {
                     localIndex++;
                 }
@@ -706,11 +883,6 @@ public class MethodAnalyzer {
 
         topologicalOrder.getFirst().in = initStatus;
 
-        final Map<Integer, Frame> posToFrame = new HashMap<>();
-        for (final Frame frame : topologicalOrder) {
-            posToFrame.put(frame.elementIndex, frame);
-        }
-
         for (final Frame frame : topologicalOrder) {
             boolean isExceptionHandler = false;
             final CodeElement frameElement = frame.codeElement;
@@ -727,14 +899,15 @@ public class MethodAnalyzer {
                 }
                 if (frame.predecessors.size() == 1) {
                     final FrameCFGEdge edge = frame.predecessors.getFirst();
-                    final Frame outgoing = posToFrame.get(edge.fromIndex());
+                    final Frame outgoing = frames[edge.fromIndex()];
                     if (outgoing == null) {
                         illegalState("No outgoing frame for " + frame.elementIndex);
                     }
                     if (outgoing.out == null) {
                         illegalState("No outgoing status for " + frame.elementIndex);
                     }
-                    incomingStatus = outgoing.out.copy();
+                    // The status is only copied on block entry, inside a block it is handed over
+                    incomingStatus = frame.continuesBlock ? outgoing.out : outgoing.out.copy();
 
                     if (incomingStatus.control instanceof TupleNode) {
                         incomingStatus.control = ((TupleNode) incomingStatus.control).getNamedNode(edge.projection().name());
@@ -770,7 +943,7 @@ public class MethodAnalyzer {
                             // edges is handled during node parsing of the source instruction, as
                             // the outgoing status for this node is not computed yet.
                             if (edge.flowType() == FlowType.FORWARD) {
-                                final Frame incomingFrame = posToFrame.get(edge.fromIndex());
+                                final Frame incomingFrame = frames[edge.fromIndex()];
                                 if (incomingFrame.out == null) {
                                     illegalState("No outgoing status for " + incomingFrame.elementIndex);
                                 }
@@ -778,7 +951,7 @@ public class MethodAnalyzer {
                                 if (!incomingMemories.contains(memory)) {
                                     incomingMemories.add(memory);
                                 }
-                                incomingFrames.add(posToFrame.get(edge.fromIndex()));
+                                incomingFrames.add(incomingFrame);
                             } else {
                                 hasBackEdges = true;
                             }
@@ -796,7 +969,7 @@ public class MethodAnalyzer {
                             // edges is handled during node parsing of the source instruction, as
                             // the outgoing status for this node is not computed yet.
                             if (edge.flowType() == FlowType.FORWARD) {
-                                final Frame incomingFrame = posToFrame.get(edge.fromIndex());
+                                final Frame incomingFrame = frames[edge.fromIndex()];
                                 Node source = incomingFrame.out.control;
                                 if (source instanceof TupleNode) {
                                     source = ((TupleNode) source).getNamedNode(edge.projection().name());
@@ -809,7 +982,7 @@ public class MethodAnalyzer {
                             }
                         }
 
-                        incomingStatus = new Status(cm.maxLocals());
+                        incomingStatus = new Status(cm.maxLocals(), cm.maxStack());
 
                         int incomingStackSize = -1;
                         for (final Frame fr : incomingFrames) {
@@ -821,6 +994,7 @@ public class MethodAnalyzer {
                         }
 
                         if (incomingStackSize > 0) {
+                            final StackMapFrameInfo frameInfo = frame.codeElement instanceof final LabelTarget lt ? scratch.stackMapFrames.get(lt.label()) : null;
                             // Check of we need to do something
                             for (int stackPos = 0; stackPos < incomingStackSize; stackPos++) {
                                 final List<Value> allValues = new ArrayList<>();
@@ -834,7 +1008,16 @@ public class MethodAnalyzer {
                                 }
                                 if (allValues.size() > 1 || hasBackEdges) {
                                     final Value source = allValues.getFirst();
-                                    final PHI p = target.definePHI(source.type);
+                                    IRType<?> type = source.type;
+                                    if (frameInfo != null && stackPos < frameInfo.stack().size() && allValues.stream().anyMatch(t -> !t.type.equals(source.type))) {
+                                        // The values differ in type, so the verifier knows the common one
+                                        final IRType<?> stackMapType = typeOf(frameInfo.stack().get(stackPos));
+                                        if (stackMapType != null) {
+                                            type = stackMapType;
+                                        }
+                                    }
+                                    final PHI p = target.definePHI(type);
+                                    scratch.phis.add(p);
 
                                     for (final Frame fr : incomingFrames) {
                                         final Value sv = fr.out.stack.get(stackPos);
@@ -849,7 +1032,7 @@ public class MethodAnalyzer {
                         }
 
                         // Merge local variables
-                        mergeFrames(frame, target, incomingFrames, incomingStatus, cm.maxLocals(), hasBackEdges);
+                        mergeFrames(frame, target, incomingFrames, incomingStatus, cm.maxLocals(), hasBackEdges ? localsAssignedInLoop(frame) : null);
 
                         if (incomingMemories.size() == 1) {
                             incomingStatus.memory = incomingMemories.getFirst();
@@ -866,9 +1049,9 @@ public class MethodAnalyzer {
 
                         frame.out = incomingStatus.copy();
 
-                        if (frame.codeElement instanceof final LabelTarget lt) {
-                            final List<TryCatchBlock> catchesFromHere = tryCatchBlocks.get(lt.label());
-                            if (catchesFromHere != null && !catchesFromHere.isEmpty()) {
+                        if (frame.codeElement instanceof LabelTarget) {
+                            final List<TryCatchBlock> catchesFromHere = tryCatchRanges.startingAt(frame.elementIndex);
+                            if (!catchesFromHere.isEmpty()) {
 
                                 for (final TryCatchBlock catchBlock : catchesFromHere) {
                                     final List<ExceptionGuard.Catches> catches = new ArrayList<>();
@@ -877,6 +1060,7 @@ public class MethodAnalyzer {
                                         catches.add(new ExceptionGuard.Catches(i, handler.exceptionTypes));
                                     }
                                     final ExceptionGuard n = new ExceptionGuard("Guard_" + frame.elementIndex, catches);
+                                    scratch.exceptionGuards.put(catchBlock, n);
 
                                     frame.out.control = frame.out.control.controlFlowsTo(n, FlowType.FORWARD);
                                 }
@@ -892,7 +1076,7 @@ public class MethodAnalyzer {
                 // Interpret the node
                 visitNode(frameElement, frame);
 
-                if (frame.out == null || frame.out == incomingStatus) {
+                if (frame.out == null || (frame.out == incomingStatus && !frame.continuesBlock)) {
                     illegalState("No outgoing or same same as incoming status for " + frameElement);
                 }
             } else {
@@ -904,31 +1088,15 @@ public class MethodAnalyzer {
     }
 
     private void step6RemoveSingularPHIs(final CodeModel code) {
-        final List<Node> nodes = new DFS2(ir, true).getTopologicalOrder();
-        for (final Node node : nodes) {
-            for (final Node n : new ArrayList<>(node.usedBy)) {
-                if (n instanceof final PHI phi) {
-                    final List<Node.UseEdge> phiUses = phi.uses.stream().filter(t -> t.use() instanceof PHIUse).toList();
-                    if (phiUses.size() == 1) {
-                        // We found a singular candidate
-                        final Node singularValue = phiUses.getFirst().node();
-                        singularValue.usedBy.remove(phi);
-
-                        for (final Node userOfPhi : phi.usedBy) {
-                            singularValue.usedBy.add(userOfPhi);
-
-                            for (final Node.UseEdge edge : userOfPhi.uses) {
-                                if (edge.node == phi) {
-                                    edge.node = singularValue;
-                                }
-                            }
-                        }
-
-                        phi.uses.stream().filter(t -> t.use() instanceof DefinedByUse).map(t -> t.node).forEach(definer -> definer.usedBy.remove(phi));
-                    }
-                }
+        // Only the PHIs created during interpretation are candidates, so there is no need to traverse the whole graph
+        for (final PHI phi : scratch.phis) {
+            final List<Node.UseEdge> phiUses = phi.uses.stream().filter(t -> t.use() instanceof PHIUse).toList();
+            if (phiUses.size() == 1 && phiUses.getFirst().node() != phi) {
+                // We found a singular candidate
+                phi.replaceWith(phiUses.getFirst().node());
             }
         }
+        scratch.phis.clear();
     }
 
     private void visitNode(final CodeElement node, final Frame frame) {
@@ -1038,46 +1206,21 @@ public class MethodAnalyzer {
         outgoing.control = outgoing.control.controlFlowsTo(node, FlowType.FORWARD);
     }
 
-    private ExceptionGuard exceptionGuardsFromHere(final Node node, final String label) {
-        return exceptionGuardsFromHere(node, label, new HashSet<>());
-    }
-
-    private ExceptionGuard exceptionGuardsFromHere(final Node node, final String label, final Set<Node> visited) {
-        if (!visited.add(node)) {
-            return null;
-        }
-        if (node instanceof final ExceptionGuard guard) {
-            if (guard.startLabel.equals(label)) {
-                return guard;
-            }
-        }
-        for (final Node.UseEdge edge : node.uses) {
-            if (edge.use() instanceof final ControlFlowUse cfu) {
-                if (cfu.type == FlowType.FORWARD) {
-                    final ExceptionGuard guard = exceptionGuardsFromHere(edge.node(), label, visited);
-                    if (guard != null) {
-                        return guard;
-                    }
-                }
-            }
-        }
-        return null;
-    }
-
     @Testbacklog
     protected void visitLabelTarget(final LabelTarget node, final Frame frame) {
 
         final Label label = node.label();
 
         if (stackMapTableAttribute != null) {
-            frame.verificationInfos = stackMapTableAttribute.entries().stream().filter(t -> t.target().equals(label)).toList();
+            final StackMapFrameInfo frameInfo = scratch.stackMapFrames.get(label);
+            frame.verificationInfos = frameInfo != null ? List.of(frameInfo) : List.of();
         }
 
-        final List<TryCatchBlock> catchesFromHere = tryCatchBlocks.get(label);
-        final List<TryCatchBlock> catchesEndingHere = tryCatchBlocks.values().stream().flatMap(Collection::stream).filter(t -> t.end.equals(label)).toList();
+        final List<TryCatchBlock> catchesFromHere = tryCatchRanges.startingAt(frame.elementIndex);
+        final List<TryCatchBlock> catchesEndingHere = tryCatchRanges.endingAt(frame.elementIndex);
 
         if (!catchesEndingHere.isEmpty()) {
-            if (catchesFromHere != null && !catchesFromHere.isEmpty()) {
+            if (!catchesFromHere.isEmpty()) {
                 illegalState("Not implemented yet here: Label starts and ends an TryCatch at the same time");
             }
             if (catchesEndingHere.size() > 1) {
@@ -1085,10 +1228,9 @@ public class MethodAnalyzer {
             }
             final Status outgoing = frame.copyIncomingToOutgoing();
 
-            final String searchLabel = "Guard_" + labelToIndex.get(catchesEndingHere.getFirst().start);
-            final ExceptionGuard activeGuard = exceptionGuardsFromHere(outgoing.control, searchLabel);
+            final ExceptionGuard activeGuard = scratch.exceptionGuards.get(catchesEndingHere.getFirst());
             if (activeGuard == null) {
-                illegalState("No exception guard found for " + outgoing.control + " with label " + searchLabel);
+                illegalState("No exception guard found for " + outgoing.control + " with label Guard_" + scratch.labelToIndex.get(catchesEndingHere.getFirst().start));
             }
 
             final Node n = new MergeNode("EndOfGuardedBlock" + frame.elementIndex);
@@ -1099,7 +1241,7 @@ public class MethodAnalyzer {
             return;
         }
 
-        if (catchesFromHere == null || catchesFromHere.isEmpty()) {
+        if (catchesFromHere.isEmpty()) {
             final Status outgoing = frame.copyIncomingToOutgoing();
             if (frame.predecessors.size() == 1 && (outgoing.control instanceof LoopHeaderNode || outgoing.control instanceof MergeNode)) {
                 frame.entryPoint = outgoing.control;
@@ -1118,6 +1260,7 @@ public class MethodAnalyzer {
                     catches.add(new ExceptionGuard.Catches(i, handler.exceptionTypes));
                 }
                 final ExceptionGuard n = new ExceptionGuard("Guard_" + frame.elementIndex, catches);
+                scratch.exceptionGuards.put(catchBlock, n);
 
                 outgoing.control = outgoing.control.controlFlowsTo(n, FlowType.FORWARD);
 
@@ -1144,7 +1287,7 @@ public class MethodAnalyzer {
         if (value == null) {
             illegalState("No local value for slot " + slot);
         }
-        frame.out.setLocal(slot, new Add(IRType.CD_int, value, outgoing.control.definePrimitiveInt(constant)));
+        frame.out.setLocal(slot, Idealizer.add(IRType.CD_int, value, outgoing.control.definePrimitiveInt(constant)));
     }
 
     protected void visitInvokeInstruction(final Opcode opcode, final ClassDesc owner, final String methodName, final MethodTypeDesc methodTypeDesc, final Frame frame) {
@@ -1611,8 +1754,6 @@ public class MethodAnalyzer {
 
         final Value target = outgoing.pop();
 
-        final ResolvedMethod resolvedMethod = resolverContext.resolveInvokeSpecial(owner, methodName, methodTypeDesc);
-
         final Value next = new InvokeSpecial(resolverContext.resolveType(owner), target, methodName, resolverContext.resolveMethodType(methodTypeDesc), arguments.reversed());
         outgoing.control = outgoing.control.controlFlowsTo(next, FlowType.FORWARD);
         outgoing.memory = outgoing.memory.memoryFlowsTo(next);
@@ -1641,8 +1782,6 @@ public class MethodAnalyzer {
 
         final Value target = outgoing.pop();
 
-        final ResolvedMethod resolvedMethod = resolverContext.resolveInvokeVirtual(owner, methodName, methodTypeDesc);
-
         final Invoke invoke = new InvokeVirtual(resolverContext.resolveType(owner), target, methodName, resolverContext.resolveMethodType(methodTypeDesc), arguments.reversed());
 
         outgoing.control = outgoing.control.controlFlowsTo(invoke, FlowType.FORWARD);
@@ -1671,8 +1810,6 @@ public class MethodAnalyzer {
 
         final Value target = outgoing.pop();
 
-        final ResolvedMethod resolvedMethod = resolverContext.resolveInvokeInterface(owner, methodName, methodTypeDesc);
-
         final Invoke invoke = new InvokeInterface(resolverContext.resolveType(owner), target, methodName, resolverContext.resolveMethodType(methodTypeDesc), arguments.reversed());
 
         outgoing.control = outgoing.control.controlFlowsTo(invoke, FlowType.FORWARD);
@@ -1693,8 +1830,6 @@ public class MethodAnalyzer {
         final Status outgoing = frame.copyIncomingToOutgoing();
         assertMinimumStackSize(outgoing, args.length);
 
-        final ResolvedMethod resolvedMethod = resolverContext.resolveInvokeStatic(owner, methodName, methodTypeDesc);
-
         final RuntimeclassReference runtimeClass = outgoing.control.defineRuntimeclassReference(resolverContext.resolveType(owner));
         final ClassInitialization init = new ClassInitialization(runtimeClass);
 
@@ -1780,7 +1915,7 @@ public class MethodAnalyzer {
         outgoing.control = outgoing.control.controlFlowsTo(next, FlowType.FORWARD);
         frame.entryPoint = next;
 
-        final int codeElementIndex = labelToIndex.get(node.target());
+        final int codeElementIndex = scratch.labelToIndex.get(node.target());
         final Frame targetFrame = frames[codeElementIndex];
 
         if (targetFrame.indexInTopologicalOrder == -1) {
@@ -1803,7 +1938,7 @@ public class MethodAnalyzer {
         outgoing.control = outgoing.control.controlFlowsTo(next, FlowType.FORWARD);
         frame.entryPoint = next;
 
-        final int codeElementIndex = labelToIndex.get(node.target());
+        final int codeElementIndex = scratch.labelToIndex.get(node.target());
         final Frame targetFrame = frames[codeElementIndex];
 
         if (targetFrame.indexInTopologicalOrder == -1) {
@@ -1826,7 +1961,7 @@ public class MethodAnalyzer {
         outgoing.control = outgoing.control.controlFlowsTo(next, FlowType.FORWARD);
         frame.entryPoint = next;
 
-        final int codeElementIndex = labelToIndex.get(node.target());
+        final int codeElementIndex = scratch.labelToIndex.get(node.target());
         final Frame targetFrame = frames[codeElementIndex];
 
         if (targetFrame.indexInTopologicalOrder == -1) {
@@ -1850,7 +1985,7 @@ public class MethodAnalyzer {
         outgoing.control = outgoing.control.controlFlowsTo(next, FlowType.FORWARD);
         frame.entryPoint = next;
 
-        final int codeElementIndex = labelToIndex.get(node.target());
+        final int codeElementIndex = scratch.labelToIndex.get(node.target());
         final Frame targetFrame = frames[codeElementIndex];
 
         if (targetFrame.indexInTopologicalOrder == -1) {
@@ -1866,13 +2001,12 @@ public class MethodAnalyzer {
             for (int i = 0; i < outgoing.numberOfLocals(); i++) {
                 final Value v = frame.out.getLocal(i);
                 final Value target = targetFrame.in.getLocal(i);
-                if (target != null) {
+                if (target != null && v != null && v != target) {
+                    // Locals not changed in the loop have no PHI, so they arrive here unchanged
                     if (!(target instanceof PHI)) {
                         illegalState("Local at index " + i + " is not a PHI value but " + v + ", current frame is " + frame.codeElement + ", target frame is " + targetFrame.codeElement);
                     }
-                    if (v != null && v != target) {
-                        target.use(v, new PHIUse(FlowType.BACKWARD, jumpSource));
-                    }
+                    target.use(v, new PHIUse(FlowType.BACKWARD, jumpSource));
                 }
                 if (v != null && TypeUtils.isCategory2(v.type)) {
                     i++;
@@ -1895,7 +2029,7 @@ public class MethodAnalyzer {
         outgoing.control = outgoing.control.controlFlowsTo(next, FlowType.FORWARD);
         frame.entryPoint = next;
 
-        final int codeElementIndex = labelToIndex.get(node.target());
+        final int codeElementIndex = scratch.labelToIndex.get(node.target());
         final Frame targetFrame = frames[codeElementIndex];
 
         if (targetFrame.indexInTopologicalOrder == -1) {
@@ -1914,7 +2048,7 @@ public class MethodAnalyzer {
             case final Double d -> control.definePrimitiveDouble(d);
             case final ClassDesc classDesc -> control.defineRuntimeclassReference(resolverContext.resolveType(classDesc));
             case final MethodTypeDesc mtd -> ir.defineMethodType(resolverContext.resolveMethodType(mtd));
-            case final MethodHandleDesc mh -> ir.defineMethodHandle(new IRType.MethodHandle(mh));
+            case final MethodHandleDesc mh -> ir.defineMethodHandle(IRType.MethodHandle.of(mh));
             case null, default -> {
                 illegalState("Cannot convert " + constantDesc + " to IR value");
                 yield null;
@@ -2287,18 +2421,15 @@ public class MethodAnalyzer {
     }
 
     private void parse_ADD_X(final Frame frame, final Value value1, final Value value2, final ClassDesc desc) {
-        final Add add = new Add(resolverContext.resolveType(desc), value1, value2);
-        frame.out.push(add);
+        frame.out.push(Idealizer.add(resolverContext.resolveType(desc), value1, value2));
     }
 
     private void parse_SUB_X(final Frame frame, final Value value1, final Value value2, final ClassDesc desc) {
-        final Sub sub = new Sub(resolverContext.resolveType(desc), value1, value2);
-        frame.out.push(sub);
+        frame.out.push(Idealizer.sub(resolverContext.resolveType(desc), value1, value2));
     }
 
     private void parse_MUL_X(final Frame frame, final Value value1, final Value value2, final ClassDesc desc) {
-        final Mul mul = new Mul(resolverContext.resolveType(desc), value1, value2);
-        frame.out.push(mul);
+        frame.out.push(Idealizer.mul(resolverContext.resolveType(desc), value1, value2));
     }
 
     private void parse_ARRAYLENGTH(final Frame frame) {
@@ -2332,8 +2463,7 @@ public class MethodAnalyzer {
     }
 
     private void parse_BITOPERATION_X(final Frame frame, final Value value1, final Value value2, final ClassDesc desc, final BitOperation.Operation operation) {
-        final BitOperation rem = new BitOperation(resolverContext.resolveType(desc), operation, value1, value2);
-        frame.out.push(rem);
+        frame.out.push(Idealizer.bitOperation(resolverContext.resolveType(desc), operation, value1, value2, frame.out.control));
     }
 
     protected void parse_NUMERICCOMPARE_X(final Frame frame, final Value value1, final Value value2, final ClassDesc compareType, final NumericCompare.Mode mode) {
@@ -2453,14 +2583,94 @@ public class MethodAnalyzer {
     private void parse_CONVERT_X(final Frame frame, final IRType.MetaClass from, final IRType.MetaClass to) {
         final Status outgoing = frame.copyIncomingToOutgoing();
 
-        outgoing.push(new Convert(to, outgoing.pop(), from));
+        outgoing.push(Idealizer.convert(to, outgoing.pop(), from));
     }
 
     public Method ir() {
         return ir;
     }
 
-    private record CFGAnalysisJob(int startIndex, List<Integer> path) {
+    /**
+     * The edges of the bytecode CFG in discovery order, stored in parallel arrays.
+     */
+    private static final class CFGEdges {
+
+        private int size;
+        private int[] from = new int[16];
+        private int[] to = new int[16];
+        private FrameNamedProjection[] projections = new FrameNamedProjection[16];
+        // Only branch and switch edges can close a loop, fall through and exception edges are always forward
+        private final BitSet mayBeBackward = new BitSet();
+
+        void add(final int fromIndex, final int toIndex, final FrameNamedProjection projection, final boolean canBeBackward) {
+            if (size == from.length) {
+                from = Arrays.copyOf(from, size * 2);
+                to = Arrays.copyOf(to, size * 2);
+                projections = Arrays.copyOf(projections, size * 2);
+            }
+            from[size] = fromIndex;
+            to[size] = toIndex;
+            projections[size] = projection;
+            if (canBeBackward) {
+                mayBeBackward.set(size);
+            }
+            size++;
+        }
+
+        void clear() {
+            Arrays.fill(projections, 0, size, null);
+            mayBeBackward.clear();
+            size = 0;
+        }
+
+        /**
+         * Classifies the edges with an iterative depth first search using colour marks. An edge is a back edge if
+         * its target is still on the DFS stack when the edge is followed.
+         */
+        BitSet backEdges(final int numElements) {
+            // Successor edges of every element as compressed int adjacency, keeping the discovery order
+            final int[] firstEdge = new int[numElements + 1];
+            for (int e = 0; e < size; e++) {
+                firstEdge[from[e] + 1]++;
+            }
+            for (int i = 0; i < numElements; i++) {
+                firstEdge[i + 1] += firstEdge[i];
+            }
+            final int[] outgoing = new int[size];
+            final int[] fill = Arrays.copyOf(firstEdge, numElements);
+            for (int e = 0; e < size; e++) {
+                outgoing[fill[from[e]]++] = e;
+            }
+
+            final BitSet result = new BitSet(size);
+            final BitSet grey = new BitSet(numElements);
+            final BitSet black = new BitSet(numElements);
+            final int[] stack = new int[numElements];
+            final int[] nextEdge = Arrays.copyOf(firstEdge, numElements);
+            int top = 0;
+            stack[top++] = 0;
+            grey.set(0);
+            while (top > 0) {
+                final int v = stack[top - 1];
+                if (nextEdge[v] < firstEdge[v + 1]) {
+                    final int e = outgoing[nextEdge[v]++];
+                    final int w = to[e];
+                    if (grey.get(w)) {
+                        if (mayBeBackward.get(e)) {
+                            result.set(e);
+                        }
+                    } else if (!black.get(w)) {
+                        grey.set(w);
+                        stack[top++] = w;
+                    }
+                } else {
+                    grey.clear(v);
+                    black.set(v);
+                    top--;
+                }
+            }
+            return result;
+        }
     }
 
     private static class CatchHandler {
@@ -2490,6 +2700,76 @@ public class MethodAnalyzer {
         }
     }
 
+    /**
+     * Working state only needed while a method is analyzed. Every thread reuses its own instance for all methods it
+     * analyzes, so batch analysis does not allocate it again for every method.
+     */
+    static final class Scratch {
+
+        private static final ThreadLocal<Scratch> CURRENT = ThreadLocal.withInitial(Scratch::new);
+
+        private final Map<Label, Integer> labelToIndex = new HashMap<>();
+        private final Map<Label, List<TryCatchBlock>> tryCatchBlocks = new HashMap<>();
+        private final Map<TryCatchBlock, ExceptionGuard> exceptionGuards = new HashMap<>();
+        private final Map<Label, StackMapFrameInfo> stackMapFrames = new HashMap<>();
+        private final List<PHI> phis = new ArrayList<>();
+        private final CFGEdges edges = new CFGEdges();
+        private final BitSet visited = new BitSet();
+        private final BitSet queued = new BitSet();
+        private int[] jobs = new int[16];
+        private boolean inUse;
+        private int acquisitions;
+
+        /**
+         * Returns the instance shared by all analyses of the current thread.
+         */
+        static Scratch current() {
+            return CURRENT.get();
+        }
+
+        static Scratch acquire() {
+            final Scratch current = CURRENT.get();
+            if (current.inUse) {
+                // Analysis started while another one is running on the same thread
+                return new Scratch();
+            }
+            current.inUse = true;
+            current.acquisitions++;
+            return current;
+        }
+
+        /**
+         * Returns how many analyses used this instance.
+         */
+        int acquisitions() {
+            return acquisitions;
+        }
+
+        boolean inUse() {
+            return inUse;
+        }
+
+        int[] jobs(final int size) {
+            if (jobs.length < size) {
+                jobs = new int[size];
+            }
+            return jobs;
+        }
+
+        void release() {
+            // Everything is cleared, so no graph of the analyzed method is kept alive by the thread
+            labelToIndex.clear();
+            tryCatchBlocks.clear();
+            exceptionGuards.clear();
+            stackMapFrames.clear();
+            phis.clear();
+            edges.clear();
+            visited.clear();
+            queued.clear();
+            inUse = false;
+        }
+    }
+
     private static class TryCatchBlock {
         private final Label start;
         private final Label end;
@@ -8,7 +8,7 @@ public class MonitorEnter extends Node {
             illegalArgument("Expecting non primitive type for monitorenter on stack, got " + TypeUtils.toString(object.type));
         }
 
-        use(object, new ArgumentUse(0));
+        use(object, ArgumentUse.of(0));
     }
 
     @Override
@@ -8,7 +8,7 @@ public class MonitorExit extends Node {
             illegalArgument("Expecting non primitive type for monitorexit on stack, got " + TypeUtils.toString(object.type));
         }
 
-        use(object, new ArgumentUse(0));
+        use(object, ArgumentUse.of(0));
     }
 
     @Override
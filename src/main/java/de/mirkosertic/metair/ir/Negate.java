@@ -9,7 +9,7 @@ public class Negate extends Value {
             illegalArgument("Cannot negate non " + TypeUtils.toString(type) + " of type " + TypeUtils.toString(arg1.type));
         }
 
-        use(arg1, new ArgumentUse(0));
+        use(arg1, ArgumentUse.of(0));
     }
 
     @Override
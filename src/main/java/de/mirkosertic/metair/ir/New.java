@@ -5,7 +5,7 @@ public class New extends Value {
     New(final Value runtimeclassReference) {
         super(runtimeclassReference.type);
 
-        use(runtimeclassReference, new ArgumentUse(0));
+        use(runtimeclassReference, ArgumentUse.of(0));
     }
 
     @Override
@@ -9,7 +9,7 @@ public class NewArray extends Value {
             illegalArgument("Array length must be int, but was " + TypeUtils.toString(length.type));
         }
 
-        use(length, new ArgumentUse(0));
+        use(length, ArgumentUse.of(0));
     }
 
     @Override
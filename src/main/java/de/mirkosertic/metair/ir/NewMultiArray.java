@@ -12,7 +12,7 @@ public class NewMultiArray extends Value {
             if (!v.type.equals(IRType.CD_int)) {
                 illegalArgument("Array dimension must be int, but was " + TypeUtils.toString(v.type) + " for dimension " + (i + 1));
             }
-            use(v, new ArgumentUse(i));
+            use(v, ArgumentUse.of(i));
         }
     }
 
@@ -1,11 +1,12 @@
 package de.mirkosertic.metair.ir;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Supplier;
 
 public abstract class Node {
 
@@ -18,25 +19,135 @@ public abstract class Node {
         throw ex;
     }
 
+    // Dense id within the graph, assigned when the node is connected for the first time
+    Graph graph;
+    int id;
+
     // Incoming uses
-    protected final List<UseEdge> uses;
-    protected final Set<Node> usedBy;
-    private final Map<IRType.MetaClass, RuntimeclassReference> runtimeclassReferences;
+    protected final UseList uses;
+    protected final NodeSet usedBy;
+    // Reverse edges by kind, kept up to date by the UseList of the using node
+    private int dataFlowUseCount;
+    private NodeSet definitionUsers;
+    private NodeSet controlFlowUsers;
+    // Only a few nodes define runtime class references, so the map is created on demand
+    private Map<IRType.MetaClass, RuntimeclassReference> runtimeclassReferences;
+    private Map<Object, PrimitiveValue> primitiveConstants;
 
     protected Node() {
-        this.uses = new ArrayList<>();
-        this.usedBy = new HashSet<>();
-        this.runtimeclassReferences = new HashMap<>();
+        this.uses = new UseList(this);
+        this.usedBy = new NodeSet();
     }
 
     public Node controlFlowsTo(final Node target, final FlowType type) {
-        target.use(this, new ControlFlowUse(type));
+        target.use(this, ControlFlowUse.of(type));
         return target;
     }
 
     protected void use(final Node v, final Use use) {
-        uses.add(new UseEdge(v, use));
-        v.usedBy.add(this);
+        uses.add(v, use);
+    }
+
+    /**
+     * Returns the id of this node, unique within all nodes connected to it.
+     */
+    public int id() {
+        if (graph == null) {
+            new Graph().register(this);
+        }
+        return id;
+    }
+
+    /**
+     * Returns an upper bound of the ids of all nodes connected to this node.
+     */
+    int graphSize() {
+        id();
+        return graph.size();
+    }
+
+    /**
+     * Returns the number of nodes with at least one edge in the graph of this node, without traversing it.
+     */
+    int attachedNodes() {
+        id();
+        return graph.attachedNodes();
+    }
+
+    boolean isAttached() {
+        return uses.size() > 0 || !usedBy.isEmpty();
+    }
+
+    void userAdded(final Node user, final Use use) {
+        if (!isAttached()) {
+            graph.nodeAttached();
+        }
+        usedBy.add(user);
+        if (use instanceof DataFlowUse) {
+            dataFlowUseCount++;
+        } else if (use instanceof DefinedByUse) {
+            if (definitionUsers == null) {
+                definitionUsers = new NodeSet();
+            }
+            definitionUsers.add(user);
+        } else if (use instanceof ControlFlowUse) {
+            if (controlFlowUsers == null) {
+                controlFlowUsers = new NodeSet();
+            }
+            controlFlowUsers.add(user);
+        }
+    }
+
+    void userRemoved(final Node user, final Use use) {
+        if (use instanceof DataFlowUse) {
+            dataFlowUseCount--;
+        } else if (use instanceof DefinedByUse) {
+            if (!user.usesThisAs(this, DefinedByUse.class)) {
+                definitionUsers.remove(user);
+            }
+        } else if (use instanceof ControlFlowUse) {
+            if (!user.usesThisAs(this, ControlFlowUse.class)) {
+                controlFlowUsers.remove(user);
+            }
+        }
+        if (!user.usesThisAs(this, Use.class)) {
+            usedBy.remove(user);
+            if (!isAttached()) {
+                graph.nodeDetached();
+            }
+        }
+    }
+
+    /**
+     * Removes users not using this node anymore, and returns how many were removed.
+     */
+    int removeStaleUsers() {
+        int removed = 0;
+        for (final Node user : usedBy.toArray(new Node[0])) {
+            if (!user.usesThisAs(this, Use.class)) {
+                usedBy.remove(user);
+                if (definitionUsers != null) {
+                    definitionUsers.remove(user);
+                }
+                if (controlFlowUsers != null) {
+                    controlFlowUsers.remove(user);
+                }
+                removed++;
+            }
+        }
+        if (removed > 0 && !isAttached()) {
+            graph.nodeDetached();
+        }
+        return removed;
+    }
+
+    private boolean usesThisAs(final Node node, final Class<? extends Use> kind) {
+        for (int i = 0; i < uses.size(); i++) {
+            if (uses.node(i) == node && kind.isInstance(uses.use(i))) {
+                return true;
+            }
+        }
+        return false;
     }
 
     public Node memoryFlowsTo(final Node target) {
@@ -72,26 +183,36 @@ public abstract class Node {
     }
 
     public PrimitiveInt definePrimitiveInt(final int value) {
-        final PrimitiveInt v = new PrimitiveInt(value);
-        v.use(this, DefinedByUse.INSTANCE);
-        return v;
+        return (PrimitiveInt) definePrimitiveValue(value, () -> new PrimitiveInt(value));
     }
 
     public PrimitiveLong definePrimitiveLong(final long value) {
-        final PrimitiveLong v = new PrimitiveLong(value);
-        v.use(this, DefinedByUse.INSTANCE);
-        return v;
+        return (PrimitiveLong) definePrimitiveValue(value, () -> new PrimitiveLong(value));
     }
 
     public PrimitiveFloat definePrimitiveFloat(final float value) {
-        final PrimitiveFloat v = new PrimitiveFloat(value);
-        v.use(this, DefinedByUse.INSTANCE);
-        return v;
+        return (PrimitiveFloat) definePrimitiveValue(value, () -> new PrimitiveFloat(value));
     }
 
     public PrimitiveDouble definePrimitiveDouble(final double value) {
-        final PrimitiveDouble v = new PrimitiveDouble(value);
+        return (PrimitiveDouble) definePrimitiveValue(value, () -> new PrimitiveDouble(value));
+    }
+
+    /**
+     * Primitive constants are shared by all users, keyed by their boxed value, so {@code 0} and {@code 0L} are
+     * different constants. A constant detached from the graph is replaced by a new one.
+     */
+    private PrimitiveValue definePrimitiveValue(final Object key, final Supplier<PrimitiveValue> factory) {
+        if (primitiveConstants == null) {
+            primitiveConstants = new HashMap<>();
+        }
+        final PrimitiveValue existing = primitiveConstants.get(key);
+        if (existing != null && existing.uses.size() > 0) {
+            return existing;
+        }
+        final PrimitiveValue v = factory.get();
         v.use(this, DefinedByUse.INSTANCE);
+        primitiveConstants.put(key, v);
         return v;
     }
 
@@ -102,6 +223,9 @@ public abstract class Node {
     }
 
     public RuntimeclassReference defineRuntimeclassReference(final IRType.MetaClass type) {
+        if (runtimeclassReferences == null) {
+            runtimeclassReferences = new HashMap<>();
+        }
         return runtimeclassReferences.computeIfAbsent(type, key -> {
             final RuntimeclassReference r = new RuntimeclassReference(key);
             r.use(this, DefinedByUse.INSTANCE);
@@ -109,37 +233,84 @@ public abstract class Node {
         });
     }
 
+    /**
+     * Redirects all users of this node to the replacement and detaches this node from its inputs.
+     */
+    void replaceWith(final Node replacement) {
+        for (final Node user : usedBy.toArray(new Node[0])) {
+            user.uses.replaceNode(this, replacement);
+        }
+        uses.clear();
+    }
+
     public boolean isDataUsedMultipleTimes() {
-        int x = 0;
-        for (final Node user : usedBy) {
-            for (final UseEdge edge : user.uses) {
-                if (edge.use() instanceof DataFlowUse && edge.node() == this) {
-                    x++;
-                }
-            }
+        return dataFlowUseCount > 1;
+    }
+
+    /**
+     * Returns the number of data flow edges using this node.
+     */
+    public int dataFlowUseCount() {
+        return dataFlowUseCount;
+    }
+
+    /**
+     * Returns all nodes using this node as a control flow predecessor, in the order they were connected.
+     */
+    public Set<Node> controlFlowUsers() {
+        if (controlFlowUsers == null) {
+            return Set.of();
         }
-        return x > 1;
+        return Collections.unmodifiableSet(controlFlowUsers);
     }
 
     public List<Node> arguments() {
-        return uses.stream().filter(e -> e.use instanceof ArgumentUse).map(x -> x.node).toList();
+        final List<Node> result = new ArrayList<>();
+        for (int i = 0; i < uses.size(); i++) {
+            if (uses.use(i) instanceof ArgumentUse) {
+                result.add(uses.node(i));
+            }
+        }
+        return result;
     }
 
     public List<Node> definitions() {
-        final List<Node> result = new ArrayList<>();
-        for (final Node user : usedBy) {
-            for (final UseEdge edge : user.uses) {
-                if (edge.use() instanceof DefinedByUse && edge.node() == this) {
-                    result.add(user);
-                }
+        if (definitionUsers == null) {
+            return List.of();
+        }
+        return List.copyOf(definitionUsers);
+    }
+
+    /**
+     * Returns the node defining this node, or {@code null} if there is none.
+     */
+    Node definedBy() {
+        for (int i = 0; i < uses.size(); i++) {
+            if (uses.use(i) instanceof DefinedByUse) {
+                return uses.node(i);
             }
         }
-        return result;
+        return null;
+    }
+
+    /**
+     * Returns the first control flow predecessor of this node, or {@code null} if there is none.
+     */
+    Node controlFlowPredecessor() {
+        for (int i = 0; i < uses.size(); i++) {
+            if (uses.use(i) instanceof ControlFlowUse) {
+                return uses.node(i);
+            }
+        }
+        return null;
     }
 
+    /**
+     * A single incoming edge. Instances are read-only views of the {@link UseList} of the using node.
+     */
     public static class UseEdge {
 
-        protected Node node;
+        protected final Node node;
         protected final Use use;
 
         public UseEdge(final Node node, final Use use) {
@@ -154,5 +325,15 @@ public abstract class Node {
         public Node node() {
             return node;
         }
+
+        @Override
+        public boolean equals(final Object o) {
+            return o instanceof final UseEdge other && node == other.node && use.equals(other.use);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(node) + use.hashCode();
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,143 @@
+package de.mirkosertic.metair.ir;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Identity based, insertion ordered set of nodes backed by an array.
+ * <p>
+ * Most nodes have only a few users, so membership is checked by a linear scan. Only sets growing beyond
+ * {@link #INDEX_THRESHOLD} elements get an additional hash index.
+ */
+final class NodeSet extends AbstractSet<Node> {
+
+    private static final int INDEX_THRESHOLD = 8;
+    private static final Node[] EMPTY = new Node[0];
+
+    private Node[] elements;
+    private int size;
+    private Set<Node> index;
+    private int modCount;
+
+    NodeSet() {
+        this.elements = EMPTY;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean contains(final Object o) {
+        if (index != null) {
+            return index.contains(o);
+        }
+        return indexOf(o) >= 0;
+    }
+
+    private int indexOf(final Object o) {
+        for (int i = 0; i < size; i++) {
+            if (elements[i] == o) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean add(final Node node) {
+        if (contains(node)) {
+            return false;
+        }
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, Math.max(4, size * 2));
+        }
+        elements[size++] = node;
+        if (index != null) {
+            index.add(node);
+        } else if (size > INDEX_THRESHOLD) {
+            index = Collections.newSetFromMap(new IdentityHashMap<>());
+            index.addAll(Arrays.asList(elements).subList(0, size));
+        }
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public boolean remove(final Object o) {
+        if (index != null && !index.remove(o)) {
+            return false;
+        }
+        final int position = indexOf(o);
+        if (position < 0) {
+            return false;
+        }
+        removeAt(position);
+        return true;
+    }
+
+    private void removeAt(final int position) {
+        System.arraycopy(elements, position + 1, elements, position, size - position - 1);
+        elements[--size] = null;
+        modCount++;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(elements, 0, size, null);
+        size = 0;
+        index = null;
+        modCount++;
+    }
+
+    @Override
+    public Iterator<Node> iterator() {
+        return new Iterator<>() {
+
+            private int cursor;
+            private int last = -1;
+            private int expectedModCount = modCount;
+
+            @Override
+            public boolean hasNext() {
+                return cursor < size;
+            }
+
+            @Override
+            public Node next() {
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (cursor >= size) {
+                    throw new NoSuchElementException();
+                }
+                last = cursor++;
+                return elements[last];
+            }
+
+            @Override
+            public void remove() {
+                if (last < 0) {
+                    throw new IllegalStateException();
+                }
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (index != null) {
+                    index.remove(elements[last]);
+                }
+                removeAt(last);
+                cursor = last;
+                last = -1;
+                expectedModCount = modCount;
+            }
+        };
+    }
+}
@@ -23,8 +23,8 @@ public class NumericCompare extends Value {
         this.mode = mode;
         this.compareType = compareType;
 
-        use(arg1, new ArgumentUse(0));
-        use(arg2, new ArgumentUse(1));
+        use(arg1, ArgumentUse.of(0));
+        use(arg2, ArgumentUse.of(1));
     }
 
     @Override
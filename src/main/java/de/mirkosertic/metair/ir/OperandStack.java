@@ -0,0 +1,79 @@
+package de.mirkosertic.metair.ir;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.EmptyStackException;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * The abstract JVM operand stack, backed by an array and not synchronized.
+ * <p>
+ * Index 0 is the bottom of the stack, like with {@link java.util.Stack}.
+ */
+final class OperandStack extends AbstractList<Value> implements RandomAccess {
+
+    private static final int DEFAULT_CAPACITY = 8;
+
+    private Value[] elements;
+    private int size;
+
+    OperandStack(final int capacity) {
+        this.elements = new Value[Math.max(capacity, 1)];
+    }
+
+    OperandStack() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    private OperandStack(final OperandStack other) {
+        this.elements = Arrays.copyOf(other.elements, other.elements.length);
+        this.size = other.size;
+    }
+
+    OperandStack copy() {
+        return new OperandStack(this);
+    }
+
+    Value push(final Value value) {
+        if (size == elements.length) {
+            // The capacity is taken from max_stack, but we do not fail here, the verifier already did
+            elements = Arrays.copyOf(elements, size * 2);
+        }
+        elements[size++] = value;
+        return value;
+    }
+
+    Value pop() {
+        if (size == 0) {
+            throw new EmptyStackException();
+        }
+        final Value result = elements[--size];
+        elements[size] = null;
+        return result;
+    }
+
+    Value peek() {
+        if (size == 0) {
+            throw new EmptyStackException();
+        }
+        return elements[size - 1];
+    }
+
+    @Override
+    public Value get(final int index) {
+        Objects.checkIndex(index, size);
+        return elements[index];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(elements, 0, size, null);
+        size = 0;
+    }
+}
@@ -19,4 +19,23 @@ public class PHI extends Value {
         }
         return null;
     }
+
+    /**
+     * Returns the only value flowing into this PHI apart from itself, or {@code null} if there is more than one.
+     */
+    Node singleInput() {
+        Node single = null;
+        for (int i = 0; i < uses.size(); i++) {
+            if (uses.use(i) instanceof PHIUse) {
+                final Node input = uses.node(i);
+                if (input != this && input != single) {
+                    if (single != null) {
+                        return null;
+                    }
+                    single = input;
+                }
+            }
+        }
+        return single;
+    }
 }
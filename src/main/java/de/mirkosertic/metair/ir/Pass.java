@@ -0,0 +1,26 @@
+package de.mirkosertic.metair.ir;
+
+/**
+ * A transformation of a {@link Method} graph, run by a {@link PassManager}.
+ */
+public interface Pass {
+
+    enum Changes {
+        // Nothing was changed, all cached analyses are still valid
+        NONE,
+        // Only data flow was changed, analyses depending on the control flow only are still valid
+        DATA_FLOW,
+        // Control flow was changed, no cached analysis is valid anymore
+        CONTROL_FLOW
+    }
+
+    default String name() {
+        return getClass().getSimpleName();
+    }
+
+    /**
+     * Runs the pass and reports what it changed. Derived information should be taken from the analyses, so it is
+     * computed only once for all passes not invalidating it.
+     */
+    Changes run(Method method, PassManager.Analyses analyses);
+}
@@ -0,0 +1,92 @@
+package de.mirkosertic.metair.ir;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs an ordered pipeline of {@link Pass}es over a {@link Method} graph.
+ * <p>
+ * Analyses requested by the passes are cached and shared, and only dropped when a pass reports a change they depend
+ * on. Every pass run is recorded with its wall time and the number of nodes before and after, so the cost and effect
+ * of every pass can be measured. Nodes are counted by the graph itself, so recording a run does not compute any
+ * analysis.
+ */
+public class PassManager {
+
+    public record PassRun(String pass, long nanos, int nodesBefore, int nodesAfter, Pass.Changes changes) {
+
+        public int nodeDelta() {
+            return nodesAfter - nodesBefore;
+        }
+    }
+
+    public record Result(Analyses analyses, List<PassRun> runs) {
+
+        public Result {
+            runs = List.copyOf(runs);
+        }
+    }
+
+    public static class Analyses {
+
+        private final Method method;
+        private final Map<Analysis<?>, Object> cache;
+
+        Analyses(final Method method) {
+            this.method = method;
+            this.cache = new HashMap<>();
+        }
+
+        @SuppressWarnings("unchecked")
+        public <T> T get(final Analysis<T> analysis) {
+            T result = (T) cache.get(analysis);
+            if (result == null) {
+                result = analysis.compute(method);
+                cache.put(analysis, result);
+            }
+            return result;
+        }
+
+        boolean isCached(final Analysis<?> analysis) {
+            return cache.containsKey(analysis);
+        }
+
+        void invalidate(final Pass.Changes changes) {
+            switch (changes) {
+                case NONE -> {
+                }
+                case DATA_FLOW -> cache.keySet().removeIf(analysis -> !analysis.controlFlowOnly());
+                case CONTROL_FLOW -> cache.clear();
+            }
+        }
+
+        int numberOfNodes() {
+            return method.attachedNodes();
+        }
+    }
+
+    private final List<Pass> passes;
+
+    public PassManager(final List<Pass> passes) {
+        this.passes = List.copyOf(passes);
+    }
+
+    public Result run(final Method method) {
+        final Analyses analyses = new Analyses(method);
+        final List<PassRun> runs = new ArrayList<>();
+        for (final Pass pass : passes) {
+            final int nodesBefore = analyses.numberOfNodes();
+            final long start = System.nanoTime();
+            final Pass.Changes changes = pass.run(method, analyses);
+            final long nanos = System.nanoTime() - start;
+            if (changes == null) {
+                throw new IllegalStateException("Pass " + pass.name() + " did not report its changes");
+            }
+            analyses.invalidate(changes);
+            runs.add(new PassRun(pass.name(), nanos, nodesBefore, analyses.numberOfNodes(), changes));
+        }
+        return new Result(analyses, runs);
+    }
+}
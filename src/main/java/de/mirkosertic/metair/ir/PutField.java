@@ -26,8 +26,8 @@ public class PutField extends Node {
         this.fieldName = fieldName;
         this.fieldType = fieldType;
 
-        use(target, new ArgumentUse(0));
-        use(value, new ArgumentUse(1));
+        use(target, ArgumentUse.of(0));
+        use(value, ArgumentUse.of(1));
     }
 
     @Override
@@ -19,8 +19,8 @@ public class PutStatic extends Node {
             }
         }
 
-        use(target, new ArgumentUse(0));
-        use(value, new ArgumentUse(1));
+        use(target, ArgumentUse.of(0));
+        use(value, ArgumentUse.of(1));
     }
 
     @Override
@@ -13,8 +13,8 @@ public class ReferenceCondition extends Value {
 
         this.operation = operation;
 
-        use(a, new ArgumentUse(0));
-        use(b, new ArgumentUse(1));
+        use(a, ArgumentUse.of(0));
+        use(b, ArgumentUse.of(1));
     }
 
     @Override
@@ -13,7 +13,7 @@ public class ReferenceTest extends Value {
 
         this.operation = operation;
 
-        use(a, new ArgumentUse(0));
+        use(a, ArgumentUse.of(0));
     }
 
     @Override
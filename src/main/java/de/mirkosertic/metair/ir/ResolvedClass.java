@@ -1,7 +1,6 @@
 package de.mirkosertic.metair.ir;
 
 import java.lang.classfile.ClassModel;
-import java.lang.classfile.FieldModel;
 import java.lang.classfile.MethodModel;
 import java.lang.constant.ClassDesc;
 import java.lang.constant.MethodTypeDesc;
@@ -14,19 +13,193 @@ import java.util.Map;
 public class ResolvedClass {
 
     private final ResolverContext resolverContext;
-    private ClassModel classModel;
+    private ClassSummary summary;
+    private Memoizer.Task<ClassModel> classModel;
     private boolean loaded;
-    private ResolvedClass superClass;
-    private final List<ResolvedClass> interfaces;
+    private Memoizer.Task<ResolvedClass> superClass;
+    private Memoizer.Task<List<ResolvedClass>> interfaces;
     private IRType.MetaClass thisType;
-    private final Map<String, ResolvedField> fields;
+    private final Memoizer<String, ResolvedField> fields;
+    private final Memoizer<MethodModel, ResolvedMethod> methods;
+    private final Memoizer.Task<Map<String, ClassSummary.Member>> declaredFields;
+    private final Memoizer.Task<Map<String, MethodModel>> declaredMethods;
+    private final Memoizer.Task<Map<String, ResolvedMethod>> methodTable;
+    private final Memoizer.Task<Map<String, ResolvedMethod>> vtable;
 
     public ResolvedClass(final ResolverContext resolverContext) {
         this.loaded = false;
         this.resolverContext = resolverContext;
-        this.interfaces = new ArrayList<>();
-        this.superClass = null;
-        this.fields = new HashMap<>();
+        this.fields = new Memoizer<>();
+        this.methods = new Memoizer<>();
+        this.declaredFields = new Memoizer.Task<>(this::computeDeclaredFields);
+        this.declaredMethods = new Memoizer.Task<>(this::computeDeclaredMethods);
+        this.methodTable = new Memoizer.Task<>(this::computeMethodTable);
+        this.vtable = new Memoizer.Task<>(this::computeVtable);
+    }
+
+    private static String key(final String name, final String descriptor) {
+        return name + descriptor;
+    }
+
+    private Map<String, ClassSummary.Member> computeDeclaredFields() {
+        final Map<String, ClassSummary.Member> result = new HashMap<>();
+        for (final ClassSummary.Member field : summary.fields()) {
+            result.put(field.name(), field);
+        }
+        return result;
+    }
+
+    private Map<String, MethodModel> computeDeclaredMethods() {
+        final Map<String, MethodModel> result = new HashMap<>();
+        for (final MethodModel methodModel : classModel().methods()) {
+            result.put(key(methodModel.methodName().stringValue(), methodModel.methodType().stringValue()), methodModel);
+        }
+        return result;
+    }
+
+    private Map<String, ResolvedMethod> computeMethodTable() {
+        // Flattened in the order of the JVM method resolution, declared methods first, then the methods declared by
+        // the super classes, then the maximally-specific methods of all super interfaces
+        final Map<String, ResolvedMethod> result = new HashMap<>();
+        for (final Map.Entry<String, MethodModel> entry : declaredMethods.get().entrySet()) {
+            result.put(entry.getKey(), resolveMethod(entry.getValue()));
+        }
+        final Map<String, List<ResolvedMethod>> candidates = new HashMap<>();
+        final ResolvedClass superClass = superClass();
+        if (superClass != null) {
+            for (final Map.Entry<String, ResolvedMethod> entry : superClass.methodTable().entrySet()) {
+                if (entry.getValue().thisClass().isInterface()) {
+                    candidates.computeIfAbsent(entry.getKey(), key -> new ArrayList<>()).add(entry.getValue());
+                } else {
+                    result.putIfAbsent(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        for (final ResolvedClass iface : interfaces()) {
+            for (final Map.Entry<String, ResolvedMethod> entry : iface.methodTable().entrySet()) {
+                // Static and private interface methods are not inherited
+                if (entry.getValue().thisClass().isInterface() && !entry.getValue().isStatic() && !entry.getValue().isPrivate()) {
+                    candidates.computeIfAbsent(entry.getKey(), key -> new ArrayList<>()).add(entry.getValue());
+                }
+            }
+        }
+        for (final Map.Entry<String, List<ResolvedMethod>> entry : candidates.entrySet()) {
+            if (!result.containsKey(entry.getKey())) {
+                final ResolvedMethod selected = selectInterfaceMethod(entry.getValue());
+                // With conflicting defaults, resolution still succeeds with any of the candidates
+                result.put(entry.getKey(), selected != null ? selected : entry.getValue().getFirst());
+            }
+        }
+        return result;
+    }
+
+    private Map<String, ResolvedMethod> computeVtable() {
+        final Map<String, ResolvedMethod> result = new HashMap<>();
+        final ResolvedClass superClass = superClass();
+        if (superClass != null) {
+            result.putAll(superClass.vtable());
+        }
+        for (final MethodModel methodModel : declaredMethods.get().values()) {
+            final ResolvedMethod method = resolveMethod(methodModel);
+            if (method.isVirtual()) {
+                result.put(key(methodModel.methodName().stringValue(), methodModel.methodType().stringValue()), method);
+            }
+        }
+        // Interface methods are only selected if no class in the hierarchy declares them. Interface methods inherited
+        // from the super class compete with the ones of the own interfaces, as a more specific default can replace them
+        final Map<String, List<ResolvedMethod>> candidates = new HashMap<>();
+        for (final Map.Entry<String, ResolvedMethod> entry : result.entrySet()) {
+            if (entry.getValue().thisClass().isInterface()) {
+                candidates.computeIfAbsent(entry.getKey(), key -> new ArrayList<>()).add(entry.getValue());
+            }
+        }
+        for (final ResolvedClass iface : interfaces()) {
+            for (final Map.Entry<String, ResolvedMethod> entry : iface.vtable().entrySet()) {
+                final ResolvedMethod inherited = result.get(entry.getKey());
+                if (inherited == null || inherited.thisClass().isInterface()) {
+                    candidates.computeIfAbsent(entry.getKey(), key -> new ArrayList<>()).add(entry.getValue());
+                }
+            }
+        }
+        for (final Map.Entry<String, List<ResolvedMethod>> entry : candidates.entrySet()) {
+            final ResolvedMethod selected = selectInterfaceMethod(entry.getValue());
+            if (selected != null) {
+                result.put(entry.getKey(), selected);
+            } else {
+                result.remove(entry.getKey());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Selects among interface methods like the JVM does: only maximally-specific methods are considered, and the only
+     * default method among them is selected. If there is none, an abstract method stands in, if there is more than
+     * one, the call fails at runtime and {@code null} is returned.
+     */
+    private static ResolvedMethod selectInterfaceMethod(final List<ResolvedMethod> candidates) {
+        final List<ResolvedMethod> maximallySpecific = new ArrayList<>();
+        for (final ResolvedMethod candidate : candidates) {
+            boolean overridden = false;
+            for (final ResolvedMethod other : candidates) {
+                if (other.thisClass().extendsInterface(candidate.thisClass())) {
+                    overridden = true;
+                    break;
+                }
+            }
+            if (!overridden && !maximallySpecific.contains(candidate)) {
+                maximallySpecific.add(candidate);
+            }
+        }
+        ResolvedMethod selected = null;
+        for (final ResolvedMethod method : maximallySpecific) {
+            if (!method.isAbstract()) {
+                if (selected != null) {
+                    return null;
+                }
+                selected = method;
+            }
+        }
+        if (selected != null) {
+            return selected;
+        }
+        return maximallySpecific.getFirst();
+    }
+
+    private boolean extendsInterface(final ResolvedClass iface) {
+        for (final ResolvedClass i : interfaces()) {
+            if (i == iface || i.extendsInterface(iface)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * All methods visible in this class by name and descriptor, flattened in the order of the JVM method resolution.
+     * For interfaces, this is the interface method table.
+     */
+    Map<String, ResolvedMethod> methodTable() {
+        return methodTable.get();
+    }
+
+    /**
+     * The methods selected by a virtual or interface call on an instance of exactly this class, by name and descriptor.
+     */
+    Map<String, ResolvedMethod> vtable() {
+        return vtable.get();
+    }
+
+    public boolean isInterface() {
+        return summary.has(AccessFlag.INTERFACE);
+    }
+
+    public boolean isAbstract() {
+        return summary.has(AccessFlag.ABSTRACT);
+    }
+
+    public boolean isFinal() {
+        return summary.has(AccessFlag.FINAL);
     }
 
     public boolean isLoaded() {
@@ -34,11 +207,11 @@ public class ResolvedClass {
     }
 
     public List<ResolvedField> resolvedFields() {
-        return new ArrayList<>(fields.values());
+        return fields.values();
     }
 
     public boolean hasInterface(final ClassDesc interfaceType) {
-        for (final ResolvedClass i : interfaces) {
+        for (final ResolvedClass i : interfaces()) {
             if (i.thisType().type().equals(interfaceType)) {
                 return true;
             }
@@ -47,45 +220,85 @@ public class ResolvedClass {
     }
 
     public void loaded(final ClassModel classModel, final ResolvedClass superClass, final List<ResolvedClass> interfaces) {
+        final List<ResolvedClass> resolvedInterfaces = new ArrayList<>(interfaces);
+        loaded(ClassSummary.of(classModel), new Memoizer.Task<>(() -> classModel), new Memoizer.Task<>(() -> superClass), new Memoizer.Task<>(() -> resolvedInterfaces));
+    }
+
+    void loaded(final ClassSummary summary, final Memoizer.Task<ClassModel> classModel, final Memoizer.Task<ResolvedClass> superClass, final Memoizer.Task<List<ResolvedClass>> interfaces) {
+        this.summary = summary;
         this.classModel = classModel;
         this.loaded = true;
         this.superClass = superClass;
-        this.interfaces.addAll(interfaces);
+        this.interfaces = interfaces;
 
-        this.thisType = IRType.MetaClass.of(classModel.thisClass().asSymbol());
-
-        for (final MethodModel methodModel : classModel.methods()) {
-            if (!methodModel.flags().has(AccessFlag.ABSTRACT) && !methodModel.flags().has(AccessFlag.NATIVE) && "<clinit>".equals(methodModel.methodName().stringValue())) {
-                // We need to resolve a static class initializers
-                resolveMethod(methodModel);
-            }
-        }
+        this.thisType = IRType.MetaClass.of(ClassDesc.of(summary.thisClass()));
     }
 
     public ResolvedMethod resolveMethodForSpecialInvocation(final String methodName, final MethodTypeDesc methodTypeDesc) {
-        for (final MethodModel methodModel : classModel.methods()) {
-            if (methodModel.methodName().stringValue().equals(methodName) && methodModel.methodTypeSymbol().equals(methodTypeDesc)) {
-                return resolveMethod(methodModel);
-            }
+        final ResolvedMethod result = findMethod(methodName, methodTypeDesc);
+        if (result == null) {
+            throw new IllegalArgumentException("Cannot find method " + methodName + " with type " + TypeUtils.toString(methodTypeDesc));
         }
-        throw new IllegalArgumentException("Cannot find method " + methodName + " with type " + TypeUtils.toString(methodTypeDesc));
+        return result;
     }
 
     public ResolvedMethod resolveMethodForStaticInvocation(final String methodName, final MethodTypeDesc methodTypeDesc) {
-        for (final MethodModel methodModel : classModel.methods()) {
-            if (methodModel.methodName().stringValue().equals(methodName) && methodModel.methodTypeSymbol().equals(methodTypeDesc)) {
-                return resolveMethod(methodModel);
+        final ResolvedMethod result = findMethod(methodName, methodTypeDesc);
+        if (result == null) {
+            throw new IllegalArgumentException("Cannot find method " + methodName + " with type " + TypeUtils.toString(methodTypeDesc));
+        }
+        return result;
+    }
+
+    /**
+     * Resolves a method by name and type like the JVM does for a symbolic method reference with this class as owner.
+     * Returns {@code null} if there is no such method.
+     */
+    public ResolvedMethod findMethod(final String methodName, final MethodTypeDesc methodTypeDesc) {
+        final ResolvedMethod result = methodTable().get(key(methodName, methodTypeDesc.descriptorString()));
+        if (result != null) {
+            return result;
+        }
+        // Signature polymorphic methods like MethodHandle.invokeExact match any descriptor
+        final String className = summary.thisClass();
+        if ("java.lang.invoke.MethodHandle".equals(className) || "java.lang.invoke.VarHandle".equals(className)) {
+            for (final MethodModel methodModel : declaredMethods.get().values()) {
+                if (methodModel.methodName().equalsString(methodName) && methodModel.flags().has(AccessFlag.NATIVE) && methodModel.flags().has(AccessFlag.VARARGS)) {
+                    return resolveMethod(methodModel);
+                }
             }
         }
-        throw new IllegalArgumentException("Cannot find method " + methodName + " with type " + TypeUtils.toString(methodTypeDesc));
+        return null;
+    }
+
+    /**
+     * Selects the method invoked by a virtual or interface call on an instance of exactly this class.
+     * Returns {@code null} if there is no such method.
+     */
+    public ResolvedMethod selectMethod(final String methodName, final MethodTypeDesc methodTypeDesc) {
+        return vtable().get(key(methodName, methodTypeDesc.descriptorString()));
     }
 
     public ResolvedMethod resolveMethod(final MethodModel methodModel) {
-        return new ResolvedMethod(resolverContext, this, methodModel);
+        return methods.computeIfAbsent(methodModel, key -> new ResolvedMethod(resolverContext, this, key));
+    }
+
+    public ResolvedClass superClass() {
+        // In lazy mode, the super class is resolved on first access
+        return superClass.get();
+    }
+
+    public List<ResolvedClass> interfaces() {
+        return interfaces.get();
+    }
+
+    public ClassSummary summary() {
+        return summary;
     }
 
     public ClassModel classModel() {
-        return classModel;
+        // The class file is only parsed if the model is really needed, hierarchy and field lookups use the summary
+        return classModel.get();
     }
 
     public IRType.MetaClass thisType() {
@@ -94,13 +307,13 @@ public class ResolvedClass {
 
     public ResolvedField resolveStaticField(final String fieldName) {
         return fields.computeIfAbsent(fieldName, key -> {
-            for (final FieldModel fieldModel : classModel.fields()) {
-                if (fieldModel.flags().has(AccessFlag.STATIC) && fieldName.equals(fieldModel.fieldName().stringValue())) {
-                    final IRType.MetaClass type = resolverContext.resolveType(fieldModel.fieldTypeSymbol());
-                    return new ResolvedField(ResolvedClass.this, key, type, fieldModel);
-                }
+            final ClassSummary.Member field = declaredFields.get().get(fieldName);
+            if (field != null && field.has(AccessFlag.STATIC)) {
+                final IRType.MetaClass type = resolverContext.resolveType(ClassDesc.ofDescriptor(field.descriptor()));
+                return new ResolvedField(ResolvedClass.this, key, type);
             }
             // TODO: Check in class hierarchy
+            final ResolvedClass superClass = superClass();
             if (superClass != null) {
                 return superClass.resolveStaticField(fieldName);
             }
@@ -110,13 +323,13 @@ public class ResolvedClass {
 
     public ResolvedField resolveMemberField(final String fieldName) {
         return fields.computeIfAbsent(fieldName, key -> {
-            for (final FieldModel fieldModel : classModel.fields()) {
-                if (!fieldModel.flags().has(AccessFlag.STATIC) && fieldName.equals(fieldModel.fieldName().stringValue())) {
-                    final IRType.MetaClass type = resolverContext.resolveType(fieldModel.fieldTypeSymbol());
-                    return new ResolvedField(ResolvedClass.this, key, type, fieldModel);
-                }
+            final ClassSummary.Member field = declaredFields.get().get(fieldName);
+            if (field != null && !field.has(AccessFlag.STATIC)) {
+                final IRType.MetaClass type = resolverContext.resolveType(ClassDesc.ofDescriptor(field.descriptor()));
+                return new ResolvedField(ResolvedClass.this, key, type);
             }
             // TODO: Check in class hierarchy
+            final ResolvedClass superClass = superClass();
             if (superClass != null) {
                 return superClass.resolveMemberField(fieldName);
             }
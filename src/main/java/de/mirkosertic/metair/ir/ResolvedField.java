@@ -7,13 +7,11 @@ public class ResolvedField {
     private final ResolvedClass owner;
     private final String fieldName;
     private final IRType.MetaClass type;
-    private final FieldModel fieldModel;
 
-    public ResolvedField(final ResolvedClass owner, final String fieldName, final IRType.MetaClass type, final FieldModel fieldModel) {
+    public ResolvedField(final ResolvedClass owner, final String fieldName, final IRType.MetaClass type) {
         this.owner = owner;
         this.fieldName = fieldName;
         this.type = type;
-        this.fieldModel = fieldModel;
     }
 
     public ResolvedClass owner() {
@@ -29,6 +27,12 @@ public class ResolvedField {
     }
 
     public FieldModel fieldModel() {
-        return fieldModel;
+        // Looked up on demand, so resolving a field does not require to parse the owning class
+        for (final FieldModel fieldModel : owner.classModel().fields()) {
+            if (fieldName.equals(fieldModel.fieldName().stringValue())) {
+                return fieldModel;
+            }
+        }
+        throw new IllegalStateException("Cannot find field " + fieldName + " in class " + TypeUtils.toString(owner.thisType()));
     }
 }
@@ -1,24 +1,50 @@
 package de.mirkosertic.metair.ir;
 
 import java.lang.classfile.MethodModel;
+import java.lang.reflect.AccessFlag;
 
 public class ResolvedMethod {
 
     private final ResolverContext resolverContext;
     private final ResolvedClass owner;
     private final MethodModel methodModel;
-    private MethodAnalyzer analyzer;
+    private final Memoizer.Task<MethodAnalyzer> analyzer;
 
     public ResolvedMethod(final ResolverContext resolverContext, final ResolvedClass owner, final MethodModel methodModel) {
         this.resolverContext = resolverContext;
         this.owner = owner;
         this.methodModel = methodModel;
+        this.analyzer = new Memoizer.Task<>(() -> new MethodAnalyzer(resolverContext, owner.thisType(), methodModel));
     }
 
     public boolean isConstructor() {
         return "<init>".equals(methodModel.methodName().stringValue());
     }
 
+    public boolean isStatic() {
+        return methodModel.flags().has(AccessFlag.STATIC);
+    }
+
+    public boolean isPrivate() {
+        return methodModel.flags().has(AccessFlag.PRIVATE);
+    }
+
+    public boolean isAbstract() {
+        return methodModel.flags().has(AccessFlag.ABSTRACT);
+    }
+
+    public boolean isFinal() {
+        return methodModel.flags().has(AccessFlag.FINAL);
+    }
+
+    /**
+     * Returns true if this method can be selected by a virtual or interface call, and thus be overridden.
+     */
+    public boolean isVirtual() {
+        final String name = methodModel.methodName().stringValue();
+        return !isStatic() && !isPrivate() && !"<init>".equals(name) && !"<clinit>".equals(name);
+    }
+
     public MethodModel methodModel() {
         return methodModel;
     }
@@ -28,9 +54,7 @@ public class ResolvedMethod {
     }
 
     public MethodAnalyzer analyze() {
-        if (analyzer == null) {
-            analyzer = new MethodAnalyzer(resolverContext, owner.thisType(), methodModel);
-        }
-        return analyzer;
+        // The method is analyzed only once, even if multiple threads ask for it at the same time
+        return analyzer.get();
     }
 }
@@ -1,28 +1,50 @@
 package de.mirkosertic.metair.ir;
 
-import java.io.File;
-import java.io.IOException;
-import java.io.InputStream;
 import java.lang.classfile.ClassFile;
 import java.lang.classfile.ClassModel;
-import java.lang.classfile.constantpool.ClassEntry;
 import java.lang.constant.ClassDesc;
 import java.lang.constant.MethodTypeDesc;
 import java.lang.reflect.Array;
-import java.net.URL;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
+/**
+ * Resolves classes, methods and fields for the analysis.
+ * <p>
+ * A context is thread-safe and can be shared by multiple threads analyzing methods in parallel. Every class
+ * is loaded and parsed exactly once, threads resolving different classes do not block each other.
+ */
 public class ResolverContext {
 
-    private final ClassLoader classLoader;
-    private final Map<String, ResolvedClass> resolvedClasses;
+    private final ClassFileSource classFileSource;
+    private final ClassSummaryCache summaryCache;
+    private final boolean lazyHierarchy;
+    private final Memoizer<String, ResolvedClass> resolvedClasses;
+
+    /**
+     * Creates a new context.
+     * <p>
+     * In lazy hierarchy mode, super classes and interfaces of a class are only resolved when a query like a field
+     * lookup or {@link ResolvedClass#hasInterface(ClassDesc)} needs them, and {@link #resolveType(ClassDesc)} does
+     * not resolve the class of a type at all.
+     */
+    public ResolverContext(final ClassFileSource classFileSource, final ClassSummaryCache summaryCache, final boolean lazyHierarchy) {
+        this.classFileSource = classFileSource;
+        this.summaryCache = summaryCache;
+        this.lazyHierarchy = lazyHierarchy;
+        this.resolvedClasses = new Memoizer<>();
+    }
+
+    public ResolverContext(final ClassFileSource classFileSource, final ClassSummaryCache summaryCache) {
+        this(classFileSource, summaryCache, false);
+    }
+
+    public ResolverContext(final ClassFileSource classFileSource) {
+        this(classFileSource, null);
+    }
 
     public ResolverContext(final ClassLoader aClassLoader) {
-        this.classLoader = aClassLoader;
-        this.resolvedClasses = new HashMap<>();
+        this(new ClassLoaderClassFileSource(aClassLoader));
     }
 
     public ResolverContext() {
@@ -33,66 +55,72 @@ public class ResolverContext {
         return resolvedClasses.size();
     }
 
+    /**
+     * Returns all classes successfully resolved so far.
+     */
+    public List<ResolvedClass> resolvedClasses() {
+        return resolvedClasses.values();
+    }
+
     public ResolvedClass resolveClass(final ClassModel model) {
-        final ClassDesc desc = model.thisClass().asSymbol();
-        final String className = desc.packageName() + "." + desc.displayName();
-        final ResolvedClass result = resolvedClasses.computeIfAbsent(className, key -> new ResolvedClass(this));
-        if (!result.isLoaded()) {
+        return resolvedClasses.computeIfAbsent(binaryName(model.thisClass().asSymbol()), key -> {
+            final ResolvedClass result = new ResolvedClass(this);
             result.loaded(model, null, new ArrayList<>());
-        }
-        return result;
+            return result;
+        });
     }
 
     public ResolvedClass resolveClass(final String className) {
-        try {
-            final ResolvedClass resolved = resolvedClasses.computeIfAbsent(className, k -> new ResolvedClass(this));
-
-            if (!resolved.isLoaded()) {
-                // Try OS specific naming
-                String resourceToSearch = className.replace('.', File.separatorChar) + ".class";
-                URL resource = classLoader.getResource(resourceToSearch);
-                if (resource == null) {
-                    // Try the hard coded unix way
-                    resourceToSearch = className.replace('.', '/') + ".class";
-                    resource = classLoader.getResource(resourceToSearch);
-                    if (resource == null) {
-                        throw new IllegalStateException("Cannot find class file for " + className + " as resource " + resourceToSearch);
-                    }
-
-                }
-
-                try (final InputStream inputStream = resource.openStream()) {
-                    final byte[] data = inputStream.readAllBytes();
-
-                    final ClassFile cf = ClassFile.of();
-                    final ClassModel model = cf.parse(data);
-
-                    // Resolve the superclass
-                    ResolvedClass superClass = null;
-                    if (model.superclass().isPresent()) {
-                        superClass = resolveClass(model.superclass().get().name().toString());
-                    }
-
-                    // Resolve all implementing interfaces
-                    final List<ResolvedClass> interfaces = new ArrayList<>();
-                    for (final ClassEntry iface : model.interfaces()) {
-                        interfaces.add(resolveClass(iface.name().toString()));
-                    }
-
-                    resolved.loaded(model, superClass, interfaces);
-                }
-            }
-            return resolved;
-        } catch (final IOException e) {
-            throw new IllegalArgumentException("Cannot resolve class " + className, e);
+        return resolvedClasses.computeIfAbsent(className, this::loadClass);
+    }
+
+    private ResolvedClass loadClass(final String className) {
+        final byte[] data = classFileSource.load(className);
+        if (data == null) {
+            throw new IllegalStateException("Cannot find class file for " + className);
+        }
+
+        final Memoizer.Task<ClassModel> model = new Memoizer.Task<>(() -> ClassFile.of().parse(data));
+        final ClassSummary summary;
+        if (summaryCache != null) {
+            // With a warm cache, the class is only parsed if its model is requested later
+            summary = summaryCache.summaryOf(data, () -> ClassSummary.of(model.get()));
+        } else {
+            summary = ClassSummary.of(model.get());
+        }
+
+        final Memoizer.Task<ResolvedClass> superClass = new Memoizer.Task<>(() -> resolveSuperClass(summary));
+        final Memoizer.Task<List<ResolvedClass>> interfaces = new Memoizer.Task<>(() -> resolveInterfaces(summary));
+        if (!lazyHierarchy) {
+            superClass.get();
+            interfaces.get();
         }
+
+        final ResolvedClass resolved = new ResolvedClass(this);
+        resolved.loaded(summary, model, superClass, interfaces);
+        return resolved;
+    }
+
+    private ResolvedClass resolveSuperClass(final ClassSummary summary) {
+        if (summary.superClass() != null) {
+            return resolveClass(summary.superClass());
+        }
+        return null;
+    }
+
+    private List<ResolvedClass> resolveInterfaces(final ClassSummary summary) {
+        final List<ResolvedClass> interfaces = new ArrayList<>();
+        for (final String iface : summary.interfaces()) {
+            interfaces.add(resolveClass(iface));
+        }
+        return interfaces;
     }
 
     public IRType.MetaClass resolveType(final ClassDesc desc) {
         if (desc.isArray()) {
             resolveType(desc.componentType());
         }
-        if (!desc.isPrimitive() && !desc.isArray()) {
+        if (!lazyHierarchy && !desc.isPrimitive() && !desc.isArray()) {
             final ResolvedClass resolved = resolveClass(desc);
 
         }
@@ -100,45 +128,57 @@ public class ResolverContext {
     }
 
     public IRType.MethodType resolveMethodType(final MethodTypeDesc desc) {
-        final IRType.MetaClass returnType = resolveType(desc.returnType());
-        final IRType.MetaClass[] parameterTypes = new IRType.MetaClass[desc.parameterArray().length];
-        for (int i = 0; i < parameterTypes.length; i++) {
-            parameterTypes[i] = resolveType(desc.parameterArray()[i]);
+        resolveType(desc.returnType());
+        for (int i = 0; i < desc.parameterCount(); i++) {
+            resolveType(desc.parameterType(i));
         }
-        return new IRType.MethodType(desc, returnType, java.util.List.of(parameterTypes));
+        return IRType.MethodType.of(desc);
     }
 
     public ResolvedClass resolveClass(final ClassDesc owner) {
         if (owner.isArray()) {
             return resolveClass(Array.class.getName());
         }
-        return resolveClass(owner.packageName() + "." + owner.displayName());
+        return resolveClass(binaryName(owner));
+    }
+
+    private static String binaryName(final ClassDesc desc) {
+        if (desc.packageName().isEmpty()) {
+            return desc.displayName();
+        }
+        return desc.packageName() + "." + desc.displayName();
     }
 
+    /**
+     * Resolves the target of an invokespecial instruction, or returns {@code null} if the method cannot be found.
+     */
     public ResolvedMethod resolveInvokeSpecial(final ClassDesc owner, final String methodName, final MethodTypeDesc methodTypeDesc) {
-        final ResolvedClass resolvedClass = resolveClass(owner);
-        // TODO
-        //return resolvedClass.resolveMethodForSpecialInvocation(methodName, methodTypeDesc);
-        return null;
+        return resolveClass(owner).findMethod(methodName, methodTypeDesc);
     }
 
+    /**
+     * Resolves the target of an invokestatic instruction, or returns {@code null} if the method cannot be found.
+     */
     public ResolvedMethod resolveInvokeStatic(final ClassDesc owner, final String methodName, final MethodTypeDesc methodTypeDesc) {
-        final ResolvedClass resolvedClass = resolveClass(owner);
-        // TODO
-        // return resolvedClass.resolveMethodForStaticInvocation(methodName, methodTypeDesc);
-        return null;
+        return resolveClass(owner).findMethod(methodName, methodTypeDesc);
     }
 
+    /**
+     * Resolves the interface method referenced by an invokeinterface instruction, or returns {@code null} if the
+     * method cannot be found. The method invoked at runtime is selected by {@link ResolvedClass#selectMethod(String, MethodTypeDesc)}
+     * of the receiver class.
+     */
     public ResolvedMethod resolveInvokeInterface(final ClassDesc owner, final String methodName, final MethodTypeDesc methodTypeDesc) {
-        final ResolvedClass resolvedClass = resolveClass(owner);
-        // TODO
-        return null;
+        return resolveClass(owner).findMethod(methodName, methodTypeDesc);
     }
 
+    /**
+     * Resolves the method referenced by an invokevirtual instruction, or returns {@code null} if the method cannot
+     * be found. The method invoked at runtime is selected by {@link ResolvedClass#selectMethod(String, MethodTypeDesc)}
+     * of the receiver class.
+     */
     public ResolvedMethod resolveInvokeVirtual(final ClassDesc owner, final String methodName, final MethodTypeDesc methodTypeDesc) {
-        final ResolvedClass resolvedClass = resolveClass(owner);
-        // TODO
-        return null;
+        return resolveClass(owner).findMethod(methodName, methodTypeDesc);
     }
 
     public ResolvedField resolveMemberField(final ClassDesc owner, final String fieldName, final ClassDesc fieldType) {
@@ -14,7 +14,7 @@ public class ReturnValue extends Value {
             }
         }
 
-        use(value, new ArgumentUse(0));
+        use(value, ArgumentUse.of(0));
     }
 
     @Override
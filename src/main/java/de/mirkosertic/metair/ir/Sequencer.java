@@ -35,8 +35,15 @@ public class Sequencer<T extends StructuredControlflowCodeGenerator.GeneratedThi
     private final ResolvedMethod resolvedMethod;
 
     public Sequencer(final ResolvedMethod resolvedMethod, final Method method, final StructuredControlflowCodeGenerator<T> codegenerator) {
+        this(resolvedMethod, method, codegenerator, new CFGDominatorTree(method));
+    }
+
+    /**
+     * Sequences the method using an already computed dominator tree, for example the one cached by a {@link PassManager}.
+     */
+    public Sequencer(final ResolvedMethod resolvedMethod, final Method method, final StructuredControlflowCodeGenerator<T> codegenerator, final CFGDominatorTree dominatorTree) {
         this.resolvedMethod = resolvedMethod;
-        this.dominatorTree = new CFGDominatorTree(method);
+        this.dominatorTree = dominatorTree;
         this.codegenerator = codegenerator;
 
         visitDominationTreeOf(method, new ArrayDeque<>());
@@ -50,7 +57,7 @@ public class Sequencer<T extends StructuredControlflowCodeGenerator.GeneratedThi
         Node current = startNode;
 
         final Function<Node, Node> followUpProcessor = node -> {
-            for (final Node user : node.usedBy) {
+            for (final Node user : node.controlFlowUsers()) {
                 for (final Node.UseEdge edge : user.uses) {
                     if (edge.node() == node) {
                         if (edge.use() instanceof final ControlFlowUse cfu) {
@@ -284,16 +291,15 @@ public class Sequencer<T extends StructuredControlflowCodeGenerator.GeneratedThi
 
     private void visitBranchingNodeTemplate(final Node node, final Deque<Block> activeStack, final Consumer<Deque<Block>> nodeCallback) {
 
-        final List<Node> rpo = dominatorTree.getRpo();
         final List<Node> orderedBlocks = dominatorTree.immediatelyDominatedNodesOf(node)
                 .stream()
                 // We are only interested in merge nodes
                 .filter(t -> t instanceof MergeNode)
                 // And sort them in reverse post order
                 .sorted((o1, o2) -> {
-                    final int a = rpo.indexOf(o1);
-                    final int b = rpo.indexOf(o2);
-                    if ((a == -1) || (b == 1)) {
+                    final int a = dominatorTree.rpoIndexOf(o1);
+                    final int b = dominatorTree.rpoIndexOf(o2);
+                    if ((a == -1) || (b == -1)) {
                         throw new IllegalStateException("Don't know what to do");
                     }
                     return Integer.compare(b, a);
@@ -303,7 +309,7 @@ public class Sequencer<T extends StructuredControlflowCodeGenerator.GeneratedThi
         final boolean isLoopHeader = node instanceof LoopHeaderNode;
 
         final String prefix = node.getClass().getSimpleName() + "_";
-        final int selfIndex = rpo.indexOf(node);
+        final int selfIndex = dominatorTree.rpoIndexOf(node);
 
         if (isLoopHeader) {
             final Block b = new Block(prefix + selfIndex, Block.Type.LOOP, node, null);
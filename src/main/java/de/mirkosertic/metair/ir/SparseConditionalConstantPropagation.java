@@ -0,0 +1,481 @@
+package de.mirkosertic.metair.ir;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.IntBinaryOperator;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * Sparse conditional constant propagation.
+ * <p>
+ * Values and the reachability of control nodes are computed optimistically with a worklist. A value is unknown until
+ * its inputs are known, and a control node is unreachable until a reachable predecessor can branch to it. A constant
+ * condition makes only one projection of an {@link If}, {@link LookupSwitch} or {@link TableSwitch} reachable, and a
+ * {@link PHI} only merges the values of its reachable incoming edges.
+ * <p>
+ * Afterward unreachable control nodes are disconnected, branches on constants are replaced by the taken path, values
+ * and PHIs known to be constant are replaced by constants, and loop headers without a reachable back edge become
+ * {@link MergeNode}s.
+ */
+public class SparseConditionalConstantPropagation implements Pass {
+
+    @Override
+    public Changes run(final Method method, final PassManager.Analyses analyses) {
+        final Solver solver = new Solver(method, analyses.get(Analysis.TOPOLOGICAL_ORDER));
+        solver.solve();
+        return solver.rewrite();
+    }
+
+    private record Removal(Node owner, int index) {
+    }
+
+    private static final class Solver {
+
+        // Marks values known to be not constant, values not known yet are null
+        private static final Object OVERDEFINED = new Object();
+
+        private final Method method;
+        private final List<Node> nodes;
+        private final Object[] lattice;
+        private final BitSet reachable;
+        private final Deque<Node> workList;
+        private final BitSet queued;
+
+        Solver(final Method method, final List<Node> nodes) {
+            final int size = method.graphSize();
+            this.method = method;
+            this.nodes = nodes;
+            this.lattice = new Object[size];
+            this.reachable = new BitSet(size);
+            this.workList = new ArrayDeque<>();
+            this.queued = new BitSet(size);
+        }
+
+        void solve() {
+            for (final Node node : nodes) {
+                enqueue(node);
+            }
+            while (!workList.isEmpty()) {
+                final Node node = workList.poll();
+                queued.clear(node.id);
+
+                boolean changed = false;
+                if (!reachable.get(node.id) && isControl(node) && computeReachable(node)) {
+                    reachable.set(node.id);
+                    changed = true;
+                    // The PHIs of the successors depend on which of their incoming edges are reachable
+                    for (final Node user : node.usedBy) {
+                        for (final Node definition : user.definitions()) {
+                            if (definition instanceof PHI) {
+                                enqueue(definition);
+                            }
+                        }
+                    }
+                }
+                final Object value = valueOf(node);
+                if (!Objects.equals(value, lattice[node.id])) {
+                    lattice[node.id] = value;
+                    changed = true;
+                }
+                if (changed) {
+                    for (final Node user : node.usedBy) {
+                        enqueue(user);
+                    }
+                }
+            }
+        }
+
+        private void enqueue(final Node node) {
+            if (!queued.get(node.id)) {
+                queued.set(node.id);
+                workList.add(node);
+            }
+        }
+
+        private boolean isReachable(final Node node) {
+            return reachable.get(node.id);
+        }
+
+        private boolean computeReachable(final Node node) {
+            if (node instanceof Method) {
+                return true;
+            }
+            for (int i = 0; i < node.uses.size(); i++) {
+                if (node.uses.use(i) instanceof ControlFlowUse) {
+                    final Node predecessor = node.uses.node(i);
+                    if (isReachable(predecessor) && branchesTo(predecessor, node)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        private boolean branchesTo(final Node predecessor, final Node successor) {
+            if (!isConditional(predecessor)) {
+                return true;
+            }
+            final Object condition = lattice[predecessor.id];
+            if (condition == null) {
+                return false;
+            }
+            return condition == OVERDEFINED || takenProjection(predecessor, condition) == successor;
+        }
+
+        /**
+         * Returns true if the PHI input coming from the given origin flows over a reachable edge into the merge.
+         */
+        private boolean isExecutable(final Node merge, final Node origin) {
+            if (!isControl(origin)) {
+                return true;
+            }
+            if (!isReachable(origin)) {
+                return false;
+            }
+            boolean found = false;
+            for (int i = 0; i < merge.uses.size(); i++) {
+                if (merge.uses.use(i) instanceof ControlFlowUse) {
+                    final Node predecessor = merge.uses.node(i);
+                    if (predecessor == origin || predecessor.controlFlowPredecessor() == origin) {
+                        found = true;
+                        if (isReachable(predecessor)) {
+                            return true;
+                        }
+                    }
+                }
+            }
+            // Without a matching edge the origin is all we know
+            return !found;
+        }
+
+        private Object valueOf(final Node node) {
+            return switch (node) {
+                case final If _, final LookupSwitch _, final TableSwitch _ -> isReachable(node) ? lattice[node.arguments().getFirst().id] : null;
+                case final PHI phi -> meet(phi);
+                case final PrimitiveInt c -> c.value;
+                case final PrimitiveLong c -> c.value;
+                case final PrimitiveFloat c -> c.value;
+                case final PrimitiveDouble c -> c.value;
+                case final Add _, final Sub _, final Mul _, final Negate _, final BitOperation _, final Convert _,
+                     final NumericCompare _, final NumericCondition _ -> fold(node);
+                default -> OVERDEFINED;
+            };
+        }
+
+        private Object meet(final PHI phi) {
+            final Node merge = phi.definedBy();
+            if (merge == null || !isReachable(merge)) {
+                return null;
+            }
+            Object result = null;
+            for (int i = 0; i < phi.uses.size(); i++) {
+                if (phi.uses.use(i) instanceof final PHIUse phiUse && isExecutable(merge, phiUse.origin)) {
+                    final Object value = lattice[phi.uses.node(i).id];
+                    if (value == OVERDEFINED || (value != null && result != null && !result.equals(value))) {
+                        return OVERDEFINED;
+                    }
+                    if (value != null) {
+                        result = value;
+                    }
+                }
+            }
+            return result;
+        }
+
+        private Object fold(final Node node) {
+            final List<Node> arguments = node.arguments();
+            final Object[] values = new Object[arguments.size()];
+            for (int i = 0; i < values.length; i++) {
+                final Object value = lattice[arguments.get(i).id];
+                if (value == null || value == OVERDEFINED) {
+                    return value;
+                }
+                values[i] = value;
+            }
+            final Object result = switch (node) {
+                case final Add _ -> arithmetic(values[0], values[1], Integer::sum, Long::sum, Double::sum);
+                case final Sub _ -> arithmetic(values[0], values[1], (a, b) -> a - b, (a, b) -> a - b, (a, b) -> a - b);
+                case final Mul _ -> arithmetic(values[0], values[1], (a, b) -> a * b, (a, b) -> a * b, (a, b) -> a * b);
+                case final Negate _ -> negate(values[0]);
+                case final BitOperation b -> bitOperation(b.operation, values[0], values[1]);
+                case final Convert c -> convert(c.type, values[0]);
+                case final NumericCompare c -> compare(c.mode, values[0], values[1]);
+                case final NumericCondition c -> condition(c.operation, values[0], values[1]);
+                default -> null;
+            };
+            return result == null ? OVERDEFINED : result;
+        }
+
+        Changes rewrite() {
+            boolean controlFlowChanged = false;
+            boolean dataFlowChanged = false;
+
+            final BitSet dead = new BitSet();
+            final List<LoopHeaderNode> loops = new ArrayList<>();
+            for (final Node node : nodes) {
+                if (isControl(node)) {
+                    if (!isReachable(node)) {
+                        dead.set(node.id);
+                    } else if (node instanceof final LoopHeaderNode loop && hasBackEdge(loop)) {
+                        loops.add(loop);
+                    }
+                } else {
+                    // PHIs and constants defined by unreachable nodes are unreachable, too
+                    final Node definer = node.definedBy();
+                    if (definer != null && dead.get(definer.id)) {
+                        dead.set(node.id);
+                    }
+                }
+            }
+
+            // Edges from reachable into unreachable nodes are collected first, as removing them changes which PHI
+            // inputs can be matched to an incoming edge
+            final List<Removal> removals = new ArrayList<>();
+            for (final Node node : nodes) {
+                if (dead.get(node.id)) {
+                    continue;
+                }
+                final Node merge = node instanceof PHI ? node.definedBy() : null;
+                for (int i = node.uses.size() - 1; i >= 0; i--) {
+                    final boolean remove = switch (node.uses.use(i)) {
+                        case final PHIUse phiUse -> dead.get(node.uses.node(i).id) || (merge != null && !isExecutable(merge, phiUse.origin));
+                        case final ControlFlowUse _, final MemoryUse _ -> dead.get(node.uses.node(i).id);
+                        default -> false;
+                    };
+                    if (remove) {
+                        removals.add(new Removal(node, i));
+                    }
+                }
+            }
+            for (final Removal removal : removals) {
+                removal.owner.uses.remove(removal.index);
+                controlFlowChanged = true;
+            }
+            for (final Node node : nodes) {
+                if (dead.get(node.id) && node.uses.size() > 0) {
+                    node.uses.clear();
+                    controlFlowChanged = true;
+                }
+            }
+
+            for (final Node node : nodes) {
+                if (isConditional(node) && !dead.get(node.id) && lattice[node.id] != null && lattice[node.id] != OVERDEFINED) {
+                    foldBranch(node, takenProjection(node, lattice[node.id]));
+                    controlFlowChanged = true;
+                }
+            }
+
+            for (final Node node : nodes) {
+                if (node instanceof final Value value && !(node instanceof PrimitiveValue) && !dead.get(node.id) && !node.usedBy.isEmpty()
+                        && (node instanceof PHI || node.sideeffectFree())) {
+                    final Value constant = constantFor(value.type, lattice[node.id]);
+                    if (constant != null) {
+                        node.replaceWith(constant);
+                        dataFlowChanged = true;
+                    }
+                }
+            }
+
+            for (final Node node : nodes) {
+                if (node instanceof final PHI phi && phi.uses.size() > 0) {
+                    final Node single = phi.singleInput();
+                    if (single != null) {
+                        phi.replaceWith(single);
+                        dataFlowChanged = true;
+                    }
+                }
+            }
+
+            for (final LoopHeaderNode loop : loops) {
+                if (!hasBackEdge(loop)) {
+                    final MergeNode merge = new MergeNode(loop.label);
+                    for (int i = 0; i < loop.uses.size(); i++) {
+                        merge.use(loop.uses.node(i), loop.uses.use(i));
+                    }
+                    loop.replaceWith(merge);
+                    controlFlowChanged = true;
+                }
+            }
+
+            if (controlFlowChanged) {
+                return Changes.CONTROL_FLOW;
+            }
+            return dataFlowChanged ? Changes.DATA_FLOW : Changes.NONE;
+        }
+
+        /**
+         * Connects the successors of the taken projection to the predecessor of the branch, so the branch and all
+         * its projections are disconnected.
+         */
+        private void foldBranch(final Node conditional, final Node taken) {
+            final Node predecessor = conditional.controlFlowPredecessor();
+            for (final Node successor : List.copyOf(taken.controlFlowUsers())) {
+                successor.uses.replaceNode(taken, predecessor);
+                for (final Node definition : successor.definitions()) {
+                    if (definition instanceof final PHI phi) {
+                        for (int i = 0; i < phi.uses.size(); i++) {
+                            if (phi.uses.use(i) instanceof final PHIUse phiUse && (phiUse.origin == conditional || phiUse.origin == taken)) {
+                                phi.uses.set(i, new Node.UseEdge(phi.uses.node(i), new PHIUse(phiUse.type, predecessor)));
+                            }
+                        }
+                    }
+                }
+            }
+            taken.uses.clear();
+            conditional.uses.clear();
+        }
+
+        private Value constantFor(final IRType<?> type, final Object value) {
+            return switch (value) {
+                case final Integer v when type.equals(IRType.CD_int) -> method.definePrimitiveInt(v);
+                case final Long v when type.equals(IRType.CD_long) -> method.definePrimitiveLong(v);
+                case final Float v when type.equals(IRType.CD_float) -> method.definePrimitiveFloat(v);
+                case final Double v when type.equals(IRType.CD_double) -> method.definePrimitiveDouble(v);
+                case null, default -> null;
+            };
+        }
+    }
+
+    private static boolean isControl(final Node node) {
+        return node instanceof Method || node.controlFlowPredecessor() != null;
+    }
+
+    private static boolean isConditional(final Node node) {
+        return node instanceof If || node instanceof LookupSwitch || node instanceof TableSwitch;
+    }
+
+    private static boolean hasBackEdge(final LoopHeaderNode loop) {
+        for (int i = 0; i < loop.uses.size(); i++) {
+            if (loop.uses.use(i) instanceof final ControlFlowUse cfu && cfu.type == FlowType.BACKWARD) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+
+    private static Node takenProjection(final Node conditional, final Object condition) {
+        return switch (conditional) {
+            case final If iff -> (Integer) condition != 0 ? iff.trueProjection() : iff.falseProjection();
+            case final LookupSwitch lookupSwitch -> {
+                final int index = lookupSwitch.cases.indexOf(condition);
+                yield index < 0 ? lookupSwitch.defaultProjection() : lookupSwitch.caseProjection(index);
+            }
+            case final TableSwitch tableSwitch -> {
+                final int index = tableSwitch.cases.indexOf(condition);
+                yield index < 0 ? tableSwitch.defaultProjection() : tableSwitch.caseProjection(index);
+            }
+            default -> throw new IllegalArgumentException("Not a branch : " + conditional);
+        };
+    }
+
+    private static Object arithmetic(final Object a, final Object b, final IntBinaryOperator ints, final LongBinaryOperator longs, final DoubleBinaryOperator doubles) {
+        // Float operations are exact when computed as double and rounded back
+        return switch (a) {
+            case final Integer x when b instanceof final Integer y -> ints.applyAsInt(x, y);
+            case final Long x when b instanceof final Long y -> longs.applyAsLong(x, y);
+            case final Float x when b instanceof final Float y -> (float) doubles.applyAsDouble(x, y);
+            case final Double x when b instanceof final Double y -> doubles.applyAsDouble(x, y);
+            default -> null;
+        };
+    }
+
+    private static Object negate(final Object a) {
+        return switch (a) {
+            case final Integer x -> -x;
+            case final Long x -> -x;
+            case final Float x -> -x;
+            case final Double x -> -x;
+            default -> null;
+        };
+    }
+
+    private static Object bitOperation(final BitOperation.Operation operation, final Object a, final Object b) {
+        if (a instanceof final Integer x && b instanceof final Integer y) {
+            return switch (operation) {
+                case AND -> x & y;
+                case OR -> x | y;
+                case XOR -> x ^ y;
+                case SHL -> x << y;
+                case SHR -> x >> y;
+                case USHR -> x >>> y;
+            };
+        }
+        if (a instanceof final Long x && b instanceof final Number n) {
+            final long y = n.longValue();
+            return switch (operation) {
+                case AND -> x & y;
+                case OR -> x | y;
+                case XOR -> x ^ y;
+                case SHL -> x << y;
+                case SHR -> x >> y;
+                case USHR -> x >>> y;
+            };
+        }
+        return null;
+    }
+
+    private static Object convert(final IRType<?> to, final Object a) {
+        // The conversions of Number are plain Java casts
+        if (!(a instanceof final Number n)) {
+            return null;
+        }
+        if (to.equals(IRType.CD_int)) {
+            return n.intValue();
+        }
+        if (to.equals(IRType.CD_long)) {
+            return n.longValue();
+        }
+        if (to.equals(IRType.CD_float)) {
+            return n.floatValue();
+        }
+        if (to.equals(IRType.CD_double)) {
+            return n.doubleValue();
+        }
+        return null;
+    }
+
+    private static Object compare(final NumericCompare.Mode mode, final Object a, final Object b) {
+        if (a instanceof final Long x && b instanceof final Long y) {
+            return Long.compare(x, y);
+        }
+        if ((a instanceof Float || a instanceof Double) && a.getClass() == b.getClass()) {
+            final double x = ((Number) a).doubleValue();
+            final double y = ((Number) b).doubleValue();
+            if (Double.isNaN(x) || Double.isNaN(y)) {
+                return switch (mode) {
+                    case NAN_IS_1 -> 1;
+                    case NAN_IS_MINUS_1 -> -1;
+                    case NONFLOATINGPOINT -> null;
+                };
+            }
+            // Unlike Double.compare, -0.0 and 0.0 are equal
+            if (x < y) {
+                return -1;
+            }
+            return x > y ? 1 : 0;
+        }
+        return null;
+    }
+
+    private static Object condition(final NumericCondition.Operation operation, final Object a, final Object b) {
+        if (!(a instanceof final Integer x) || !(b instanceof final Integer y)) {
+            return null;
+        }
+        final boolean result = switch (operation) {
+            case EQ -> x.intValue() == y.intValue();
+            case NE -> x.intValue() != y.intValue();
+            case LT -> x < y;
+            case GE -> x >= y;
+            case GT -> x > y;
+            case LE -> x <= y;
+        };
+        return result ? 1 : 0;
+    }
+}
@@ -1,23 +1,39 @@
 package de.mirkosertic.metair.ir;
 
-import java.util.Stack;
-
 public class Status {
 
     protected final static int UNDEFINED_LINE_NUMBER = -1;
 
     protected int lineNumber;
-    protected final Value[] locals;
-    protected final Stack<Value> stack;
+    // Copy on write, the array is shared with copies of this status until one of them sets a local
+    protected Value[] locals;
+    private boolean sharedLocals;
+    protected final OperandStack stack;
     protected Node control;
     protected Node memory;
 
     protected Status(final int maxLocals) {
         this.locals = new Value[maxLocals];
-        this.stack = new Stack<>();
+        this.stack = new OperandStack();
+        this.lineNumber = UNDEFINED_LINE_NUMBER;
+    }
+
+    protected Status(final int maxLocals, final int maxStack) {
+        this.locals = new Value[maxLocals];
+        this.stack = new OperandStack(maxStack);
         this.lineNumber = UNDEFINED_LINE_NUMBER;
     }
 
+    private Status(final Status other) {
+        this.locals = other.locals;
+        this.sharedLocals = true;
+        other.sharedLocals = true;
+        this.stack = other.stack.copy();
+        this.lineNumber = other.lineNumber;
+        this.control = other.control;
+        this.memory = other.memory;
+    }
+
     protected int numberOfLocals() {
         return locals.length;
     }
@@ -33,6 +49,10 @@ public class Status {
     }
 
     protected void setLocal(final int slot, final Value value) {
+        if (sharedLocals) {
+            locals = locals.clone();
+            sharedLocals = false;
+        }
         locals[slot] = value;
         if (slot > 0) {
             if (locals[slot - 1] != null && TypeUtils.isCategory2(locals[slot - 1].type)) {
@@ -43,13 +63,7 @@ public class Status {
     }
 
     protected Status copy() {
-        final Status result = new Status(locals.length);
-        result.lineNumber = lineNumber;
-        System.arraycopy(locals, 0, result.locals, 0, locals.length);
-        result.stack.addAll(stack);
-        result.control = control;
-        result.memory = memory;
-        return result;
+        return new Status(this);
     }
 
     protected Value pop() {
@@ -15,7 +15,7 @@ public class TableSwitch extends ConditionalNode {
             illegalArgument("Cannot use non int value of type " + TypeUtils.toString(value.type) + " as switch value");
         }
 
-        use(value, new ArgumentUse(0));
+        use(value, ArgumentUse.of(0));
 
         this.lowValue = lowValue;
         this.highValue = highValue;
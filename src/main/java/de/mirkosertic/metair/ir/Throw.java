@@ -8,7 +8,7 @@ public class Throw extends Node {
             illegalArgument("Cannot throw a primitive value of type " + TypeUtils.toString(object.type));
         }
 
-        use(object, new ArgumentUse(0));
+        use(object, ArgumentUse.of(0));
     }
 
     @Override
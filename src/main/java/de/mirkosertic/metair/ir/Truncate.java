@@ -5,7 +5,7 @@ public class Truncate extends Value {
     Truncate(final IRType.MetaClass targetType, final Value value) {
         super(targetType);
 
-        use(value, new ArgumentUse(0));
+        use(value, ArgumentUse.of(0));
     }
 
     @Override
@@ -0,0 +1,138 @@
+package de.mirkosertic.metair.ir;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * The incoming edges of a node, stored as two parallel arrays of used nodes and use kinds.
+ * <p>
+ * Compared to a list of {@link Node.UseEdge} objects this avoids one object per edge. The edges returned by the
+ * {@link java.util.List} API are read-only views created on access, hot loops should use {@link #node(int)} and
+ * {@link #use(int)} instead.
+ * <p>
+ * Every mutation also updates the reverse edges of the affected nodes, see {@link Node#userAdded(Node, Use)}.
+ */
+final class UseList extends AbstractList<Node.UseEdge> implements RandomAccess {
+
+    private static final Node[] NO_NODES = new Node[0];
+    private static final Use[] NO_USES = new Use[0];
+
+    private final Node owner;
+    private Node[] nodes;
+    private Use[] kinds;
+    private int size;
+
+    UseList(final Node owner) {
+        this.owner = owner;
+        this.nodes = NO_NODES;
+        this.kinds = NO_USES;
+    }
+
+    Node node(final int index) {
+        Objects.checkIndex(index, size);
+        return nodes[index];
+    }
+
+    Use use(final int index) {
+        Objects.checkIndex(index, size);
+        return kinds[index];
+    }
+
+    void add(final Node node, final Use use) {
+        Graph.link(owner, node);
+        if (size == nodes.length) {
+            final int capacity = Math.max(4, size * 2);
+            nodes = Arrays.copyOf(nodes, capacity);
+            kinds = Arrays.copyOf(kinds, capacity);
+        }
+        if (!owner.isAttached()) {
+            owner.graph.nodeAttached();
+        }
+        nodes[size] = node;
+        kinds[size] = use;
+        size++;
+        modCount++;
+        node.userAdded(owner, use);
+    }
+
+    /**
+     * Replaces every edge to the given node by an edge of the same kind to the replacement.
+     */
+    void replaceNode(final Node node, final Node replacement) {
+        if (node == replacement) {
+            return;
+        }
+        Graph.link(owner, replacement);
+        for (int i = 0; i < size; i++) {
+            if (nodes[i] == node) {
+                nodes[i] = replacement;
+                // The old node sees the edges not replaced yet, so it only loses the user with its last edge
+                node.userRemoved(owner, kinds[i]);
+                replacement.userAdded(owner, kinds[i]);
+            }
+        }
+    }
+
+    @Override
+    public Node.UseEdge get(final int index) {
+        Objects.checkIndex(index, size);
+        return new Node.UseEdge(nodes[index], kinds[index]);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean add(final Node.UseEdge edge) {
+        add(edge.node, edge.use);
+        return true;
+    }
+
+    @Override
+    public Node.UseEdge set(final int index, final Node.UseEdge edge) {
+        final Node.UseEdge old = get(index);
+        Graph.link(owner, edge.node);
+        nodes[index] = edge.node;
+        kinds[index] = edge.use;
+        old.node.userRemoved(owner, old.use);
+        edge.node.userAdded(owner, edge.use);
+        return old;
+    }
+
+    @Override
+    public Node.UseEdge remove(final int index) {
+        final Node.UseEdge old = get(index);
+        final int tail = size - index - 1;
+        System.arraycopy(nodes, index + 1, nodes, index, tail);
+        System.arraycopy(kinds, index + 1, kinds, index, tail);
+        size--;
+        nodes[size] = null;
+        kinds[size] = null;
+        modCount++;
+        if (!owner.isAttached()) {
+            owner.graph.nodeDetached();
+        }
+        old.node.userRemoved(owner, old.use);
+        return old;
+    }
+
+    @Override
+    public void clear() {
+        final Node[] oldNodes = Arrays.copyOf(nodes, size);
+        final Use[] oldKinds = Arrays.copyOf(kinds, size);
+        Arrays.fill(nodes, 0, size, null);
+        Arrays.fill(kinds, 0, size, null);
+        size = 0;
+        modCount++;
+        if (oldNodes.length > 0 && !owner.isAttached()) {
+            owner.graph.nodeDetached();
+        }
+        for (int i = 0; i < oldNodes.length; i++) {
+            oldNodes[i].userRemoved(owner, oldKinds[i]);
+        }
+    }
+}
@@ -8,7 +8,7 @@ public class VarArgsArray extends Value {
         super(componentType.arrayType());
 
         for (int i = 0; i < arguments.size(); i++) {
-            use(arguments.get(i), new ArgumentUse(i));
+            use(arguments.get(i), ArgumentUse.of(i));
         }
     }
 
@@ -1,11 +1,14 @@
 package de.mirkosertic.metair.ir.test;
 
+import de.mirkosertic.metair.ir.Analysis;
 import de.mirkosertic.metair.ir.CFGDominatorTree;
 import de.mirkosertic.metair.ir.DOTExporter;
 import de.mirkosertic.metair.ir.DominatorTree;
 import de.mirkosertic.metair.ir.IllegalParsingStateException;
 import de.mirkosertic.metair.ir.MethodAnalyzer;
 import de.mirkosertic.metair.ir.Node;
+import de.mirkosertic.metair.ir.Pass;
+import de.mirkosertic.metair.ir.PassManager;
 import de.mirkosertic.metair.ir.ResolvedClass;
 import de.mirkosertic.metair.ir.ResolvedMethod;
 import de.mirkosertic.metair.ir.ResolverContext;
@@ -18,11 +21,13 @@ import java.lang.classfile.MethodModel;
 import java.lang.constant.ClassDesc;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
 
 public class MetaIRTestHelper {
 
     private final ResolverContext resolverContext;
     private final Path outputDirectory;
+    private String sequenced;
 
     public MetaIRTestHelper(final Path outputDirectory, final ResolverContext resolverContext) {
         this.outputDirectory = outputDirectory;
@@ -34,7 +39,24 @@ public class MetaIRTestHelper {
         return analyzeAndReport(new ResolvedMethod(resolverContext, resolvedClass, method));
     }
 
+    /**
+     * Analyzes a method of an already compiled class, runs the given passes on its graph and reports the result.
+     */
+    public MethodAnalyzer analyzeAndReport(final Class<?> owner, final String methodName, final List<Pass> passes) throws IOException {
+        final ResolvedClass resolvedClass = resolverContext.resolveClass(owner.getName());
+        for (final MethodModel method : resolvedClass.classModel().methods()) {
+            if (method.methodName().equalsString(methodName)) {
+                return analyzeAndReport(resolvedClass.resolveMethod(method), passes);
+            }
+        }
+        throw new IllegalArgumentException("Cannot find method " + methodName + " in " + owner.getName());
+    }
+
     public MethodAnalyzer analyzeAndReport(final ResolvedMethod resolvedMethod) throws IOException {
+        return analyzeAndReport(resolvedMethod, List.of());
+    }
+
+    public MethodAnalyzer analyzeAndReport(final ResolvedMethod resolvedMethod, final List<Pass> passes) throws IOException {
         try (final var ps = new PrintStream(Files.newOutputStream(outputDirectory.resolve("bytecode.yaml")))) {
             ps.print(resolvedMethod.methodModel().toDebugString());
         }
@@ -53,6 +75,8 @@ public class MetaIRTestHelper {
         try {
             final MethodAnalyzer analyzer = resolvedMethod.analyze();
 
+            final PassManager.Analyses analyses = new PassManager(passes).run(analyzer.ir()).analyses();
+
             DOTExporter.writeTo(analyzer.ir(), new PrintStream(Files.newOutputStream(outputDirectory.resolve("ir.dot"))));
 
             final DominatorTree dominatorTree = new DominatorTree(analyzer.ir());
@@ -61,14 +85,16 @@ public class MetaIRTestHelper {
 
             DOTExporter.writeBytecodeCFGTo(analyzer, new PrintStream(Files.newOutputStream(outputDirectory.resolve("bytecodecfg.dot"))));
 
-            final CFGDominatorTree cfgDominatorTree = new CFGDominatorTree(analyzer.ir());
+            final CFGDominatorTree cfgDominatorTree = analyses.get(Analysis.CFG_DOMINATORS);
             DOTExporter.writeTo(cfgDominatorTree, new PrintStream(Files.newOutputStream(outputDirectory.resolve("ir_cfg_dominatortree.dot"))));
 
             final DebugStructuredControlflowCodeGenerator debugStructuredControlflowCodeGenerator = new DebugStructuredControlflowCodeGenerator();
-            new Sequencer<>(resolvedMethod, analyzer.ir(), debugStructuredControlflowCodeGenerator);
+            new Sequencer<>(resolvedMethod, analyzer.ir(), debugStructuredControlflowCodeGenerator, cfgDominatorTree);
             final PrintStream sequenced = new PrintStream(Files.newOutputStream(outputDirectory.resolve("sequenced.txt")));
             sequenced.print(debugStructuredControlflowCodeGenerator);
-            
+
+            this.sequenced = debugStructuredControlflowCodeGenerator.toString();
+
             return analyzer;
         } catch (final IllegalParsingStateException ex) {
 
@@ -78,6 +104,13 @@ public class MetaIRTestHelper {
         }
     }
 
+    /**
+     * Returns the sequenced debug code of the last reported method.
+     */
+    public String sequenced() {
+        return sequenced;
+    }
+
     public static String toDebugExpression(final Node node) {
         final DebugStructuredControlflowCodeGenerator generator = new DebugStructuredControlflowCodeGenerator();
         generator.emit(node);
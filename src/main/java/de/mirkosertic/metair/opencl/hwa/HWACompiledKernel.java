@@ -1,10 +1,12 @@
 package de.mirkosertic.metair.opencl.hwa;
 
+import de.mirkosertic.metair.ir.Analysis;
 import de.mirkosertic.metair.ir.CFGDominatorTree;
 import de.mirkosertic.metair.ir.DOTExporter;
 import de.mirkosertic.metair.ir.DominatorTree;
 import de.mirkosertic.metair.ir.IRType;
 import de.mirkosertic.metair.ir.MethodAnalyzer;
+import de.mirkosertic.metair.ir.PassManager;
 import de.mirkosertic.metair.ir.ResolvedClass;
 import de.mirkosertic.metair.ir.ResolvedField;
 import de.mirkosertic.metair.ir.ResolvedMethod;
@@ -114,10 +116,16 @@ public class HWACompiledKernel {
 
         // Generate the code for the kernel
         final HWAStructuredControlflowCodeGenerator controlFlowGenerator = new HWAStructuredControlflowCodeGenerator(resolverContext, this.kernel, this.arguments);
+        PassManager.Analyses kernelAnalyses = null;
         for (final ResolvedMethod m : kernelMethods) {
             if (!m.isConstructor()) {
                 final MethodAnalyzer analyzer = m.analyze();
-                new Sequencer<>(m, analyzer.ir(), controlFlowGenerator);
+                // The dominator tree is computed once and shared by the sequencer and the debug output
+                final PassManager.Analyses analyses = new PassManager(List.of()).run(analyzer.ir()).analyses();
+                new Sequencer<>(m, analyzer.ir(), controlFlowGenerator, analyses.get(Analysis.CFG_DOMINATORS));
+                if (m == resolvedKernelMethod) {
+                    kernelAnalyses = analyses;
+                }
             }
         }
 
@@ -133,7 +141,7 @@ public class HWACompiledKernel {
 
             DOTExporter.writeBytecodeCFGTo(analyzer, new PrintStream(Files.newOutputStream(outputDirectory.resolve("bytecodecfg.dot"))));
 
-            final CFGDominatorTree cfgDominatorTree = new CFGDominatorTree(analyzer.ir());
+            final CFGDominatorTree cfgDominatorTree = kernelAnalyses != null ? kernelAnalyses.get(Analysis.CFG_DOMINATORS) : new CFGDominatorTree(analyzer.ir());
             DOTExporter.writeTo(cfgDominatorTree, new PrintStream(Files.newOutputStream(outputDirectory.resolve("ir_cfg_dominatortree.dot"))));
 
             final String kernelCode = controlFlowGenerator.toString();
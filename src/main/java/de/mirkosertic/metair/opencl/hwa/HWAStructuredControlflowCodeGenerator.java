@@ -543,7 +543,6 @@ public class HWAStructuredControlflowCodeGenerator extends StructuredControlflow
         final ClassDesc kernelClassDesc = ClassDesc.of(kernel.getClass().getName());
         if (kernelClassDesc.equals(content.getFirst().type.type())) {
             final StringBuilder result = new StringBuilder(node.name);
-            result.append(node.name);
             result.append("(");
 
             boolean first = true;
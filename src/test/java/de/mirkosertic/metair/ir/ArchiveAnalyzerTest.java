@@ -0,0 +1,106 @@
+package de.mirkosertic.metair.ir;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.classfile.ClassFile;
+import java.lang.constant.ClassDesc;
+import java.lang.constant.ConstantDescs;
+import java.lang.constant.MethodTypeDesc;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class ArchiveAnalyzerTest {
+
+    private static byte[] sampleClass() {
+        return ClassFile.of().build(ClassDesc.of("sample.Sample"), clb -> clb
+                .withMethodBody("add", MethodTypeDesc.of(ConstantDescs.CD_int, ConstantDescs.CD_int, ConstantDescs.CD_int), ClassFile.ACC_PUBLIC | ClassFile.ACC_STATIC, cob -> cob
+                        .iload(0)
+                        .iload(1)
+                        .iadd()
+                        .ireturn())
+                .withMethodBody("broken", MethodTypeDesc.of(ConstantDescs.CD_void), ClassFile.ACC_PUBLIC | ClassFile.ACC_STATIC, cob -> cob
+                        .new_(ClassDesc.of("sample.Unknown"))
+                        .pop()
+                        .return_())
+                .withMethod("abstractMethod", MethodTypeDesc.of(ConstantDescs.CD_void), ClassFile.ACC_PUBLIC | ClassFile.ACC_ABSTRACT, _ -> {
+                }));
+    }
+
+    private static Map<String, ArchiveAnalyzer.Result> analyze(final Path archive) {
+        final Map<String, ArchiveAnalyzer.Result> results = new ConcurrentHashMap<>();
+        new ArchiveAnalyzer(archive).analyze(result -> {
+            switch (result) {
+                case final ArchiveAnalyzer.Analyzed analyzed ->
+                        results.put(analyzed.method().methodModel().methodName().stringValue(), analyzed);
+                case final ArchiveAnalyzer.Failed failed -> results.put(failed.methodName(), failed);
+            }
+        });
+        return results;
+    }
+
+    @Test
+    public void testDirectory(@TempDir final Path tempDir) throws IOException {
+        Files.createDirectories(tempDir.resolve("sample"));
+        Files.write(tempDir.resolve("sample").resolve("Sample.class"), sampleClass());
+
+        assertThat(new ArchiveAnalyzer(tempDir).classNames()).isEqualTo(List.of("sample.Sample"));
+
+        final Map<String, ArchiveAnalyzer.Result> results = analyze(tempDir);
+        assertThat(results).containsOnlyKeys("add", "broken");
+
+        final ArchiveAnalyzer.Analyzed analyzed = (ArchiveAnalyzer.Analyzed) results.get("add");
+        assertThat(analyzed.ir()).isNotNull();
+
+        final ArchiveAnalyzer.Failed failed = (ArchiveAnalyzer.Failed) results.get("broken");
+        assertThat(failed.className()).isEqualTo("sample.Sample");
+        assertThat(failed.exception()).isNotNull();
+    }
+
+    @Test
+    public void testJar(@TempDir final Path tempDir) throws IOException {
+        final Path jar = tempDir.resolve("sample.jar");
+        try (final OutputStream os = Files.newOutputStream(jar); final JarOutputStream jos = new JarOutputStream(os)) {
+            jos.putNextEntry(new JarEntry("sample/Sample.class"));
+            jos.write(sampleClass());
+            jos.closeEntry();
+            jos.putNextEntry(new JarEntry("META-INF/versions/21/sample/Sample.class"));
+            jos.write(sampleClass());
+            jos.closeEntry();
+        }
+
+        assertThat(new ArchiveAnalyzer(jar).classNames()).isEqualTo(List.of("sample.Sample"));
+
+        final Map<String, ArchiveAnalyzer.Result> results = analyze(jar);
+        assertThat(results).containsOnlyKeys("add", "broken");
+        assertThat(results.get("add")).isInstanceOf(ArchiveAnalyzer.Analyzed.class);
+        assertThat(results.get("broken")).isInstanceOf(ArchiveAnalyzer.Failed.class);
+    }
+
+    @Test
+    public void testFailingConsumer(@TempDir final Path tempDir) throws IOException {
+        Files.createDirectories(tempDir.resolve("sample"));
+        Files.write(tempDir.resolve("sample").resolve("Sample.class"), sampleClass());
+
+        final Map<String, ArchiveAnalyzer.Result> results = new ConcurrentHashMap<>();
+        assertThatExceptionOfType(IllegalStateException.class).isThrownBy(() -> new ArchiveAnalyzer(tempDir).analyze(result -> {
+            if (result instanceof final ArchiveAnalyzer.Analyzed analyzed) {
+                throw new IllegalArgumentException(analyzed.method().methodModel().methodName().stringValue());
+            }
+            results.put(((ArchiveAnalyzer.Failed) result).methodName(), result);
+        })).withRootCauseInstanceOf(IllegalArgumentException.class);
+
+        // The other results are still delivered
+        assertThat(results).containsOnlyKeys("broken");
+    }
+}
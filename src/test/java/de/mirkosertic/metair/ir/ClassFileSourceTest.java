@@ -0,0 +1,91 @@
+package de.mirkosertic.metair.ir;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.classfile.ClassFile;
+import java.lang.classfile.ClassModel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ClassFileSourceTest {
+
+    private static byte[] bytesOf(final Class<?> type) throws IOException {
+        try (final InputStream is = type.getResourceAsStream(type.getSimpleName() + ".class")) {
+            return is.readAllBytes();
+        }
+    }
+
+    @Test
+    public void testJar(@TempDir final Path tempDir) throws IOException {
+        final byte[] stored = bytesOf(ResolverContext.class);
+        final byte[] deflated = bytesOf(MethodAnalyzer.class);
+
+        final Path jar = tempDir.resolve("test.jar");
+        try (final OutputStream os = Files.newOutputStream(jar); final ZipOutputStream zos = new ZipOutputStream(os)) {
+            final CRC32 crc = new CRC32();
+            crc.update(stored);
+            final ZipEntry storedEntry = new ZipEntry("de/mirkosertic/metair/ir/ResolverContext.class");
+            storedEntry.setMethod(ZipEntry.STORED);
+            storedEntry.setSize(stored.length);
+            storedEntry.setCompressedSize(stored.length);
+            storedEntry.setCrc(crc.getValue());
+            zos.putNextEntry(storedEntry);
+            zos.write(stored);
+            zos.closeEntry();
+
+            zos.putNextEntry(new ZipEntry("de/mirkosertic/metair/ir/MethodAnalyzer.class"));
+            zos.write(deflated);
+            zos.closeEntry();
+
+            zos.setComment("A comment at the end of the file");
+        }
+
+        final JarClassFileSource source = new JarClassFileSource(jar);
+        assertThat(source.load(ResolverContext.class.getName())).isEqualTo(stored);
+        assertThat(source.load(MethodAnalyzer.class.getName())).isEqualTo(deflated);
+        assertThat(source.load("de.mirkosertic.metair.ir.Unknown")).isNull();
+    }
+
+    @Test
+    public void testDirectory(@TempDir final Path tempDir) throws IOException {
+        final byte[] data = bytesOf(ResolverContext.class);
+        Files.createDirectories(tempDir.resolve("de/mirkosertic/metair/ir"));
+        Files.write(tempDir.resolve("de/mirkosertic/metair/ir/ResolverContext.class"), data);
+
+        final DirectoryClassFileSource source = new DirectoryClassFileSource(tempDir);
+        assertThat(source.load(ResolverContext.class.getName())).isEqualTo(data);
+        assertThat(source.load("de.mirkosertic.metair.ir.Unknown")).isNull();
+    }
+
+    @Test
+    public void testJrt() {
+        final JrtClassFileSource source = new JrtClassFileSource();
+
+        final ClassModel model = ClassFile.of().parse(source.load(String.class.getName()));
+        assertThat(model.thisClass().asInternalName()).isEqualTo("java/lang/String");
+        assertThat(source.load("java.lang.Unknown")).isNull();
+        assertThat(source.load("de.mirkosertic.metair.ir.ResolverContext")).isNull();
+    }
+
+    @Test
+    public void testResolveWithClasspath(@TempDir final Path tempDir) throws IOException {
+        Files.createDirectories(tempDir.resolve("de/mirkosertic/metair/ir"));
+        Files.write(tempDir.resolve("de/mirkosertic/metair/ir/ResolverContext.class"), bytesOf(ResolverContext.class));
+
+        final ResolverContext context = new ResolverContext(ClassFileSource.of(List.of(tempDir)));
+        final ResolvedClass resolved = context.resolveClass(ResolverContext.class.getName());
+
+        assertThat(resolved.thisType()).isEqualTo(IRType.MetaClass.of(ResolverContext.class));
+        assertThat(context.resolveClass(Object.class.getName()).isLoaded()).isTrue();
+    }
+}
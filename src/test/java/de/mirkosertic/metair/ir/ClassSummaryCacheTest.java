@@ -0,0 +1,120 @@
+package de.mirkosertic.metair.ir;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.classfile.ClassFile;
+import java.lang.constant.ClassDesc;
+import java.lang.reflect.AccessFlag;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ClassSummaryCacheTest {
+
+    public static class Sample extends ArrayList<String> implements Runnable {
+
+        public static int counter;
+        public String name;
+
+        @Override
+        public void run() {
+        }
+    }
+
+    private static byte[] bytesOf(final Class<?> type) throws IOException {
+        try (final InputStream is = type.getResourceAsStream(type.getName().substring(type.getPackageName().length() + 1) + ".class")) {
+            return is.readAllBytes();
+        }
+    }
+
+    @Test
+    public void testSummary() throws IOException {
+        final ClassSummary summary = ClassSummary.of(ClassFile.of().parse(bytesOf(Sample.class)));
+
+        assertThat(summary.thisClass()).isEqualTo(Sample.class.getName());
+        assertThat(summary.superClass()).isEqualTo(ArrayList.class.getName());
+        assertThat(summary.interfaces()).containsExactly(Runnable.class.getName());
+        assertThat(summary.has(AccessFlag.PUBLIC)).isTrue();
+        assertThat(summary.fields()).containsExactly(
+                new ClassSummary.Member("counter", "I", ClassFile.ACC_PUBLIC | ClassFile.ACC_STATIC),
+                new ClassSummary.Member("name", "Ljava/lang/String;", ClassFile.ACC_PUBLIC));
+        assertThat(summary.methods()).extracting(ClassSummary.Member::name).containsExactlyInAnyOrder("<init>", "run");
+    }
+
+    @Test
+    public void testWarmCache(@TempDir final Path tempDir) throws IOException {
+        final byte[] data = bytesOf(Sample.class);
+        final ClassSummary summary = ClassSummary.of(ClassFile.of().parse(data));
+        final AtomicInteger computed = new AtomicInteger();
+
+        final ClassSummary cold = new ClassSummaryCache(tempDir).summaryOf(data, () -> {
+            computed.incrementAndGet();
+            return summary;
+        });
+        final ClassSummary warm = new ClassSummaryCache(tempDir).summaryOf(data, () -> {
+            computed.incrementAndGet();
+            return summary;
+        });
+
+        assertThat(computed.get()).isEqualTo(1);
+        assertThat(cold).isEqualTo(summary);
+        assertThat(warm).isEqualTo(summary);
+    }
+
+    @Test
+    public void testCorruptEntryIsComputedAgain(@TempDir final Path tempDir) throws IOException {
+        final byte[] data = bytesOf(Sample.class);
+        final ClassSummary summary = ClassSummary.of(ClassFile.of().parse(data));
+        new ClassSummaryCache(tempDir).summaryOf(data, () -> summary);
+
+        final List<Path> entries;
+        try (final Stream<Path> files = Files.walk(tempDir)) {
+            entries = files.filter(Files::isRegularFile).toList();
+        }
+        assertThat(entries).hasSize(1);
+        Files.write(entries.getFirst(), new byte[] {0, 0, 0, 1, 0});
+
+        final AtomicInteger computed = new AtomicInteger();
+        final ClassSummary result = new ClassSummaryCache(tempDir).summaryOf(data, () -> {
+            computed.incrementAndGet();
+            return summary;
+        });
+        assertThat(computed.get()).isEqualTo(1);
+        assertThat(result).isEqualTo(summary);
+    }
+
+    @Test
+    public void testUnwritableCacheIsSkipped(@TempDir final Path tempDir) throws IOException {
+        final byte[] data = bytesOf(Sample.class);
+        final ClassSummary summary = ClassSummary.of(ClassFile.of().parse(data));
+        // A file where the cache directory should be makes every write fail
+        final Path blocked = Files.createFile(tempDir.resolve("blocked"));
+
+        assertThat(new ClassSummaryCache(blocked).summaryOf(data, () -> summary)).isEqualTo(summary);
+        try (final Stream<Path> files = Files.list(tempDir)) {
+            assertThat(files).containsExactly(blocked);
+        }
+    }
+
+    @Test
+    public void testResolveWithWarmCache(@TempDir final Path tempDir) {
+        final ClassFileSource source = new ClassLoaderClassFileSource(ClassSummaryCacheTest.class.getClassLoader());
+        new ResolverContext(source, new ClassSummaryCache(tempDir)).resolveClass(Sample.class.getName());
+
+        final ResolverContext context = new ResolverContext(source, new ClassSummaryCache(tempDir));
+        final ResolvedClass resolved = context.resolveClass(Sample.class.getName());
+
+        assertThat(resolved.hasInterface(ClassDesc.of(Runnable.class.getName()))).isTrue();
+        assertThat(resolved.resolveStaticField("counter").type()).isEqualTo(IRType.CD_int);
+        assertThat(resolved.resolveMemberField("name").type()).isEqualTo(IRType.CD_String);
+        assertThat(resolved.resolveMemberField("name").fieldModel().fieldName().stringValue()).isEqualTo("name");
+    }
+}
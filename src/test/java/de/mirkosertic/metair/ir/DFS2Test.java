@@ -2,9 +2,11 @@ package de.mirkosertic.metair.ir;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 
 public class DFS2Test {
 
@@ -52,4 +54,47 @@ public class DFS2Test {
         final List<Node> order = dfs.getTopologicalOrder();
         assertThat(order).containsExactly(m, arg, i, add, rv);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testLargeGraph() {
+        final List<Node> expected = new ArrayList<>();
+        Node current = new LabelNode("start");
+        expected.add(current);
+        for (int i = 0; i < 20000; i++) {
+            current = current.controlFlowsTo(new LabelNode("l" + i), FlowType.FORWARD);
+            expected.add(current);
+        }
+
+        assertThat(new DFS2(expected.getFirst()).getTopologicalOrder()).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    public void testDiamondWaitsForAllPredecessors() {
+        final LabelNode a = new LabelNode("a");
+        final LabelNode b = new LabelNode("b");
+        final LabelNode c = new LabelNode("c");
+        final LabelNode d = new LabelNode("d");
+        final LabelNode e = new LabelNode("e");
+
+        a.controlFlowsTo(b, FlowType.FORWARD);
+        a.controlFlowsTo(c, FlowType.FORWARD);
+        b.controlFlowsTo(d, FlowType.FORWARD);
+        c.controlFlowsTo(e, FlowType.FORWARD);
+        e.controlFlowsTo(d, FlowType.FORWARD);
+
+        assertThat(new DFS2(a).getTopologicalOrder()).containsExactly(a, b, c, e, d);
+    }
+
+    @Test
+    public void testUnschedulable() {
+        final LabelNode a = new LabelNode("a");
+        final LabelNode b = new LabelNode("b");
+        final LabelNode c = new LabelNode("c");
+
+        a.controlFlowsTo(b, FlowType.FORWARD);
+        b.controlFlowsTo(c, FlowType.FORWARD);
+        c.controlFlowsTo(b, FlowType.FORWARD);
+
+        assertThatExceptionOfType(IllegalStateException.class).isThrownBy(() -> new DFS2(a));
+    }
+}
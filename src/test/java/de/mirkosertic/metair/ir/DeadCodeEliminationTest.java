@@ -0,0 +1,178 @@
+package de.mirkosertic.metair.ir;
+
+import de.mirkosertic.metair.ir.test.MetaIRTestHelper;
+import de.mirkosertic.metair.ir.test.MetaIRTestTools;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(MetaIRTestTools.class)
+public class DeadCodeEliminationTest {
+
+    private static PassManager.Result run(final Method method) {
+        return new PassManager(List.of(new DeadCodeElimination())).run(method);
+    }
+
+    static int unusedComputation(final int a, final int b) {
+        final int unused = a * b - 7;
+        return a + b;
+    }
+
+    static int deadBranchAfterConstantPropagation(final int a) {
+        int limit = 10;
+        int result = a;
+        if (limit < 5) {
+            result = a * 3;
+        }
+        return result;
+    }
+
+    @Test
+    public void unusedComputationInBytecodeIsRemoved(final MetaIRTestHelper testHelper) throws IOException {
+        final MethodAnalyzer analyzer = testHelper.analyzeAndReport(DeadCodeEliminationTest.class, "unusedComputation", List.of(new DeadCodeElimination()));
+
+        final List<Node> nodes = new DFS2(analyzer.ir()).getTopologicalOrder();
+        assertThat(nodes).noneMatch(t -> t instanceof Mul || t instanceof Sub);
+        assertThat(analyzer.ir().graphSize()).isEqualTo(nodes.size());
+        assertThat(testHelper.sequenced()).contains("return (arg0 + arg1)");
+    }
+
+    @Test
+    public void branchFoldedByConstantPropagationIsRemoved(final MetaIRTestHelper testHelper) throws IOException {
+        final MethodAnalyzer analyzer = testHelper.analyzeAndReport(DeadCodeEliminationTest.class, "deadBranchAfterConstantPropagation", List.of(new SparseConditionalConstantPropagation(), new DeadCodeElimination()));
+
+        final List<Node> nodes = new DFS2(analyzer.ir()).getTopologicalOrder();
+        assertThat(nodes).noneMatch(t -> t instanceof If || t instanceof Mul);
+        assertThat(analyzer.ir().graphSize()).isEqualTo(nodes.size());
+        assertThat(testHelper.sequenced()).contains("return arg0");
+    }
+
+    @Test
+    public void unusedValuesAreRemoved() {
+        final Method m = new Method();
+        final ExtractMethodArgProjection arg = m.defineMethodArgument(IRType.CD_int, 0);
+        final Add add = new Add(IRType.CD_int, arg, m.definePrimitiveInt(5));
+        final Mul mul = new Mul(IRType.CD_int, add, m.definePrimitiveInt(2));
+        m.controlFlowsTo(new ReturnValue(IRType.CD_int, arg), FlowType.FORWARD);
+
+        final PassManager.Result result = run(m);
+
+        assertThat(result.runs().getFirst().changes()).isEqualTo(Pass.Changes.CONTROL_FLOW);
+        assertThat(result.runs().getFirst().nodeDelta()).isEqualTo(-4);
+        assertThat(add.uses.size()).isZero();
+        assertThat(mul.uses.size()).isZero();
+        assertThat(m.usedBy).noneMatch(t -> t instanceof PrimitiveInt);
+    }
+
+    @Test
+    public void deadLoopCounterIsRemoved() {
+        final Method m = new Method();
+        final ExtractMethodArgProjection arg = m.defineMethodArgument(IRType.CD_int, 0);
+        final LoopHeaderNode loop = new LoopHeaderNode("Loop");
+        m.controlFlowsTo(loop, FlowType.FORWARD);
+        final PHI counter = loop.definePHI(IRType.CD_int);
+        counter.use(m.definePrimitiveInt(0), new PHIUse(FlowType.FORWARD, m));
+        final If iff = new If(new NumericCondition(NumericCondition.Operation.GT, arg, m.definePrimitiveInt(0)));
+        loop.controlFlowsTo(iff, FlowType.FORWARD);
+        iff.trueProjection().controlFlowsTo(loop, FlowType.BACKWARD);
+        final Add increment = new Add(IRType.CD_int, counter, m.definePrimitiveInt(1));
+        counter.use(increment, new PHIUse(FlowType.BACKWARD, iff));
+        iff.falseProjection().controlFlowsTo(new Return(), FlowType.FORWARD);
+
+        run(m);
+
+        assertThat(counter.uses.size()).isZero();
+        assertThat(increment.uses.size()).isZero();
+        assertThat(loop.definitions()).isEmpty();
+        assertThat(iff.uses.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void singleEntryMergeIsCollapsed() {
+        final Method m = new Method();
+        final ExtractMethodArgProjection arg = m.defineMethodArgument(IRType.CD_int, 0);
+        final LabelNode label = new LabelNode("label");
+        final MergeNode merge = new MergeNode("merge");
+        m.controlFlowsTo(label, FlowType.FORWARD).controlFlowsTo(merge, FlowType.FORWARD);
+        final PHI phi = merge.definePHI(IRType.CD_int);
+        phi.use(arg, new PHIUse(FlowType.FORWARD, label));
+        final ReturnValue ret = new ReturnValue(IRType.CD_int, phi);
+        merge.controlFlowsTo(ret, FlowType.FORWARD);
+
+        run(m);
+
+        assertThat(label.controlFlowUsers()).containsExactly(ret);
+        assertThat(ret.arguments()).containsExactly(arg);
+        assertThat(merge.uses.size()).isZero();
+        assertThat(merge.usedBy).isEmpty();
+    }
+
+    @Test
+    public void emptyDiamondIsRemoved() {
+        final Method m = new Method();
+        final ExtractMethodArgProjection arg = m.defineMethodArgument(IRType.CD_int, 0);
+        final NumericCondition condition = new NumericCondition(NumericCondition.Operation.GT, arg, m.definePrimitiveInt(0));
+        final If iff = new If(condition);
+        m.controlFlowsTo(iff, FlowType.FORWARD);
+        final MergeNode merge = new MergeNode("merge");
+        iff.trueProjection().controlFlowsTo(merge, FlowType.FORWARD);
+        iff.falseProjection().controlFlowsTo(merge, FlowType.FORWARD);
+        final PrimitiveInt seven = m.definePrimitiveInt(7);
+        final PHI phi = merge.definePHI(IRType.CD_int);
+        phi.use(seven, new PHIUse(FlowType.FORWARD, iff));
+        phi.use(seven, new PHIUse(FlowType.FORWARD, iff));
+        final ReturnValue ret = new ReturnValue(IRType.CD_int, phi);
+        merge.controlFlowsTo(ret, FlowType.FORWARD);
+
+        run(m);
+
+        assertThat(m.controlFlowUsers()).containsExactly(ret);
+        assertThat(ret.arguments()).containsExactly(seven);
+        assertThat(iff.uses.size()).isZero();
+        assertThat(condition.uses.size()).isZero();
+    }
+
+    @Test
+    public void diamondSelectingValuesIsKept() {
+        final Method m = new Method();
+        final ExtractMethodArgProjection arg = m.defineMethodArgument(IRType.CD_int, 0);
+        final If iff = new If(new NumericCondition(NumericCondition.Operation.GT, arg, m.definePrimitiveInt(0)));
+        m.controlFlowsTo(iff, FlowType.FORWARD);
+        final MergeNode merge = new MergeNode("merge");
+        iff.trueProjection().controlFlowsTo(merge, FlowType.FORWARD);
+        iff.falseProjection().controlFlowsTo(merge, FlowType.FORWARD);
+        final PHI phi = merge.definePHI(IRType.CD_int);
+        phi.use(arg, new PHIUse(FlowType.FORWARD, iff.trueProjection()));
+        phi.use(m.definePrimitiveInt(7), new PHIUse(FlowType.FORWARD, iff.falseProjection()));
+        merge.controlFlowsTo(new ReturnValue(IRType.CD_int, phi), FlowType.FORWARD);
+
+        final PassManager.Result result = run(m);
+
+        assertThat(result.runs().getFirst().changes()).isEqualTo(Pass.Changes.NONE);
+        assertThat(m.controlFlowUsers()).containsExactly(iff);
+    }
+
+    @Test
+    public void graphIsCompacted() {
+        final Method m = new Method();
+        final ExtractMethodArgProjection arg = m.defineMethodArgument(IRType.CD_int, 0);
+        for (int i = 0; i < 10; i++) {
+            new Add(IRType.CD_int, arg, m.definePrimitiveInt(i));
+        }
+        final ReturnValue ret = new ReturnValue(IRType.CD_int, arg);
+        m.controlFlowsTo(ret, FlowType.FORWARD);
+        final LabelNode stranger = new LabelNode("stranger");
+        arg.usedBy.add(stranger);
+
+        run(m);
+
+        final List<Node> nodes = new DFS2(m).getTopologicalOrder();
+        assertThat(m.graphSize()).isEqualTo(nodes.size());
+        assertThat(nodes).extracting(Node::id).containsExactlyInAnyOrder(0, 1, 2);
+        assertThat(arg.usedBy).containsExactly(ret);
+    }
+}
@@ -0,0 +1,140 @@
+package de.mirkosertic.metair.ir;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.classfile.MethodModel;
+import java.lang.constant.ConstantDescs;
+import java.lang.constant.MethodTypeDesc;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DevirtualizationTest {
+
+    public interface Shape {
+        int area();
+    }
+
+    public static class Square implements Shape {
+        @Override
+        public int area() {
+            return 4;
+        }
+    }
+
+    public static final class Circle {
+        public int radius() {
+            return 1;
+        }
+    }
+
+    public static class Base {
+        public int value() {
+            return 1;
+        }
+    }
+
+    public static class Derived extends Base {
+        @Override
+        public int value() {
+            return 2;
+        }
+    }
+
+    static int viaInterface(final Shape shape) {
+        return shape.area();
+    }
+
+    static int viaFinalClass(final Circle circle) {
+        return circle.radius();
+    }
+
+    static int viaAllocation() {
+        return new Derived().value();
+    }
+
+    static int polymorphic(final Base base) {
+        return base.value();
+    }
+
+    private static Method analyze(final ResolverContext context, final String methodName) {
+        final ResolvedClass resolvedClass = context.resolveClass(DevirtualizationTest.class.getName());
+        final MethodModel methodModel = resolvedClass.classModel().methods().stream().filter(m -> methodName.equals(m.methodName().stringValue())).findFirst().orElseThrow();
+        return resolvedClass.resolveMethod(methodModel).analyze().ir();
+    }
+
+    private static List<Invoke> invokes(final Method method) {
+        return new DFS2(method).getTopologicalOrder().stream().filter(Invoke.class::isInstance).map(Invoke.class::cast).toList();
+    }
+
+    private static ResolverContext context() {
+        return new ResolverContext();
+    }
+
+    private static ClassHierarchy hierarchy(final ResolverContext context) {
+        return new ClassHierarchy(context, Stream.of(DevirtualizationTest.class, Shape.class, Square.class, Circle.class, Base.class, Derived.class).map(Class::getName).toList());
+    }
+
+    @Test
+    public void testSingleImplementation() {
+        final ResolverContext context = context();
+        final Method method = analyze(context, "viaInterface");
+
+        assertThat(new Devirtualization(hierarchy(context)).apply(method)).isEqualTo(1);
+
+        final List<Invoke> invokes = invokes(method);
+        assertThat(invokes).hasSize(1);
+        assertThat(invokes.getFirst()).isInstanceOf(InvokeSpecial.class);
+        assertThat(invokes.getFirst().ownerType).isEqualTo(IRType.MetaClass.of(Square.class));
+    }
+
+    @Test
+    public void testFinalClass() {
+        final ResolverContext context = context();
+        final Method method = analyze(context, "viaFinalClass");
+
+        assertThat(new Devirtualization(hierarchy(context)).apply(method)).isEqualTo(1);
+        assertThat(invokes(method)).allMatch(InvokeSpecial.class::isInstance);
+    }
+
+    @Test
+    public void testExactTypeFromAllocation() {
+        final ResolverContext context = context();
+        final Method method = analyze(context, "viaAllocation");
+
+        assertThat(new Devirtualization(hierarchy(context)).apply(method)).isEqualTo(1);
+        assertThat(invokes(method)).allMatch(InvokeSpecial.class::isInstance);
+        assertThat(invokes(method)).extracting(i -> i.ownerType).containsOnly(IRType.MetaClass.of(Derived.class));
+    }
+
+    @Test
+    public void testPolymorphicCallIsKept() {
+        final ResolverContext context = context();
+        final Method method = analyze(context, "polymorphic");
+
+        assertThat(new Devirtualization(hierarchy(context)).apply(method)).isZero();
+        assertThat(invokes(method)).hasSize(1).allMatch(InvokeVirtual.class::isInstance);
+    }
+
+    @Test
+    public void testClassHierarchy() {
+        final ResolverContext context = context();
+        final ClassHierarchy hierarchy = hierarchy(context);
+
+        final ResolvedClass base = context.resolveClass(Base.class.getName());
+        assertThat(hierarchy.subtypes(base)).containsExactly(base, context.resolveClass(Derived.class.getName()));
+    }
+
+    @Test
+    public void testTypesOutsideTheWorldAreUnknown() {
+        final ResolverContext context = context();
+        final ClassHierarchy hierarchy = new ClassHierarchy(context, List.of(Square.class.getName()));
+        // Classes resolved by the context, but not part of the world, are not taken into account
+        context.resolveClass(Derived.class.getName());
+
+        final ResolvedClass runnable = context.resolveClass(Runnable.class.getName());
+        assertThat(hierarchy.implementations(runnable, "run", MethodTypeDesc.of(ConstantDescs.CD_void))).isNull();
+        assertThat(hierarchy.subtypes(context.resolveClass(Base.class.getName()))).containsExactly(context.resolveClass(Base.class.getName()));
+    }
+}
@@ -2,6 +2,7 @@ package de.mirkosertic.metair.ir;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -21,4 +22,64 @@ public class DominatorTreeTest {
         final List<Node> order = dt.preOrder;
         assertThat(order).containsExactly(m, arg, i, add, rv);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testDiamond() {
+        final LabelNode a = new LabelNode("a");
+        final LabelNode b = new LabelNode("b");
+        final LabelNode c = new LabelNode("c");
+        final LabelNode d = new LabelNode("d");
+        final LabelNode e = new LabelNode("e");
+
+        a.controlFlowsTo(b, FlowType.FORWARD);
+        a.controlFlowsTo(c, FlowType.FORWARD);
+        b.controlFlowsTo(d, FlowType.FORWARD);
+        c.controlFlowsTo(d, FlowType.FORWARD);
+        d.controlFlowsTo(e, FlowType.FORWARD);
+        d.controlFlowsTo(a, FlowType.BACKWARD);
+
+        final CFGDominatorTree dt = new CFGDominatorTree(a);
+        assertThat(dt.getIDom(a)).isSameAs(a);
+        assertThat(dt.getIDom(b)).isSameAs(a);
+        assertThat(dt.getIDom(c)).isSameAs(a);
+        assertThat(dt.getIDom(d)).isSameAs(a);
+        assertThat(dt.getIDom(e)).isSameAs(d);
+
+        assertThat(dt.dominates(a, e)).isTrue();
+        assertThat(dt.dominates(d, e)).isTrue();
+        assertThat(dt.dominates(b, d)).isFalse();
+        assertThat(dt.dominates(e, d)).isFalse();
+        assertThat(dt.getStrictDominators(e)).containsExactlyInAnyOrder(a, d);
+        assertThat(dt.immediatelyDominatedNodesOf(a)).containsExactlyInAnyOrder(b, c, d);
+
+        assertThat(dt.commonDominator(b, c)).isSameAs(a);
+        assertThat(dt.commonDominator(e, d)).isSameAs(d);
+
+        assertThat(dt.dominanceFrontierOf(b)).containsExactly(d);
+        assertThat(dt.dominanceFrontierOf(c)).containsExactly(d);
+        assertThat(dt.dominanceFrontierOf(d)).containsExactly(a);
+        assertThat(dt.dominanceFrontierOf(e)).isEmpty();
+
+        assertThat(dt.getRpo()).startsWith(a).endsWith(e);
+    }
+
+    @Test
+    public void testDeepChain() {
+        final List<LabelNode> nodes = new ArrayList<>();
+        LabelNode previous = new LabelNode("0");
+        nodes.add(previous);
+        for (int i = 1; i < 20000; i++) {
+            final LabelNode next = new LabelNode(Integer.toString(i));
+            previous.controlFlowsTo(next, FlowType.FORWARD);
+            nodes.add(next);
+            previous = next;
+        }
+
+        final CFGDominatorTree dt = new CFGDominatorTree(nodes.getFirst());
+        assertThat(dt.getRpo()).containsExactlyElementsOf(nodes);
+        assertThat(dt.getIDom(nodes.getLast())).isSameAs(nodes.get(nodes.size() - 2));
+        assertThat(dt.dominates(nodes.getFirst(), nodes.getLast())).isTrue();
+        assertThat(dt.dominates(nodes.getLast(), nodes.getFirst())).isFalse();
+        assertThat(dt.commonDominator(nodes.get(100), nodes.get(5000))).isSameAs(nodes.get(100));
+    }
+}
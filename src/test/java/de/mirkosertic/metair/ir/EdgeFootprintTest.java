@@ -0,0 +1,115 @@
+package de.mirkosertic.metair.ir;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Compares the memory allocated for the edges of a large generated method with the storage used before
+ * {@link UseList} and {@link NodeSet}: a list of {@link Node.UseEdge} objects with a fresh {@link ArgumentUse} per
+ * edge, and a {@link HashSet} of users per node.
+ */
+public class EdgeFootprintTest {
+
+    private static final int NODE_COUNT = 20000;
+
+    private static final com.sun.management.ThreadMXBean THREADS = ManagementFactory.getThreadMXBean() instanceof final com.sun.management.ThreadMXBean t ? t : null;
+
+    private static long allocatedBytes(final Runnable action) {
+        final long threadId = Thread.currentThread().threadId();
+        final long before = THREADS.getThreadAllocatedBytes(threadId);
+        action.run();
+        return THREADS.getThreadAllocatedBytes(threadId) - before;
+    }
+
+    private static Node[] generatedNodes() {
+        final Method method = new Method();
+        final Node[] nodes = new Node[NODE_COUNT];
+        for (int i = 0; i < NODE_COUNT; i++) {
+            nodes[i] = new PrimitiveInt(i);
+        }
+        // Link everything into one graph up front, so measuring does not include graph merges
+        for (final Node node : nodes) {
+            node.uses.add(method, DefinedByUse.INSTANCE);
+        }
+        return nodes;
+    }
+
+    /**
+     * Wires every node to its two predecessors, like a chain of binary operations.
+     */
+    private static void wireCompact(final Node[] nodes) {
+        for (int i = 2; i < nodes.length; i++) {
+            nodes[i].uses.add(nodes[i - 1], ArgumentUse.of(0));
+            nodes[i].uses.add(nodes[i - 2], ArgumentUse.of(1));
+        }
+    }
+
+    private static void wireBaseline(final Node[] nodes, final List<List<Node.UseEdge>> uses, final List<Set<Node>> usedBy) {
+        for (int i = 2; i < nodes.length; i++) {
+            uses.get(i).add(new Node.UseEdge(nodes[i - 1], new ArgumentUse(0)));
+            usedBy.get(i - 1).add(nodes[i]);
+            uses.get(i).add(new Node.UseEdge(nodes[i - 2], new ArgumentUse(1)));
+            usedBy.get(i - 2).add(nodes[i]);
+        }
+    }
+
+    private static long measureCompact() {
+        final Node[] nodes = generatedNodes();
+        return allocatedBytes(() -> wireCompact(nodes));
+    }
+
+    private static long measureBaseline() {
+        final Node[] nodes = generatedNodes();
+        final List<List<Node.UseEdge>> uses = new ArrayList<>();
+        final List<Set<Node>> usedBy = new ArrayList<>();
+        for (int i = 0; i < NODE_COUNT; i++) {
+            uses.add(new ArrayList<>());
+            usedBy.add(new HashSet<>());
+        }
+        return allocatedBytes(() -> wireBaseline(nodes, uses, usedBy));
+    }
+
+    @Test
+    public void compactEdgesAllocateLessThanEdgeObjects() {
+        assumeTrue(THREADS != null && THREADS.isThreadAllocatedMemorySupported() && THREADS.isThreadAllocatedMemoryEnabled());
+
+        // Warm up, so class loading and compilation do not show up in the measurement
+        for (int i = 0; i < 3; i++) {
+            measureCompact();
+            measureBaseline();
+        }
+
+        final long compact = measureCompact();
+        final long baseline = measureBaseline();
+        final int edges = 2 * (NODE_COUNT - 2);
+
+        // The compact storage needs about a third of the baseline. Allocation accounting depends on the JIT, TLABs and
+        // the collector, so only the order is checked
+        assertThat(compact / edges)
+                .as("bytes per edge, compact %d vs. baseline %d", compact / edges, baseline / edges)
+                .isLessThan(baseline / edges);
+    }
+
+    @Test
+    public void edgesDoNotAllocateUseObjects() {
+        final Node[] nodes = generatedNodes();
+        wireCompact(nodes);
+
+        for (int i = 2; i < nodes.length; i++) {
+            final UseList uses = nodes[i].uses;
+            // The definition plus the two operands, all referring to shared use kinds
+            assertThat(uses.size()).isEqualTo(3);
+            assertThat(uses.use(0)).isSameAs(DefinedByUse.INSTANCE);
+            assertThat(uses.use(1)).isSameAs(ArgumentUse.of(0));
+            assertThat(uses.use(2)).isSameAs(ArgumentUse.of(1));
+        }
+    }
+}
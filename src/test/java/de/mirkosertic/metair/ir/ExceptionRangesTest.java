@@ -0,0 +1,65 @@
+package de.mirkosertic.metair.ir;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class ExceptionRangesTest {
+
+    private record Range(int start, int end) {
+    }
+
+    private static ExceptionRanges<Range> index(final List<Range> ranges) {
+        return new ExceptionRanges<>(ranges, Range::start, Range::end);
+    }
+
+    @Test
+    public void empty() {
+        final ExceptionRanges<Range> ranges = ExceptionRanges.empty();
+
+        assertThat(ranges.startingAt(0)).isEmpty();
+        assertThat(ranges.endingAt(0)).isEmpty();
+    }
+
+    @Test
+    public void nested() {
+        final Range outer = new Range(0, 20);
+        final Range inner = new Range(5, 10);
+        final Range sameStart = new Range(5, 8);
+        final Range after = new Range(20, 30);
+        final ExceptionRanges<Range> ranges = index(List.of(after, inner, outer, sameStart));
+
+        assertThat(ranges.startingAt(5)).containsExactlyInAnyOrder(inner, sameStart);
+        assertThat(ranges.startingAt(6)).isEmpty();
+        assertThat(ranges.endingAt(20)).containsExactly(outer);
+        // The end is exclusive, so the nested range ending at 8 is listed there
+        assertThat(ranges.endingAt(8)).containsExactly(sameStart);
+        assertThat(ranges.endingAt(10)).containsExactly(inner);
+        assertThat(ranges.endingAt(30)).containsExactly(after);
+    }
+
+    @Test
+    public void lookupsMatchLinearSearch() {
+        final List<Range> all = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            final int start = (i * 37) % 1000;
+            all.add(new Range(start, start + (i * 13) % 50));
+        }
+        final ExceptionRanges<Range> ranges = index(all);
+
+        for (int index = 0; index < 1100; index++) {
+            final int position = index;
+            assertThat(ranges.startingAt(index)).containsExactlyInAnyOrderElementsOf(all.stream().filter(t -> t.start() == position).toList());
+            assertThat(ranges.endingAt(index)).containsExactlyInAnyOrderElementsOf(all.stream().filter(t -> t.end() == position).toList());
+        }
+    }
+
+    @Test
+    public void invalidRange() {
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> index(List.of(new Range(5, 4))));
+    }
+}
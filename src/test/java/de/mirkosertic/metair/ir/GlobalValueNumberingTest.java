@@ -0,0 +1,166 @@
+package de.mirkosertic.metair.ir;
+
+import de.mirkosertic.metair.ir.test.MetaIRTestHelper;
+import de.mirkosertic.metair.ir.test.MetaIRTestTools;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(MetaIRTestTools.class)
+public class GlobalValueNumberingTest {
+
+    private static PassManager.Result run(final Method method) {
+        return new PassManager(List.of(new GlobalValueNumbering())).run(method);
+    }
+
+    static int sharedProduct(final int a, final int b) {
+        return a * b + a * b;
+    }
+
+    static int productInBranches(final boolean condition, final int a, final int b) {
+        if (condition) {
+            return a * b;
+        }
+        return a * b + 1;
+    }
+
+    @Test
+    public void productsInSiblingBranchesAreKeptInBytecode(final MetaIRTestHelper testHelper) throws IOException {
+        final MethodAnalyzer analyzer = testHelper.analyzeAndReport(GlobalValueNumberingTest.class, "productInBranches", List.of(new GlobalValueNumbering()));
+
+        assertThat(new DFS2(analyzer.ir()).getTopologicalOrder()).filteredOn(Mul.class::isInstance).hasSize(2);
+        // Each branch computes its own product, no temporary is declared in one branch and read in the other
+        assertThat(testHelper.sequenced()).contains("return (arg1 * arg2)").contains("return ((arg1 * arg2) + 1)").doesNotContain("var0");
+    }
+
+    @Test
+    public void sharedProductInBytecode(final MetaIRTestHelper testHelper) throws IOException {
+        final MethodAnalyzer analyzer = testHelper.analyzeAndReport(GlobalValueNumberingTest.class, "sharedProduct", List.of(new GlobalValueNumbering()));
+
+        assertThat(new DFS2(analyzer.ir()).getTopologicalOrder()).filteredOn(Mul.class::isInstance).hasSize(1);
+        // The shared product is computed once into a temporary
+        assertThat(testHelper.sequenced()).contains("(arg0 * arg1)").contains("(var0 + var0)");
+    }
+
+    @Test
+    public void equalExpressionsAreShared() {
+        final Method m = new Method();
+        final ExtractMethodArgProjection arg = m.defineMethodArgument(IRType.CD_double, 0);
+        final Mul square1 = new Mul(IRType.CD_double, arg, arg);
+        final Mul square2 = new Mul(IRType.CD_double, arg, arg);
+        final Add add = new Add(IRType.CD_double, square1, square2);
+        m.controlFlowsTo(new ReturnValue(IRType.CD_double, add), FlowType.FORWARD);
+
+        final PassManager.Result result = run(m);
+
+        assertThat(add.uses.node(0)).isSameAs(add.uses.node(1));
+        assertThat(add.uses.node(0).isDataUsedMultipleTimes()).isTrue();
+        assertThat(result.runs().getFirst().changes()).isEqualTo(Pass.Changes.DATA_FLOW);
+        assertThat(result.runs().getFirst().nodeDelta()).isEqualTo(-1);
+    }
+
+    @Test
+    public void sharingIsTransitive() {
+        final Method m = new Method();
+        final ExtractMethodArgProjection arg = m.defineMethodArgument(IRType.CD_int, 0);
+        final Negate a = new Negate(IRType.CD_int, new Mul(IRType.CD_int, arg, arg));
+        final Negate b = new Negate(IRType.CD_int, new Mul(IRType.CD_int, arg, arg));
+        final Sub sub = new Sub(IRType.CD_int, a, b);
+        m.controlFlowsTo(new ReturnValue(IRType.CD_int, sub), FlowType.FORWARD);
+
+        run(m);
+
+        assertThat(sub.uses.node(0)).isSameAs(sub.uses.node(1));
+    }
+
+    @Test
+    public void operandOrderAndPayloadMatter() {
+        final Method m = new Method();
+        final ExtractMethodArgProjection a = m.defineMethodArgument(IRType.CD_int, 0);
+        final ExtractMethodArgProjection b = m.defineMethodArgument(IRType.CD_int, 1);
+        final Sub sub1 = new Sub(IRType.CD_int, a, b);
+        final Sub sub2 = new Sub(IRType.CD_int, b, a);
+        final Convert toLong = new Convert(IRType.CD_long, sub1, IRType.CD_int);
+        final Convert toDouble = new Convert(IRType.CD_double, sub2, IRType.CD_int);
+        final NumericCompare compare = new NumericCompare(NumericCompare.Mode.NONFLOATINGPOINT, IRType.CD_long, toLong, new Convert(IRType.CD_long, new Truncate(IRType.CD_int, toDouble), IRType.CD_int));
+        m.controlFlowsTo(new ReturnValue(IRType.CD_int, compare), FlowType.FORWARD);
+
+        final PassManager.Result result = run(m);
+
+        assertThat(result.runs().getFirst().changes()).isEqualTo(Pass.Changes.NONE);
+        assertThat(toLong.uses.node(0)).isSameAs(sub1);
+        assertThat(toDouble.uses.node(0)).isSameAs(sub2);
+    }
+
+    @Test
+    public void constantsAreReplacedByDominatingConstants() {
+        final Method m = new Method();
+        final LabelNode label = new LabelNode("label");
+        final PrimitiveInt inner = label.definePrimitiveInt(42);
+        final PrimitiveInt outer = m.definePrimitiveInt(42);
+        final Add add = new Add(IRType.CD_int, inner, m.defineMethodArgument(IRType.CD_int, 0));
+        m.controlFlowsTo(label, FlowType.FORWARD).controlFlowsTo(new ReturnValue(IRType.CD_int, add), FlowType.FORWARD);
+
+        run(m);
+
+        assertThat(add.uses.node(0)).isSameAs(outer);
+        assertThat(inner.uses.size()).isZero();
+    }
+
+    @Test
+    public void floatingValuesInSiblingBranchesAreKept() {
+        final Method m = new Method();
+        final ExtractMethodArgProjection arg = m.defineMethodArgument(IRType.CD_int, 0);
+        final If iff = new If(new NumericCondition(NumericCondition.Operation.GT, arg, m.definePrimitiveInt(0)));
+        m.controlFlowsTo(iff, FlowType.FORWARD);
+        final Mul left = new Mul(IRType.CD_int, arg, arg);
+        final Mul right = new Mul(IRType.CD_int, arg, arg);
+        iff.trueProjection().controlFlowsTo(new ReturnValue(IRType.CD_int, left), FlowType.FORWARD);
+        iff.falseProjection().controlFlowsTo(new ReturnValue(IRType.CD_int, new Add(IRType.CD_int, right, m.definePrimitiveInt(1))), FlowType.FORWARD);
+
+        final PassManager.Result result = run(m);
+
+        assertThat(result.runs().getFirst().changes()).isEqualTo(Pass.Changes.NONE);
+        assertThat(left.usedBy).hasSize(1);
+        assertThat(right.usedBy).hasSize(1);
+    }
+
+    @Test
+    public void floatingValueIsSharedWithDominatedUse() {
+        final Method m = new Method();
+        final ExtractMethodArgProjection arg = m.defineMethodArgument(IRType.CD_int, 0);
+        final Mul outer = new Mul(IRType.CD_int, arg, arg);
+        final If iff = new If(new NumericCondition(NumericCondition.Operation.GT, outer, m.definePrimitiveInt(0)));
+        m.controlFlowsTo(iff, FlowType.FORWARD);
+        final Mul inner = new Mul(IRType.CD_int, arg, arg);
+        final ReturnValue ret = new ReturnValue(IRType.CD_int, inner);
+        iff.trueProjection().controlFlowsTo(ret, FlowType.FORWARD);
+        iff.falseProjection().controlFlowsTo(new Return(), FlowType.FORWARD);
+
+        run(m);
+
+        assertThat(ret.arguments()).containsExactly(outer);
+        assertThat(inner.uses.size()).isZero();
+    }
+
+    @Test
+    public void constantsInSiblingBranchesAreKept() {
+        final Method m = new Method();
+        final LabelNode left = new LabelNode("left");
+        final LabelNode right = new LabelNode("right");
+        final PrimitiveInt leftConstant = left.definePrimitiveInt(42);
+        final PrimitiveInt rightConstant = right.definePrimitiveInt(42);
+        m.controlFlowsTo(left, FlowType.FORWARD).controlFlowsTo(new ReturnValue(IRType.CD_int, leftConstant), FlowType.FORWARD);
+        m.controlFlowsTo(right, FlowType.FORWARD).controlFlowsTo(new ReturnValue(IRType.CD_int, rightConstant), FlowType.FORWARD);
+
+        final PassManager.Result result = run(m);
+
+        assertThat(result.runs().getFirst().changes()).isEqualTo(Pass.Changes.NONE);
+        assertThat(leftConstant.usedBy).hasSize(1);
+        assertThat(rightConstant.usedBy).hasSize(1);
+    }
+}
@@ -0,0 +1,84 @@
+package de.mirkosertic.metair.ir;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class GraphTest {
+
+    @Test
+    public void testIdsFollowCreationOrder() {
+        final Method m = new Method();
+        final ExtractMethodArgProjection arg = m.defineMethodArgument(IRType.CD_int, 0);
+        final PrimitiveInt i = m.definePrimitiveInt(10);
+        final Add add = new Add(IRType.CD_int, arg, i);
+
+        assertThat(m.id()).isZero();
+        assertThat(arg.id()).isEqualTo(1);
+        assertThat(i.id()).isEqualTo(2);
+        assertThat(add.id()).isEqualTo(3);
+        assertThat(add.graphSize()).isEqualTo(4);
+    }
+
+    @Test
+    public void testConnectingGraphsKeepsIdsUnique() {
+        final LabelNode a = new LabelNode("a");
+        final LabelNode b = new LabelNode("b");
+        a.controlFlowsTo(b, FlowType.FORWARD);
+
+        final LabelNode c = new LabelNode("c");
+        final LabelNode d = new LabelNode("d");
+        final LabelNode e = new LabelNode("e");
+        c.controlFlowsTo(d, FlowType.FORWARD);
+        d.controlFlowsTo(e, FlowType.FORWARD);
+
+        assertThat(a.id()).isEqualTo(c.id());
+
+        b.controlFlowsTo(c, FlowType.FORWARD);
+
+        assertThat(a.graphSize()).isEqualTo(5);
+        assertThat(c.graphSize()).isEqualTo(5);
+        assertThat(Stream.of(a, b, c, d, e).map(Node::id).distinct()).hasSize(5);
+        // The smaller graph is renumbered
+        assertThat(c.id()).isZero();
+        assertThat(a.id()).isGreaterThan(2);
+    }
+
+    @Test
+    public void testAttachedNodesAreCounted() {
+        final Method m = new Method();
+        final ExtractMethodArgProjection arg = m.defineMethodArgument(IRType.CD_int, 0);
+        final Add add = new Add(IRType.CD_int, arg, m.definePrimitiveInt(10));
+        final ReturnValue ret = new ReturnValue(IRType.CD_int, add);
+        m.controlFlowsTo(ret, FlowType.FORWARD);
+
+        assertThat(m.attachedNodes()).isEqualTo(new DFS2(m).getTopologicalOrder().size()).isEqualTo(5);
+
+        ret.uses.replaceNode(add, arg);
+        add.uses.clear();
+
+        assertThat(m.attachedNodes()).isEqualTo(new DFS2(m).getTopologicalOrder().size()).isEqualTo(4);
+    }
+
+    @Test
+    public void testAttachedNodesFollowAdoptedNodes() {
+        final LabelNode a = new LabelNode("a");
+        final LabelNode b = new LabelNode("b");
+        a.controlFlowsTo(b, FlowType.FORWARD);
+        final LabelNode c = new LabelNode("c");
+        c.controlFlowsTo(new LabelNode("d"), FlowType.FORWARD).controlFlowsTo(new LabelNode("e"), FlowType.FORWARD);
+
+        b.controlFlowsTo(c, FlowType.FORWARD);
+
+        assertThat(a.attachedNodes()).isEqualTo(5);
+    }
+
+    @Test
+    public void testUnconnectedNode() {
+        final PrimitiveInt i = new PrimitiveInt(1);
+        assertThat(i.id()).isZero();
+        assertThat(i.graphSize()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,90 @@
+package de.mirkosertic.metair.ir;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.constant.ClassDesc;
+import java.lang.constant.ConstantDescs;
+import java.lang.constant.MethodTypeDesc;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IRTypeTest {
+
+    @Test
+    public void testMetaClassIsInterned() {
+        assertThat(IRType.MetaClass.of(ConstantDescs.CD_int)).isSameAs(IRType.CD_int);
+        assertThat(IRType.MetaClass.of(int.class)).isSameAs(IRType.CD_int);
+        assertThat(IRType.MetaClass.of(String.class)).isSameAs(IRType.CD_String);
+        assertThat(IRType.MetaClass.of(ClassDesc.of("java.lang.String"))).isSameAs(IRType.CD_String);
+
+        final IRType.MetaClass intArray = IRType.CD_int.arrayType();
+        assertThat(intArray).isSameAs(IRType.MetaClass.of(int[].class));
+        assertThat(intArray.componentType()).isSameAs(IRType.CD_int);
+        assertThat(intArray.hashCode()).isEqualTo(ConstantDescs.CD_int.arrayType().hashCode());
+    }
+
+    @Test
+    public void testNestedTypeCanBeInitializedFirst() throws Exception {
+        // A fresh class loader gets its own, not yet initialized copy of IRType and its nested types
+        final URL classes = IRType.class.getProtectionDomain().getCodeSource().getLocation();
+        try (final URLClassLoader loader = new URLClassLoader(new URL[] {classes}, ClassLoader.getPlatformClassLoader())) {
+            final Class<?> metaClass = Class.forName(IRType.MetaClass.class.getName(), true, loader);
+            final Object intType = metaClass.getMethod("of", ClassDesc.class).invoke(null, ConstantDescs.CD_int);
+            final Class<?> irType = Class.forName(IRType.class.getName(), true, loader);
+
+            assertThat(metaClass.getClassLoader()).isSameAs(loader);
+            assertThat(intType).isSameAs(irType.getField("CD_int").get(null));
+        }
+    }
+
+    @Test
+    public void testMethodTypeIsInterned() {
+        final MethodTypeDesc desc = MethodTypeDesc.of(ConstantDescs.CD_String, ConstantDescs.CD_int, ConstantDescs.CD_Object);
+        final IRType.MethodType type = IRType.MethodType.of(desc);
+
+        assertThat(type).isSameAs(IRType.MethodType.of(MethodTypeDesc.ofDescriptor(desc.descriptorString())));
+        assertThat(type).isSameAs(new ResolverContext().resolveMethodType(desc));
+        assertThat(type.returnType()).isSameAs(IRType.CD_String);
+        assertThat(type.parameterCount()).isEqualTo(2);
+        assertThat(type.parameterType(0)).isSameAs(IRType.CD_int);
+        assertThat(type.parameterType(1)).isSameAs(IRType.CD_Object);
+    }
+
+    @Test
+    public void testConcurrentInterning() throws Exception {
+        final List<Future<IRType.MetaClass>> futures = new ArrayList<>();
+        try (final ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            for (int i = 0; i < 64; i++) {
+                futures.add(executor.submit(() -> IRType.MetaClass.of(ClassDesc.of("de.mirkosertic.metair.ir.Interned"))));
+            }
+            for (final Future<IRType.MetaClass> future : futures) {
+                assertThat(future.get()).isSameAs(futures.getFirst().get());
+            }
+        }
+    }
+
+    @Test
+    public void testUnreachableTypesAreDropped() throws Exception {
+        final IRType.InternTable<String, Object> table = new IRType.InternTable<>(key -> new Object());
+        final Object kept = table.intern("kept");
+        for (int i = 0; i < 1000; i++) {
+            table.intern("dropped" + i);
+        }
+        assertThat(table.size()).isEqualTo(1001);
+
+        for (int i = 0; i < 50 && table.size() > 1; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+
+        assertThat(table.size()).isEqualTo(1);
+        assertThat(table.intern("kept")).isSameAs(kept);
+    }
+}
@@ -0,0 +1,96 @@
+package de.mirkosertic.metair.ir;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class IdealizerTest {
+
+    @Test
+    public void constantsAreShared() {
+        final Method method = new Method();
+
+        assertThat(method.definePrimitiveInt(42)).isSameAs(method.definePrimitiveInt(42));
+        assertThat(method.definePrimitiveLong(42L)).isSameAs(method.definePrimitiveLong(42L));
+        assertThat(method.definePrimitiveInt(0).type).isEqualTo(IRType.CD_int);
+        assertThat(method.definePrimitiveLong(0L).type).isEqualTo(IRType.CD_long);
+        assertThat(method.definePrimitiveFloat(0.0f)).isNotSameAs(method.definePrimitiveFloat(-0.0f));
+        assertThat(method.definePrimitiveInt(42)).isNotSameAs(new LabelNode("other").definePrimitiveInt(42));
+    }
+
+    @Test
+    public void detachedConstantsAreRecreated() {
+        final Method method = new Method();
+        final PrimitiveInt constant = method.definePrimitiveInt(42);
+        constant.uses.clear();
+
+        final PrimitiveInt recreated = method.definePrimitiveInt(42);
+        assertThat(recreated).isNotSameAs(constant);
+        assertThat(recreated.uses.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void foldConstants() {
+        final Method method = new Method();
+
+        assertThat(Idealizer.add(IRType.CD_int, method.definePrimitiveInt(1), method.definePrimitiveInt(2))).isSameAs(method.definePrimitiveInt(3));
+        assertThat(Idealizer.sub(IRType.CD_long, method.definePrimitiveLong(1L), method.definePrimitiveLong(2L))).isSameAs(method.definePrimitiveLong(-1L));
+        assertThat(Idealizer.mul(IRType.CD_double, method.definePrimitiveDouble(1.5d), method.definePrimitiveDouble(2.0d))).isSameAs(method.definePrimitiveDouble(3.0d));
+        assertThat(Idealizer.bitOperation(IRType.CD_int, BitOperation.Operation.USHR, method.definePrimitiveInt(-1), method.definePrimitiveInt(28), method)).isSameAs(method.definePrimitiveInt(15));
+        assertThat(Idealizer.bitOperation(IRType.CD_long, BitOperation.Operation.AND, method.definePrimitiveLong(6L), method.definePrimitiveLong(3L), method)).isSameAs(method.definePrimitiveLong(2L));
+    }
+
+    @Test
+    public void foldConversions() {
+        final Method method = new Method();
+
+        assertThat(Idealizer.convert(IRType.CD_int, method.definePrimitiveDouble(Double.NaN), IRType.CD_double)).isSameAs(method.definePrimitiveInt(0));
+        assertThat(Idealizer.convert(IRType.CD_int, method.definePrimitiveLong(1L << 32), IRType.CD_long)).isSameAs(method.definePrimitiveInt(0));
+        assertThat(Idealizer.convert(IRType.CD_long, method.definePrimitiveFloat(1e30f), IRType.CD_float)).isSameAs(method.definePrimitiveLong(Long.MAX_VALUE));
+        assertThat(Idealizer.convert(IRType.CD_double, method.definePrimitiveInt(3), IRType.CD_int)).isSameAs(method.definePrimitiveDouble(3.0d));
+        assertThat(Idealizer.convert(IRType.CD_byte, method.definePrimitiveInt(300), IRType.CD_int)).isInstanceOf(Convert.class);
+    }
+
+    @Test
+    public void identities() {
+        final Method method = new Method();
+        final Value x = method.defineMethodArgument(IRType.CD_int, 0);
+        final Value y = method.defineMethodArgument(IRType.CD_long, 1);
+
+        assertThat(Idealizer.add(IRType.CD_int, x, method.definePrimitiveInt(0))).isSameAs(x);
+        assertThat(Idealizer.add(IRType.CD_int, method.definePrimitiveInt(0), x)).isSameAs(x);
+        assertThat(Idealizer.sub(IRType.CD_long, y, method.definePrimitiveLong(0L))).isSameAs(y);
+        assertThat(Idealizer.mul(IRType.CD_int, method.definePrimitiveInt(1), x)).isSameAs(x);
+        assertThat(Idealizer.bitOperation(IRType.CD_int, BitOperation.Operation.AND, x, x, method)).isSameAs(x);
+        assertThat(Idealizer.bitOperation(IRType.CD_int, BitOperation.Operation.OR, x, method.definePrimitiveInt(0), method)).isSameAs(x);
+        assertThat(Idealizer.bitOperation(IRType.CD_int, BitOperation.Operation.XOR, x, x, method)).isSameAs(method.definePrimitiveInt(0));
+        assertThat(Idealizer.bitOperation(IRType.CD_long, BitOperation.Operation.XOR, y, y, method)).isSameAs(method.definePrimitiveLong(0L));
+
+        assertThat(Idealizer.sub(IRType.CD_int, method.definePrimitiveInt(0), x)).isInstanceOf(Sub.class);
+        assertThat(Idealizer.bitOperation(IRType.CD_int, BitOperation.Operation.AND, x, method.definePrimitiveInt(0), method)).isInstanceOf(BitOperation.class);
+    }
+
+    @Test
+    public void noIdentitiesForFloatingPoint() {
+        final Method method = new Method();
+        final Value x = method.defineMethodArgument(IRType.CD_double, 0);
+
+        assertThat(Idealizer.add(IRType.CD_double, x, method.definePrimitiveDouble(0.0d))).isInstanceOf(Add.class);
+        assertThat(Idealizer.mul(IRType.CD_double, x, method.definePrimitiveDouble(1.0d))).isInstanceOf(Mul.class);
+    }
+
+    @Test
+    public void unanchoredConstantsAreNotFolded() {
+        final Method method = new Method();
+
+        assertThat(Idealizer.add(IRType.CD_int, new PrimitiveInt(1), method.definePrimitiveInt(2))).isInstanceOf(Add.class);
+    }
+
+    @Test
+    public void typesAreStillChecked() {
+        final Method method = new Method();
+
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> Idealizer.add(IRType.CD_int, method.definePrimitiveLong(1L), method.definePrimitiveInt(0)));
+    }
+}
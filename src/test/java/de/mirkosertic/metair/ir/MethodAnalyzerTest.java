@@ -5,11 +5,15 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 
+import java.lang.classfile.ClassModel;
+import java.lang.classfile.Label;
+import java.lang.classfile.MethodModel;
 import java.lang.classfile.Opcode;
 import java.lang.classfile.TypeKind;
 import java.lang.constant.ClassDesc;
 import java.lang.constant.ConstantDescs;
 import java.lang.constant.MethodTypeDesc;
+import java.lang.reflect.AccessFlag;
 import java.util.EmptyStackException;
 import java.util.List;
 
@@ -150,6 +154,30 @@ public class MethodAnalyzerTest {
             assertThat(copy.getLocal(2)).isSameAs(status.getLocal(2));
         }
 
+        @Test
+        public void copyOnWrite() {
+            final Status status = new Status(2, 1);
+            status.setLocal(0, new PrimitiveInt(1));
+            status.stack.push(new PrimitiveInt(10));
+
+            final Status copy = status.copy();
+            assertThat(copy.locals).isSameAs(status.locals);
+
+            copy.setLocal(0, new PrimitiveInt(2));
+            copy.stack.push(new PrimitiveInt(20));
+            assertThat(copy.locals).isNotSameAs(status.locals);
+            assertThat(((PrimitiveInt) status.getLocal(0)).value).isEqualTo(1);
+            assertThat(((PrimitiveInt) copy.getLocal(0)).value).isEqualTo(2);
+            assertThat(status.stack).hasSize(1);
+            assertThat(copy.stack).hasSize(2);
+
+            // The original must not modify the array still in use by other copies
+            final Status secondCopy = status.copy();
+            status.setLocal(1, new PrimitiveInt(3));
+            assertThat(secondCopy.getLocal(1)).isNull();
+            assertThat(((PrimitiveInt) status.getLocal(1)).value).isEqualTo(3);
+        }
+
         @Test
         public void illegalStoreNextToEach() {
             assertThatExceptionOfType(IllegalStateException.class).isThrownBy(() -> {
@@ -4715,4 +4743,229 @@ public class MethodAnalyzerTest {
             }
         }
     }
+
+    @Nested
+    public class ControlFlowGraph {
+
+        @Test
+        public void manySequentialLoops() throws Exception {
+            final int numLoops = 5000;
+            final ClassModel model = ClassModelFactory.createModelFrom(classBuilder -> classBuilder.withMethod("test", MethodTypeDesc.of(ConstantDescs.CD_void, ConstantDescs.CD_int), AccessFlag.PUBLIC.mask() | AccessFlag.STATIC.mask(), methodBuilder -> methodBuilder.withCode(codeBuilder -> {
+                for (int i = 0; i < numLoops; i++) {
+                    final Label loop = codeBuilder.newLabel();
+                    final Label exit = codeBuilder.newLabel();
+                    codeBuilder.labelBinding(loop);
+                    codeBuilder.iload(0);
+                    codeBuilder.ifeq(exit);
+                    codeBuilder.iinc(0, -1);
+                    codeBuilder.goto_(loop);
+                    codeBuilder.labelBinding(exit);
+                }
+                codeBuilder.return_();
+            })));
+            final MethodModel method = model.methods().stream().filter(m -> "test".contentEquals(m.methodName())).findFirst().orElseThrow();
+
+            final MethodAnalyzer analyzer = new MethodAnalyzer(new ResolverContext(), IRType.MetaClass.of(model.thisClass().asSymbol()), method);
+
+            int backEdges = 0;
+            int forwardEdges = 0;
+            for (final Frame frame : analyzer.getFrames()) {
+                if (frame != null) {
+                    for (final FrameCFGEdge edge : frame.predecessors) {
+                        if (edge.flowType() == FlowType.BACKWARD) {
+                            backEdges++;
+                            assertThat(edge.fromIndex()).isGreaterThan(frame.elementIndex);
+                        } else {
+                            forwardEdges++;
+                        }
+                    }
+                }
+            }
+            assertThat(backEdges).isEqualTo(numLoops);
+            assertThat(forwardEdges).isGreaterThan(numLoops);
+            assertThat(analyzer.getCodeModelTopologicalOrder().getFirst()).isSameAs(analyzer.getFrames()[0]);
+        }
+
+        @Test
+        public void basicBlocks() throws Exception {
+            final ClassModel model = ClassModelFactory.createModelFrom(classBuilder -> classBuilder.withMethod("test", MethodTypeDesc.of(ConstantDescs.CD_int, ConstantDescs.CD_int), AccessFlag.PUBLIC.mask() | AccessFlag.STATIC.mask(), methodBuilder -> methodBuilder.withCode(codeBuilder -> {
+                final Label other = codeBuilder.newLabel();
+                codeBuilder.iload(0);
+                codeBuilder.iconst_1();
+                codeBuilder.iadd();
+                codeBuilder.ifeq(other);
+                codeBuilder.iconst_1();
+                codeBuilder.ireturn();
+                codeBuilder.labelBinding(other);
+                codeBuilder.iconst_2();
+                codeBuilder.ireturn();
+            })));
+            final MethodModel method = model.methods().stream().filter(m -> "test".contentEquals(m.methodName())).findFirst().orElseThrow();
+
+            final MethodAnalyzer analyzer = new MethodAnalyzer(new ResolverContext(), IRType.MetaClass.of(model.thisClass().asSymbol()), method);
+            final Frame[] frames = analyzer.getFrames();
+
+            // iload, iconst, iadd and ifeq form the first block
+            assertThat(frames[0].continuesBlock).isFalse();
+            for (int i = 1; i <= 3; i++) {
+                assertThat(frames[i].continuesBlock).isTrue();
+                assertThat(frames[i].immediateDominator).isSameAs(frames[i - 1]);
+                assertThat(frames[i].in).isSameAs(frames[i - 1].out);
+            }
+            // Both branch targets start a new block dominated by the branch
+            assertThat(frames[4].continuesBlock).isFalse();
+            assertThat(frames[4].immediateDominator).isSameAs(frames[3]);
+            assertThat(frames[5].continuesBlock).isTrue();
+            assertThat(frames[6].continuesBlock).isFalse();
+            assertThat(frames[6].immediateDominator).isSameAs(frames[3]);
+            assertThat(frames[4].in).isNotSameAs(frames[3].out);
+
+            assertThat(analyzer.getCodeModelTopologicalOrder()).containsExactly(frames[0], frames[1], frames[2], frames[3], frames[4], frames[5], frames[6], frames[7], frames[8]);
+        }
+
+        @Test
+        public void scratchStateIsReusedAcrossMethods() throws Exception {
+            final ClassModel model = ClassModelFactory.createModelFrom(classBuilder -> classBuilder
+                    .withMethod("loop", MethodTypeDesc.of(ConstantDescs.CD_void, ConstantDescs.CD_int), AccessFlag.PUBLIC.mask() | AccessFlag.STATIC.mask(), methodBuilder -> methodBuilder.withCode(codeBuilder -> {
+                        final Label loop = codeBuilder.newLabel();
+                        final Label exit = codeBuilder.newLabel();
+                        codeBuilder.labelBinding(loop);
+                        codeBuilder.iload(0);
+                        codeBuilder.ifeq(exit);
+                        codeBuilder.iinc(0, -1);
+                        codeBuilder.goto_(loop);
+                        codeBuilder.labelBinding(exit);
+                        codeBuilder.return_();
+                    }))
+                    .withMethod("broken", MethodTypeDesc.of(ConstantDescs.CD_void), AccessFlag.PUBLIC.mask() | AccessFlag.STATIC.mask(), methodBuilder -> methodBuilder.withCode(codeBuilder -> {
+                        final Label exit = codeBuilder.newLabel();
+                        codeBuilder.iconst_0();
+                        codeBuilder.ifeq(exit);
+                        codeBuilder.new_(ClassDesc.of("de.mirkosertic.Unknown"));
+                        codeBuilder.pop();
+                        codeBuilder.labelBinding(exit);
+                        codeBuilder.return_();
+                    })));
+            final MethodModel loop = model.methods().stream().filter(m -> "loop".contentEquals(m.methodName())).findFirst().orElseThrow();
+            final MethodModel broken = model.methods().stream().filter(m -> "broken".contentEquals(m.methodName())).findFirst().orElseThrow();
+            final ResolverContext resolverContext = new ResolverContext();
+            final IRType.MetaClass owner = IRType.MetaClass.of(model.thisClass().asSymbol());
+
+            final MethodAnalyzer.Scratch scratch = MethodAnalyzer.Scratch.current();
+            final int acquisitions = scratch.acquisitions();
+
+            final MethodAnalyzer first = new MethodAnalyzer(resolverContext, owner, loop);
+            // A failed analysis must not leave anything behind for the next one
+            assertThatExceptionOfType(IllegalStateException.class).isThrownBy(() -> new MethodAnalyzer(resolverContext, owner, broken));
+            final MethodAnalyzer second = new MethodAnalyzer(resolverContext, owner, loop);
+
+            // All three analyses used the same instance of this thread, and released it again
+            assertThat(MethodAnalyzer.Scratch.current()).isSameAs(scratch);
+            assertThat(scratch.acquisitions()).isEqualTo(acquisitions + 3);
+            assertThat(scratch.inUse()).isFalse();
+
+            assertThat(second.getFrames()).isNotSameAs(first.getFrames()).hasSameSizeAs(first.getFrames());
+            for (int i = 0; i < first.getFrames().length; i++) {
+                assertThat(second.getFrames()[i].predecessors).isEqualTo(first.getFrames()[i].predecessors);
+            }
+        }
+
+        @Test
+        public void nestedAnalysisGetsOwnScratchState() throws Exception {
+            final ClassModel model = ClassModelFactory.createModelFrom(classBuilder -> classBuilder.withMethod("test", MethodTypeDesc.of(ConstantDescs.CD_int, ConstantDescs.CD_int), AccessFlag.PUBLIC.mask() | AccessFlag.STATIC.mask(), methodBuilder -> methodBuilder.withCode(codeBuilder -> {
+                codeBuilder.iload(0);
+                codeBuilder.ireturn();
+            })));
+            final MethodModel method = model.methods().stream().filter(m -> "test".contentEquals(m.methodName())).findFirst().orElseThrow();
+
+            // Acquiring the instance of this thread stands in for an analysis still running further up the stack
+            final MethodAnalyzer.Scratch outer = MethodAnalyzer.Scratch.acquire();
+            try {
+                assertThat(outer).isSameAs(MethodAnalyzer.Scratch.current());
+                final int acquisitions = outer.acquisitions();
+
+                new MethodAnalyzer(new ResolverContext(), IRType.MetaClass.of(model.thisClass().asSymbol()), method);
+
+                assertThat(outer.acquisitions()).isEqualTo(acquisitions);
+                assertThat(outer.inUse()).isTrue();
+
+                final MethodAnalyzer.Scratch nested = MethodAnalyzer.Scratch.acquire();
+                assertThat(nested).isNotSameAs(outer);
+                nested.release();
+            } finally {
+                outer.release();
+            }
+        }
+
+        @Test
+        public void singleBlock() throws Exception {
+            final ClassModel model = ClassModelFactory.createModelFrom(classBuilder -> classBuilder.withMethod("test", MethodTypeDesc.of(ConstantDescs.CD_int, ConstantDescs.CD_int), AccessFlag.PUBLIC.mask() | AccessFlag.STATIC.mask(), methodBuilder -> methodBuilder.withCode(codeBuilder -> {
+                codeBuilder.iload(0);
+                codeBuilder.iconst_1();
+                codeBuilder.iadd();
+                codeBuilder.ireturn();
+            })));
+            final MethodModel method = model.methods().stream().filter(m -> "test".contentEquals(m.methodName())).findFirst().orElseThrow();
+            assertThat(MethodAnalyzer.isSingleBlock(method.code().orElseThrow())).isTrue();
+
+            final MethodAnalyzer analyzer = new MethodAnalyzer(new ResolverContext(), IRType.MetaClass.of(model.thisClass().asSymbol()), method);
+            final Frame[] frames = analyzer.getFrames();
+
+            assertThat(analyzer.getCodeModelTopologicalOrder()).containsExactly(frames);
+            assertThat(frames[0].immediateDominator).isSameAs(frames[0]);
+            for (int i = 1; i < frames.length; i++) {
+                assertThat(frames[i].continuesBlock).isTrue();
+                assertThat(frames[i].immediateDominator).isSameAs(frames[i - 1]);
+                assertThat(frames[i].in).isSameAs(frames[i - 1].out);
+            }
+            assertThat(frames[frames.length - 1].out.control).isInstanceOf(ReturnValue.class);
+        }
+
+        @Test
+        public void branchesAreNoSingleBlock() throws Exception {
+            final ClassModel model = ClassModelFactory.createModelFrom(classBuilder -> classBuilder.withMethod("test", MethodTypeDesc.of(ConstantDescs.CD_int, ConstantDescs.CD_int), AccessFlag.PUBLIC.mask() | AccessFlag.STATIC.mask(), methodBuilder -> methodBuilder.withCode(codeBuilder -> {
+                final Label other = codeBuilder.newLabel();
+                codeBuilder.iload(0);
+                codeBuilder.ifeq(other);
+                codeBuilder.iconst_1();
+                codeBuilder.ireturn();
+                codeBuilder.labelBinding(other);
+                codeBuilder.iconst_2();
+                codeBuilder.ireturn();
+            })));
+            final MethodModel method = model.methods().stream().filter(m -> "test".contentEquals(m.methodName())).findFirst().orElseThrow();
+            assertThat(MethodAnalyzer.isSingleBlock(method.code().orElseThrow())).isFalse();
+        }
+
+        @Test
+        public void loopPHIsOnlyForAssignedLocals() throws Exception {
+            final ClassModel model = ClassModelFactory.createModelFrom(classBuilder -> classBuilder.withMethod("test", MethodTypeDesc.of(ConstantDescs.CD_int, ConstantDescs.CD_int, ConstantDescs.CD_int), AccessFlag.PUBLIC.mask() | AccessFlag.STATIC.mask(), methodBuilder -> methodBuilder.withCode(codeBuilder -> {
+                final Label loop = codeBuilder.newLabel();
+                final Label exit = codeBuilder.newLabel();
+                codeBuilder.iconst_0();
+                codeBuilder.istore(2);
+                codeBuilder.labelBinding(loop);
+                codeBuilder.iload(1);
+                codeBuilder.ifeq(exit);
+                codeBuilder.iinc(2, 1);
+                codeBuilder.iinc(1, -1);
+                codeBuilder.goto_(loop);
+                codeBuilder.labelBinding(exit);
+                codeBuilder.iload(2);
+                codeBuilder.iload(0);
+                codeBuilder.iadd();
+                codeBuilder.ireturn();
+            })));
+            final MethodModel method = model.methods().stream().filter(m -> "test".contentEquals(m.methodName())).findFirst().orElseThrow();
+
+            final MethodAnalyzer analyzer = new MethodAnalyzer(new ResolverContext(), IRType.MetaClass.of(model.thisClass().asSymbol()), method);
+            final Frame header = analyzer.getFrames()[2];
+
+            // Local 0 is never changed inside the loop, so it keeps the method argument
+            assertThat(header.in.locals[0]).isInstanceOf(ExtractMethodArgProjection.class);
+            assertThat(header.in.locals[1]).isInstanceOf(PHI.class);
+            assertThat(header.in.locals[2]).isInstanceOf(PHI.class);
+            assertThat(header.in.locals[2].type).isEqualTo(IRType.CD_int);
+        }
+    }
 }
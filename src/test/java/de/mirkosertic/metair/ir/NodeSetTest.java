@@ -0,0 +1,58 @@
+package de.mirkosertic.metair.ir;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class NodeSetTest {
+
+    @Test
+    public void testSmallSet() {
+        final NodeSet set = new NodeSet();
+        final PrimitiveInt a = new PrimitiveInt(1);
+        final PrimitiveInt b = new PrimitiveInt(1);
+
+        assertThat(set.add(a)).isTrue();
+        assertThat(set.add(b)).isTrue();
+        assertThat(set.add(a)).isFalse();
+        assertThat(set).containsExactly(a, b);
+
+        assertThat(set.remove(a)).isTrue();
+        assertThat(set.remove(a)).isFalse();
+        assertThat(set).containsExactly(b);
+    }
+
+    @Test
+    public void testLargeSetKeepsInsertionOrder() {
+        final NodeSet set = new NodeSet();
+        final List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            final PrimitiveInt node = new PrimitiveInt(i);
+            nodes.add(node);
+            assertThat(set.add(node)).isTrue();
+        }
+        for (final Node node : nodes) {
+            assertThat(set.add(node)).isFalse();
+            assertThat(set.contains(node)).isTrue();
+        }
+        assertThat(set).containsExactlyElementsOf(nodes);
+
+        final Iterator<Node> it = set.iterator();
+        while (it.hasNext()) {
+            if (((PrimitiveInt) it.next()).value % 2 == 0) {
+                it.remove();
+            }
+        }
+        assertThat(set).hasSize(50);
+        assertThat(set.contains(nodes.get(0))).isFalse();
+        assertThat(set.contains(nodes.get(1))).isTrue();
+
+        set.clear();
+        assertThat(set).isEmpty();
+        assertThat(set.contains(nodes.get(1))).isFalse();
+    }
+}
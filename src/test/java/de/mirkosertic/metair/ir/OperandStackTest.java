@@ -0,0 +1,54 @@
+package de.mirkosertic.metair.ir;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.EmptyStackException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class OperandStackTest {
+
+    @Test
+    public void testPushPop() {
+        final OperandStack stack = new OperandStack(1);
+        final PrimitiveInt a = new PrimitiveInt(1);
+        final PrimitiveInt b = new PrimitiveInt(2);
+        final PrimitiveInt c = new PrimitiveInt(3);
+
+        stack.push(a);
+        stack.push(b);
+        stack.push(c);
+
+        assertThat(stack).containsExactly(a, b, c);
+        assertThat(stack.getFirst()).isSameAs(a);
+        assertThat(stack.peek()).isSameAs(c);
+        assertThat(stack.pop()).isSameAs(c);
+        assertThat(stack.pop()).isSameAs(b);
+        assertThat(stack).containsExactly(a);
+    }
+
+    @Test
+    public void testCopyIsIndependent() {
+        final OperandStack stack = new OperandStack();
+        final PrimitiveInt a = new PrimitiveInt(1);
+        stack.push(a);
+
+        final OperandStack copy = stack.copy();
+        copy.push(new PrimitiveInt(2));
+        stack.clear();
+
+        assertThat(stack).isEmpty();
+        assertThat(copy).hasSize(2);
+        assertThat(copy.getFirst()).isSameAs(a);
+    }
+
+    @Test
+    public void testEmpty() {
+        final OperandStack stack = new OperandStack();
+
+        assertThatExceptionOfType(EmptyStackException.class).isThrownBy(stack::pop);
+        assertThatExceptionOfType(EmptyStackException.class).isThrownBy(stack::peek);
+        assertThatExceptionOfType(IndexOutOfBoundsException.class).isThrownBy(() -> stack.get(0));
+    }
+}
@@ -0,0 +1,111 @@
+package de.mirkosertic.metair.ir;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class PassManagerTest {
+
+    private static Method addMethod() {
+        final Method m = new Method();
+        final ExtractMethodArgProjection arg = m.defineMethodArgument(IRType.CD_int, 0);
+        final PrimitiveInt i = m.definePrimitiveInt(10);
+        final Add add = new Add(IRType.CD_int, arg, i);
+        final ReturnValue rv = new ReturnValue(IRType.CD_int, add);
+        m.controlFlowsTo(rv, FlowType.FORWARD);
+        return m;
+    }
+
+    @Test
+    public void analysesAreCachedUntilInvalidated() {
+        final Method m = addMethod();
+
+        final CFGDominatorTree[] dominators = new CFGDominatorTree[3];
+        final Pass first = (method, analyses) -> {
+            dominators[0] = analyses.get(Analysis.CFG_DOMINATORS);
+            return Pass.Changes.NONE;
+        };
+        final Pass dataFlowChange = (method, analyses) -> {
+            dominators[1] = analyses.get(Analysis.CFG_DOMINATORS);
+            assertThat(analyses.isCached(Analysis.TOPOLOGICAL_ORDER)).isTrue();
+            return Pass.Changes.DATA_FLOW;
+        };
+        final Pass controlFlowChange = (method, analyses) -> {
+            // Dominators only depend on the control flow, the topological order also on the data flow
+            assertThat(analyses.isCached(Analysis.CFG_DOMINATORS)).isTrue();
+            dominators[2] = analyses.get(Analysis.CFG_DOMINATORS);
+            return Pass.Changes.CONTROL_FLOW;
+        };
+
+        final PassManager.Result result = new PassManager(List.of(first, dataFlowChange, controlFlowChange)).run(m);
+
+        assertThat(dominators[1]).isSameAs(dominators[0]);
+        assertThat(dominators[2]).isSameAs(dominators[0]);
+        assertThat(result.analyses().isCached(Analysis.CFG_DOMINATORS)).isFalse();
+        assertThat(result.analyses().get(Analysis.CFG_DOMINATORS)).isNotSameAs(dominators[0]);
+    }
+
+    @Test
+    public void passRunsAreRecorded() {
+        final Method m = addMethod();
+        final Pass removeConstant = new Pass() {
+            @Override
+            public String name() {
+                return "removeConstant";
+            }
+
+            @Override
+            public Changes run(final Method method, final PassManager.Analyses analyses) {
+                final Node add = analyses.get(Analysis.TOPOLOGICAL_ORDER).stream().filter(t -> t instanceof Add).findFirst().orElseThrow();
+                final Node constant = add.uses.node(1);
+                add.uses.replaceNode(constant, method.methodArguments.getFirst());
+                constant.uses.clear();
+                return Changes.DATA_FLOW;
+            }
+        };
+
+        final PassManager.Result result = new PassManager(List.of(removeConstant)).run(m);
+
+        assertThat(result.runs()).hasSize(1);
+        final PassManager.PassRun run = result.runs().getFirst();
+        assertThat(run.pass()).isEqualTo("removeConstant");
+        assertThat(run.changes()).isEqualTo(Pass.Changes.DATA_FLOW);
+        assertThat(run.nanos()).isNotNegative();
+        assertThat(run.nodesBefore()).isEqualTo(5);
+        assertThat(run.nodeDelta()).isEqualTo(-1);
+    }
+
+    @Test
+    public void recordingRunsComputesNoAnalyses() {
+        final Pass controlFlowChange = (method, analyses) -> Pass.Changes.CONTROL_FLOW;
+
+        final PassManager.Result result = new PassManager(List.of(controlFlowChange, controlFlowChange)).run(addMethod());
+
+        assertThat(result.runs()).extracting(PassManager.PassRun::nodesAfter).containsExactly(5, 5);
+        assertThat(result.analyses().isCached(Analysis.TOPOLOGICAL_ORDER)).isFalse();
+    }
+
+    @Test
+    public void loopHeaders() {
+        final Method m = new Method();
+        final LoopHeaderNode loop = new LoopHeaderNode("Loop");
+        final LabelNode body = new LabelNode("Body");
+        m.controlFlowsTo(loop, FlowType.FORWARD);
+        loop.controlFlowsTo(body, FlowType.FORWARD);
+        body.controlFlowsTo(loop, FlowType.BACKWARD);
+
+        final PassManager.Result result = new PassManager(List.of()).run(m);
+        assertThat(result.analyses().get(Analysis.LOOP_HEADERS)).containsExactly(loop);
+        assertThat(result.runs()).isEmpty();
+    }
+
+    @Test
+    public void changesAreRequired() {
+        final Pass broken = (method, analyses) -> null;
+
+        assertThatExceptionOfType(IllegalStateException.class).isThrownBy(() -> new PassManager(List.of(broken)).run(addMethod()));
+    }
+}
@@ -0,0 +1,228 @@
+package de.mirkosertic.metair.ir;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.classfile.MethodModel;
+import java.lang.constant.ClassDesc;
+import java.lang.constant.ConstantDescs;
+import java.lang.constant.MethodTypeDesc;
+import java.util.AbstractCollection;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class ResolverContextTest {
+
+    @Test
+    public void testResolveSameClassTwice() {
+        final ResolverContext context = new ResolverContext();
+
+        final ResolvedClass a = context.resolveClass(ArrayList.class.getName());
+        final ResolvedClass b = context.resolveClass(ArrayList.class.getName());
+
+        assertThat(a).isSameAs(b);
+        assertThat(a.isLoaded()).isTrue();
+        assertThat(a.hasInterface(IRType.MetaClass.of(List.class).type())).isTrue();
+    }
+
+    @Test
+    public void testLazyHierarchy() {
+        final ResolverContext context = new ResolverContext(new ClassLoaderClassFileSource(ResolverContextTest.class.getClassLoader()), null, true);
+
+        final ResolvedClass resolved = context.resolveClass(ArrayList.class.getName());
+        assertThat(context.numberOrResolvedClasses()).isEqualTo(1);
+
+        context.resolveType(IRType.MetaClass.of(HashMap.class).type());
+        assertThat(context.numberOrResolvedClasses()).isEqualTo(1);
+
+        assertThat(resolved.hasInterface(IRType.MetaClass.of(List.class).type())).isTrue();
+        assertThat(resolved.superClass()).isSameAs(context.resolveClass(AbstractList.class.getName()));
+        assertThat(context.numberOrResolvedClasses()).isGreaterThan(1);
+    }
+
+    @Test
+    public void testEagerHierarchy() {
+        final ResolverContext context = new ResolverContext(new ClassLoaderClassFileSource(ResolverContextTest.class.getClassLoader()));
+
+        context.resolveClass(ArrayList.class.getName());
+        final int count = context.numberOrResolvedClasses();
+        assertThat(count).isGreaterThan(1);
+
+        context.resolveClass(AbstractList.class.getName());
+        assertThat(context.numberOrResolvedClasses()).isEqualTo(count);
+    }
+
+    private static String owner(final ResolvedMethod method) {
+        return method.thisClass().summary().thisClass();
+    }
+
+    @Test
+    public void testResolveInvokes() {
+        final ResolverContext context = new ResolverContext();
+
+        final ClassDesc arrayList = IRType.MetaClass.of(ArrayList.class).type();
+        final ClassDesc list = IRType.MetaClass.of(List.class).type();
+
+        assertThat(owner(context.resolveInvokeVirtual(arrayList, "size", MethodTypeDesc.of(ConstantDescs.CD_int)))).isEqualTo(ArrayList.class.getName());
+        assertThat(owner(context.resolveInvokeVirtual(arrayList, "toString", MethodTypeDesc.of(ConstantDescs.CD_String)))).isEqualTo(AbstractCollection.class.getName());
+        assertThat(owner(context.resolveInvokeVirtual(arrayList, "getClass", MethodTypeDesc.of(ConstantDescs.CD_Class)))).isEqualTo(Object.class.getName());
+        assertThat(context.resolveInvokeVirtual(arrayList, "unknown", MethodTypeDesc.of(ConstantDescs.CD_int))).isNull();
+
+        final ResolvedMethod size = context.resolveInvokeInterface(list, "size", MethodTypeDesc.of(ConstantDescs.CD_int));
+        assertThat(owner(size)).isEqualTo(List.class.getName());
+        assertThat(size.isAbstract()).isTrue();
+        assertThat(owner(context.resolveInvokeInterface(list, "stream", MethodTypeDesc.of(IRType.MetaClass.of(Stream.class).type())))).isEqualTo(Collection.class.getName());
+
+        assertThat(owner(context.resolveInvokeStatic(IRType.MetaClass.of(Integer.class).type(), "valueOf", MethodTypeDesc.of(ConstantDescs.CD_Integer, ConstantDescs.CD_int)))).isEqualTo(Integer.class.getName());
+        assertThat(context.resolveInvokeSpecial(arrayList, "<init>", MethodTypeDesc.of(ConstantDescs.CD_void)).isConstructor()).isTrue();
+
+        final ResolvedMethod invokeExact = context.resolveInvokeVirtual(ConstantDescs.CD_MethodHandle, "invokeExact", MethodTypeDesc.of(ConstantDescs.CD_int, ConstantDescs.CD_String));
+        assertThat(invokeExact.methodModel().methodName().stringValue()).isEqualTo("invokeExact");
+    }
+
+    @Test
+    public void testSelectMethod() {
+        final ResolverContext context = new ResolverContext();
+        final ResolvedClass arrayList = context.resolveClass(ArrayList.class.getName());
+
+        assertThat(owner(arrayList.selectMethod("size", MethodTypeDesc.of(ConstantDescs.CD_int)))).isEqualTo(ArrayList.class.getName());
+        assertThat(owner(arrayList.selectMethod("hashCode", MethodTypeDesc.of(ConstantDescs.CD_int)))).isEqualTo(ArrayList.class.getName());
+        assertThat(owner(arrayList.selectMethod("stream", MethodTypeDesc.of(IRType.MetaClass.of(Stream.class).type())))).isEqualTo(Collection.class.getName());
+        assertThat(arrayList.selectMethod("<init>", MethodTypeDesc.of(ConstantDescs.CD_void))).isNull();
+        assertThat(context.resolveClass(List.class.getName()).isInterface()).isTrue();
+    }
+
+    public interface Sized {
+        int size();
+    }
+
+    public interface DefaultSized extends Sized {
+        @Override
+        default int size() {
+            return 1;
+        }
+    }
+
+    public abstract static class AbstractSized implements Sized {
+    }
+
+    public static class InheritedDefault extends AbstractSized implements DefaultSized {
+    }
+
+    public interface Named {
+        default String name() {
+            return "named";
+        }
+    }
+
+    public interface Renamed extends Named {
+        @Override
+        default String name() {
+            return "renamed";
+        }
+    }
+
+    public static class MostSpecificDefault implements Named, Renamed {
+    }
+
+    @Test
+    public void testSelectDefaultOverInheritedAbstractMethod() {
+        final ResolverContext context = new ResolverContext();
+        final ResolvedClass resolvedClass = context.resolveClass(InheritedDefault.class.getName());
+
+        final ResolvedMethod size = resolvedClass.selectMethod("size", MethodTypeDesc.of(ConstantDescs.CD_int));
+        assertThat(owner(size)).isEqualTo(DefaultSized.class.getName());
+        assertThat(size.isAbstract()).isFalse();
+    }
+
+    @Test
+    public void testSelectMaximallySpecificDefault() {
+        final ResolverContext context = new ResolverContext();
+        final ResolvedClass resolvedClass = context.resolveClass(MostSpecificDefault.class.getName());
+
+        assertThat(owner(resolvedClass.selectMethod("name", MethodTypeDesc.of(ConstantDescs.CD_String)))).isEqualTo(Renamed.class.getName());
+    }
+
+    @Test
+    public void testResolveMaximallySpecificInterfaceMethod() {
+        final ResolverContext context = new ResolverContext();
+        final ResolvedClass resolvedClass = context.resolveClass(InheritedDefault.class.getName());
+
+        // The abstract method inherited through the super class does not hide the more specific default
+        final ResolvedMethod size = resolvedClass.findMethod("size", MethodTypeDesc.of(ConstantDescs.CD_int));
+        assertThat(owner(size)).isEqualTo(DefaultSized.class.getName());
+        assertThat(owner(context.resolveClass(MostSpecificDefault.class.getName()).findMethod("name", MethodTypeDesc.of(ConstantDescs.CD_String)))).isEqualTo(Renamed.class.getName());
+    }
+
+    @Test
+    public void testUnknownClass() {
+        final ResolverContext context = new ResolverContext();
+
+        assertThatExceptionOfType(IllegalStateException.class).isThrownBy(() -> context.resolveClass("de.mirkosertic.unknown.Unknown"));
+    }
+
+    @Test
+    public void testFailedResolutionIsRetried() {
+        final ClassFileSource delegate = new ClassLoaderClassFileSource(ResolverContextTest.class.getClassLoader());
+        final AtomicBoolean available = new AtomicBoolean();
+        final ResolverContext context = new ResolverContext(className -> available.get() ? delegate.load(className) : null);
+
+        assertThatExceptionOfType(IllegalStateException.class).isThrownBy(() -> context.resolveClass(Sized.class.getName()));
+        assertThat(context.resolvedClasses()).isEmpty();
+
+        // The class path is ready now, the failure must not be cached
+        available.set(true);
+        assertThat(context.resolveClass(Sized.class.getName()).thisType()).isEqualTo(IRType.MetaClass.of(Sized.class));
+    }
+
+    @Test
+    public void testConcurrentResolution() throws Exception {
+        final ResolverContext context = new ResolverContext();
+
+        final List<Class<?>> classes = List.of(ArrayList.class, String.class, Integer.class, ResolverContext.class, MethodAnalyzer.class);
+        final List<Future<ResolvedClass>> futures = new ArrayList<>();
+        try (final ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            for (int i = 0; i < 64; i++) {
+                final Class<?> cls = classes.get(i % classes.size());
+                futures.add(executor.submit(() -> context.resolveClass(cls.getName())));
+            }
+
+            for (int i = 0; i < futures.size(); i++) {
+                final ResolvedClass resolved = futures.get(i).get();
+                assertThat(resolved).isSameAs(context.resolveClass(classes.get(i % classes.size()).getName()));
+                assertThat(resolved.isLoaded()).isTrue();
+            }
+        }
+    }
+
+    @Test
+    public void testMethodIsAnalyzedOnlyOnce() throws Exception {
+        final ResolverContext context = new ResolverContext();
+        final ResolvedClass resolvedClass = context.resolveClass(ResolverContextTest.class.getName());
+
+        final MethodModel methodModel = resolvedClass.classModel().methods().stream().filter(m -> "testResolveSameClassTwice".equals(m.methodName().stringValue())).findFirst().orElseThrow();
+
+        final ResolvedMethod resolvedMethod = resolvedClass.resolveMethod(methodModel);
+        assertThat(resolvedClass.resolveMethod(methodModel)).isSameAs(resolvedMethod);
+
+        final List<Future<MethodAnalyzer>> futures = new ArrayList<>();
+        try (final ExecutorService executor = Executors.newFixedThreadPool(4)) {
+            for (int i = 0; i < 16; i++) {
+                futures.add(executor.submit(resolvedMethod::analyze));
+            }
+            for (final Future<MethodAnalyzer> future : futures) {
+                assertThat(future.get()).isSameAs(resolvedMethod.analyze());
+            }
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package de.mirkosertic.metair.ir;
+
+import de.mirkosertic.metair.ir.test.MetaIRTestHelper;
+import de.mirkosertic.metair.ir.test.MetaIRTestTools;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(MetaIRTestTools.class)
+public class SparseConditionalConstantPropagationTest {
+
+    private static PassManager.Result run(final Method method) {
+        return new PassManager(List.of(new SparseConditionalConstantPropagation())).run(method);
+    }
+
+    private static List<Node> nodesOf(final MethodAnalyzer analyzer, final Class<? extends Node> type) {
+        return new DFS2(analyzer.ir()).getTopologicalOrder().stream().filter(type::isInstance).toList();
+    }
+
+    static int constantFlagInLoop(final int n) {
+        boolean flag = false;
+        int x = 0;
+        for (int i = 0; i < n; i++) {
+            if (flag) {
+                x = x + 1;
+            }
+        }
+        return x;
+    }
+
+    static int constantSwitch() {
+        int selector = 2;
+        switch (selector) {
+            case 1:
+                return 10;
+            case 2:
+                return 20;
+            default:
+                return 30;
+        }
+    }
+
+    static int constantBranchInGuardedLoop(final int[] data) {
+        boolean useData = false;
+        int result = 0;
+        for (int i = 0; i < data.length; i++) {
+            try {
+                if (useData) {
+                    result = result + data[i];
+                } else {
+                    result = result + 1;
+                }
+            } catch (final ArrayIndexOutOfBoundsException e) {
+                result = -1;
+            }
+        }
+        return result;
+    }
+
+    @Test
+    public void constantFlagInLoopIsFolded(final MetaIRTestHelper testHelper) throws IOException {
+        final MethodAnalyzer analyzer = testHelper.analyzeAndReport(SparseConditionalConstantPropagationTest.class, "constantFlagInLoop", List.of(new SparseConditionalConstantPropagation()));
+
+        // Only the loop condition is left
+        assertThat(nodesOf(analyzer, If.class)).hasSize(1);
+        assertThat(nodesOf(analyzer, LoopHeaderNode.class)).hasSize(1);
+        assertThat(testHelper.sequenced()).contains("return 0");
+    }
+
+    @Test
+    public void constantSwitchIsFoldedInBytecode(final MetaIRTestHelper testHelper) throws IOException {
+        final MethodAnalyzer analyzer = testHelper.analyzeAndReport(SparseConditionalConstantPropagationTest.class, "constantSwitch", List.of(new SparseConditionalConstantPropagation()));
+
+        assertThat(nodesOf(analyzer, TableSwitch.class)).isEmpty();
+        assertThat(nodesOf(analyzer, LookupSwitch.class)).isEmpty();
+        assertThat(testHelper.sequenced()).contains("return 20").doesNotContain("return 10").doesNotContain("return 30");
+    }
+
+    @Test
+    public void constantBranchInGuardedLoopIsFolded(final MetaIRTestHelper testHelper) throws IOException {
+        final MethodAnalyzer analyzer = testHelper.analyzeAndReport(SparseConditionalConstantPropagationTest.class, "constantBranchInGuardedLoop", List.of(new SparseConditionalConstantPropagation()));
+
+        // The exception guard and the loop survive, only the branch on the constant is gone
+        assertThat(nodesOf(analyzer, ExceptionGuard.class)).isNotEmpty();
+        assertThat(nodesOf(analyzer, LoopHeaderNode.class)).hasSize(1);
+        assertThat(nodesOf(analyzer, If.class)).hasSize(1);
+        assertThat(testHelper.sequenced()).contains("return ");
+    }
+
+    @Test
+    public void constantBranchIsFolded() {
+        final Method m = new Method();
+        final ExtractMethodArgProjection arg = m.defineMethodArgument(IRType.CD_int, 0);
+        final If iff = new If(new NumericCondition(NumericCondition.Operation.NE, m.definePrimitiveInt(1), m.definePrimitiveInt(0)));
+        m.controlFlowsTo(iff, FlowType.FORWARD);
+        final LabelNode thenBlock = new LabelNode("then");
+        final LabelNode elseBlock = new LabelNode("else");
+        iff.trueProjection().controlFlowsTo(thenBlock, FlowType.FORWARD);
+        iff.falseProjection().controlFlowsTo(elseBlock, FlowType.FORWARD);
+        final MergeNode merge = new MergeNode("merge");
+        thenBlock.controlFlowsTo(merge, FlowType.FORWARD);
+        elseBlock.controlFlowsTo(merge, FlowType.FORWARD);
+        final PHI phi = merge.definePHI(IRType.CD_int);
+        phi.use(m.definePrimitiveInt(10), new PHIUse(FlowType.FORWARD, thenBlock));
+        phi.use(arg, new PHIUse(FlowType.FORWARD, elseBlock));
+        final ReturnValue ret = new ReturnValue(IRType.CD_int, phi);
+        merge.controlFlowsTo(ret, FlowType.FORWARD);
+
+        final PassManager.Result result = run(m);
+
+        assertThat(result.runs().getFirst().changes()).isEqualTo(Pass.Changes.CONTROL_FLOW);
+        assertThat(m.controlFlowUsers()).containsExactly(thenBlock);
+        assertThat(merge.controlFlowUsers()).containsExactly(ret);
+        assertThat(merge.uses.size()).isEqualTo(1);
+        assertThat(ret.arguments()).containsExactly(m.definePrimitiveInt(10));
+        assertThat(iff.uses.size()).isZero();
+        assertThat(elseBlock.uses.size()).isZero();
+        assertThat(arg.usedBy).isEmpty();
+    }
+
+    @Test
+    public void phiOfEqualConstantsIsConstant() {
+        final Method m = new Method();
+        final ExtractMethodArgProjection arg = m.defineMethodArgument(IRType.CD_int, 0);
+        final If iff = new If(new NumericCondition(NumericCondition.Operation.EQ, arg, m.definePrimitiveInt(0)));
+        m.controlFlowsTo(iff, FlowType.FORWARD);
+        final MergeNode merge = new MergeNode("merge");
+        iff.trueProjection().controlFlowsTo(merge, FlowType.FORWARD);
+        iff.falseProjection().controlFlowsTo(merge, FlowType.FORWARD);
+        final PHI phi = merge.definePHI(IRType.CD_int);
+        phi.use(new Add(IRType.CD_int, m.definePrimitiveInt(4), m.definePrimitiveInt(6)), new PHIUse(FlowType.FORWARD, iff.trueProjection()));
+        phi.use(m.definePrimitiveInt(10), new PHIUse(FlowType.FORWARD, iff.falseProjection()));
+        final ReturnValue ret = new ReturnValue(IRType.CD_int, phi);
+        merge.controlFlowsTo(ret, FlowType.FORWARD);
+
+        final PassManager.Result result = run(m);
+
+        assertThat(result.runs().getFirst().changes()).isEqualTo(Pass.Changes.DATA_FLOW);
+        assertThat(ret.arguments()).containsExactly(m.definePrimitiveInt(10));
+        assertThat(m.controlFlowUsers()).containsExactly(iff);
+    }
+
+    @Test
+    public void constantSwitchIsFolded() {
+        final Method m = new Method();
+        final LookupSwitch sw = new LookupSwitch(new Add(IRType.CD_int, m.definePrimitiveInt(1), m.definePrimitiveInt(1)), "default", List.of(1, 2));
+        m.controlFlowsTo(sw, FlowType.FORWARD);
+        final Return case1 = new Return();
+        final Return case2 = new Return();
+        final Return defaultCase = new Return();
+        sw.caseProjection(0).controlFlowsTo(case1, FlowType.FORWARD);
+        sw.caseProjection(1).controlFlowsTo(case2, FlowType.FORWARD);
+        sw.defaultProjection().controlFlowsTo(defaultCase, FlowType.FORWARD);
+
+        run(m);
+
+        assertThat(m.controlFlowUsers()).containsExactly(case2);
+        assertThat(case1.uses.size()).isZero();
+        assertThat(defaultCase.uses.size()).isZero();
+        assertThat(sw.uses.size()).isZero();
+    }
+
+    @Test
+    public void loopWithoutReachableBackEdgeBecomesMerge() {
+        final Method m = new Method();
+        final ExtractMethodArgProjection arg = m.defineMethodArgument(IRType.CD_int, 0);
+        final LoopHeaderNode loop = new LoopHeaderNode("Loop");
+        m.controlFlowsTo(loop, FlowType.FORWARD);
+        final PHI counter = loop.definePHI(IRType.CD_int);
+        counter.use(arg, new PHIUse(FlowType.FORWARD, m));
+        final If iff = new If(new NumericCondition(NumericCondition.Operation.LT, m.definePrimitiveInt(1), m.definePrimitiveInt(0)));
+        loop.controlFlowsTo(iff, FlowType.FORWARD);
+        iff.trueProjection().controlFlowsTo(loop, FlowType.BACKWARD);
+        counter.use(new Add(IRType.CD_int, counter, m.definePrimitiveInt(1)), new PHIUse(FlowType.BACKWARD, iff));
+        final ReturnValue ret = new ReturnValue(IRType.CD_int, counter);
+        iff.falseProjection().controlFlowsTo(ret, FlowType.FORWARD);
+
+        final PassManager.Result result = run(m);
+
+        assertThat(result.analyses().get(Analysis.LOOP_HEADERS)).isEmpty();
+        assertThat(m.controlFlowUsers()).singleElement().isInstanceOf(MergeNode.class);
+        assertThat(ret.arguments()).containsExactly(arg);
+        assertThat(loop.usedBy).isEmpty();
+    }
+
+    @Test
+    public void unknownConditionsAreKept() {
+        final Method m = new Method();
+        final ExtractMethodArgProjection arg = m.defineMethodArgument(IRType.CD_int, 0);
+        final If iff = new If(new NumericCondition(NumericCondition.Operation.GT, arg, m.definePrimitiveInt(0)));
+        m.controlFlowsTo(iff, FlowType.FORWARD);
+        iff.trueProjection().controlFlowsTo(new Return(), FlowType.FORWARD);
+        iff.falseProjection().controlFlowsTo(new Return(), FlowType.FORWARD);
+
+        final PassManager.Result result = run(m);
+
+        assertThat(result.runs().getFirst().changes()).isEqualTo(Pass.Changes.NONE);
+        assertThat(iff.trueProjection().controlFlowUsers()).hasSize(1);
+        assertThat(iff.falseProjection().controlFlowUsers()).hasSize(1);
+    }
+}
@@ -0,0 +1,81 @@
+package de.mirkosertic.metair.ir;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class UseListTest {
+
+    @Test
+    public void testUsage() {
+        final PrimitiveInt owner = new PrimitiveInt(0);
+        final UseList list = owner.uses;
+        final PrimitiveInt a = new PrimitiveInt(1);
+        final PrimitiveInt b = new PrimitiveInt(2);
+        final PrimitiveInt c = new PrimitiveInt(3);
+
+        for (int i = 0; i < 10; i++) {
+            list.add(i % 2 == 0 ? a : b, ArgumentUse.of(i));
+        }
+        assertThat(list).hasSize(10);
+        assertThat(list.node(2)).isSameAs(a);
+        assertThat(list.use(3)).isSameAs(ArgumentUse.of(3));
+        assertThat(list.get(1).node()).isSameAs(b);
+        assertThat(list.get(1).use()).isEqualTo(new ArgumentUse(1));
+        assertThat(list.indexOf(new Node.UseEdge(b, new ArgumentUse(3)))).isEqualTo(3);
+        assertThat(a.usedBy).containsExactly(owner);
+        assertThat(a.dataFlowUseCount()).isEqualTo(5);
+
+        list.replaceNode(b, c);
+        assertThat(list.node(1)).isSameAs(c);
+        assertThat(list.node(2)).isSameAs(a);
+        assertThat(b.usedBy).isEmpty();
+        assertThat(b.dataFlowUseCount()).isZero();
+        assertThat(c.usedBy).containsExactly(owner);
+        assertThat(c.dataFlowUseCount()).isEqualTo(5);
+
+        list.remove(0);
+        assertThat(list).hasSize(9);
+        assertThat(list.node(0)).isSameAs(c);
+        assertThat(a.dataFlowUseCount()).isEqualTo(4);
+
+        list.clear();
+        assertThat(list).isEmpty();
+        assertThat(a.usedBy).isEmpty();
+        assertThat(c.usedBy).isEmpty();
+        assertThat(a.isDataUsedMultipleTimes()).isFalse();
+    }
+
+    @Test
+    public void testReverseEdgesByKind() {
+        final Method method = new Method();
+        final PrimitiveInt constant = method.definePrimitiveInt(42);
+        final Goto jump = new Goto();
+        final LabelNode label = new LabelNode("target");
+        method.controlFlowsTo(jump, FlowType.FORWARD);
+        jump.controlFlowsTo(label, FlowType.FORWARD);
+
+        assertThat(method.definitions()).containsExactly(constant);
+        assertThat(method.controlFlowUsers()).containsExactly(jump);
+        assertThat(jump.getJumpTarget()).isSameAs(label);
+
+        final Add add = new Add(IRType.CD_int, constant, constant);
+        assertThat(constant.dataFlowUseCount()).isEqualTo(2);
+        assertThat(constant.isDataUsedMultipleTimes()).isTrue();
+        assertThat(constant.usedBy).containsExactly(add);
+
+        final PrimitiveInt other = method.definePrimitiveInt(43);
+        constant.replaceWith(other);
+        assertThat(add.arguments()).containsExactly(other, other);
+        assertThat(other.isDataUsedMultipleTimes()).isTrue();
+        assertThat(method.definitions()).containsExactly(other);
+        assertThat(constant.usedBy).isEmpty();
+    }
+
+    @Test
+    public void testSharedUses() {
+        assertThat(ArgumentUse.of(0)).isSameAs(ArgumentUse.of(0));
+        assertThat(ControlFlowUse.of(FlowType.FORWARD).type).isEqualTo(FlowType.FORWARD);
+        assertThat(ControlFlowUse.of(FlowType.BACKWARD)).isSameAs(ControlFlowUse.of(FlowType.BACKWARD));
+    }
+}